@@ -0,0 +1,78 @@
+package org.springframework.ai.chat.memory.repository.redis.benchmark;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * The Redis server the benchmarks run against. Starts a {@code redis-server} binary bundled by
+ * embedded-redis on a free port, or connects to the server given by the {@code
+ * benchmark.redis.host} and {@code benchmark.redis.port} system properties, so the benchmarks run
+ * offline and without Docker.
+ */
+final class BenchmarkRedis implements AutoCloseable {
+
+    private final RedisServer server;
+
+    private final LettuceConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate redisTemplate;
+
+    private BenchmarkRedis(RedisServer server, String host, int port) {
+        this.server = server;
+        this.connectionFactory =
+                new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        this.connectionFactory.afterPropertiesSet();
+        this.connectionFactory.start();
+        this.redisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    static BenchmarkRedis start() {
+        String port = System.getProperty("benchmark.redis.port");
+        if (port != null) {
+            return new BenchmarkRedis(
+                    null,
+                    System.getProperty("benchmark.redis.host", "localhost"),
+                    Integer.parseInt(port));
+        }
+        try {
+            int freePort = freePort();
+            // Persistence would add disk I/O to the measurements
+            RedisServer server =
+                    RedisServer.newRedisServer()
+                            .port(freePort)
+                            .bind("127.0.0.1")
+                            .setting("save \"\"")
+                            .setting("appendonly no")
+                            .build();
+            server.start();
+            return new BenchmarkRedis(server, "127.0.0.1", freePort);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to start redis-server", e);
+        }
+    }
+
+    StringRedisTemplate redisTemplate() {
+        return redisTemplate;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionFactory.destroy();
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.springframework.ai.chat.memory.repository.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.chat.memory.repository.redis.CborMessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.JsonMessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.MessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.SmileMessageCodec;
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of single messages by every {@link MessageCodec}, reported per
+ * message. Needs no Redis.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    private static final int MESSAGES = 30;
+
+    @Param({"json", "smile", "cbor"})
+    private String codec;
+
+    @Param({"100", "2000"})
+    private int messageLength;
+
+    @Param({"CHAT", "AGENT"})
+    private Conversations.Mix mix;
+
+    private MessageCodec messageCodec;
+
+    private List<Message> messages;
+
+    private List<byte[]> entries;
+
+    @Setup
+    public void setUp() {
+        this.messageCodec = codec(codec);
+        this.messages = Conversations.create(MESSAGES, messageLength, mix);
+        this.entries = messages.stream().map(messageCodec::encode).toList();
+    }
+
+    private static MessageCodec codec(String name) {
+        return switch (name) {
+            case "json" -> new JsonMessageCodec();
+            case "smile" -> new SmileMessageCodec();
+            case "cbor" -> new CborMessageCodec();
+            default -> throw new IllegalArgumentException("Unknown codec: " + name);
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void encode(Blackhole blackhole) {
+        for (Message message : messages) {
+            blackhole.consume(messageCodec.encode(message));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void decode(Blackhole blackhole) {
+        for (byte[] entry : entries) {
+            blackhole.consume(messageCodec.decode(entry));
+        }
+    }
+}
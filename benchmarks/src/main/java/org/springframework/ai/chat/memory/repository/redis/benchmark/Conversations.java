@@ -0,0 +1,82 @@
+package org.springframework.ai.chat.memory.repository.redis.benchmark;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Builds the synthetic conversations the benchmarks run on. */
+public final class Conversations {
+
+    /** Message types making up a conversation. */
+    public enum Mix {
+        /** User and assistant messages taking turns. */
+        CHAT,
+        /**
+         * A system prompt followed by turns of a user message, an assistant message with model
+         * metadata and a tool response.
+         */
+        AGENT
+    }
+
+    private Conversations() {}
+
+    /**
+     * Creates a conversation.
+     *
+     * @param size number of messages
+     * @param length number of characters of every message text
+     * @param mix message types making up the conversation
+     */
+    static List<Message> create(int size, int length, Mix mix) {
+        List<Message> messages = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            messages.add(message(i, text(i, length), mix));
+        }
+        return messages;
+    }
+
+    private static Message message(int index, String text, Mix mix) {
+        if (mix == Mix.CHAT) {
+            return index % 2 == 0 ? new UserMessage(text) : new AssistantMessage(text);
+        }
+        if (index == 0) {
+            return new SystemMessage(text);
+        }
+        return switch (index % 3) {
+            case 1 -> new UserMessage(text);
+            case 2 -> new AssistantMessage(
+                    text,
+                    Map.of(
+                            "model",
+                            "gpt-4o-mini",
+                            "finishReason",
+                            "TOOL_CALLS",
+                            "promptTokens",
+                            120 + index,
+                            "created",
+                            Instant.now().toString()));
+            default -> new ToolResponseMessage(
+                    List.of(
+                            new ToolResponseMessage.ToolResponse(
+                                    "call_" + index, "searchDocuments", text)),
+                    Map.of("toolCallId", "call_" + index));
+        };
+    }
+
+    private static String text(int index, int length) {
+        StringBuilder text = new StringBuilder(length);
+        String words = "Message " + index + " of the benchmark conversation, about Redis lists. ";
+        while (text.length() < length) {
+            text.append(words);
+        }
+        text.setLength(length);
+        return text.toString();
+    }
+}
@@ -0,0 +1,109 @@
+package org.springframework.ai.chat.memory.repository.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.memory.repository.redis.RedisChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of {@link RedisChatMemoryRepository} against a local Redis, see {@link
+ * BenchmarkRedis}. Each benchmark works on one conversation of {@code windowSize} messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    private static final String KEY_PREFIX = "benchmark_chat_memory:";
+
+    @Param({"10", "100"})
+    private int windowSize;
+
+    @Param({"100", "2000"})
+    private int messageLength;
+
+    @Param({"CHAT", "AGENT"})
+    private Conversations.Mix mix;
+
+    private BenchmarkRedis redis;
+
+    private RedisChatMemoryRepository repository;
+
+    private RedisChatMemoryRepository incrementalRepository;
+
+    private List<Message> messages;
+
+    private Message reply;
+
+    @Setup
+    public void setUp() {
+        this.redis = BenchmarkRedis.start();
+        this.repository =
+                RedisChatMemoryRepository.builder()
+                        .keyPrefix(KEY_PREFIX)
+                        .redisTemplate(redis.redisTemplate())
+                        .build();
+        this.incrementalRepository =
+                RedisChatMemoryRepository.builder()
+                        .keyPrefix(KEY_PREFIX)
+                        .incrementalSave(true)
+                        .redisTemplate(redis.redisTemplate())
+                        .build();
+        this.messages = Conversations.create(windowSize, messageLength, mix);
+        this.reply = new UserMessage(messages.get(windowSize - 1).getText());
+        repository.saveAll("find", messages);
+        incrementalRepository.saveAll("turn", messages);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        repository.deleteByConversationId("find");
+        repository.deleteByConversationId("save");
+        repository.deleteByConversationId("turn");
+        repository.close();
+        incrementalRepository.close();
+        redis.close();
+    }
+
+    /** Rewrites the whole conversation. */
+    @Benchmark
+    public void saveAll() {
+        repository.saveAll("save", messages);
+    }
+
+    @Benchmark
+    public List<Message> findByConversationId() {
+        return repository.findByConversationId("find");
+    }
+
+    /**
+     * One turn as {@code MessageWindowChatMemory} runs it with incremental save: reads the window,
+     * evicts the oldest message, appends one and saves.
+     */
+    @Benchmark
+    public void appendTurn() {
+        List<Message> window = new ArrayList<>(incrementalRepository.findByConversationId("turn"));
+        window.remove(0);
+        window.add(reply);
+        incrementalRepository.saveAll("turn", window);
+    }
+}
@@ -1,23 +1,57 @@
 package org.springframework.ai.model.chat.memory.repository.redis.autoconfigure;
 
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.redis.MessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.ReactiveRedisChatMemoryRepository;
 import org.springframework.ai.chat.memory.repository.redis.RedisChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.redis.RedisWindowChatMemory;
+import org.springframework.ai.chat.memory.repository.redis.ShardedChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.redis.WriteThroughChatMemoryRepository;
 import org.springframework.ai.model.chat.memory.autoconfigure.ChatMemoryAutoConfiguration;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import reactor.core.publisher.Flux;
 
 /**
- * Auto-configuration for {@link RedisChatMemoryRepository }
+ * Auto-configuration for {@link RedisChatMemoryRepository }, and for {@link
+ * ReactiveRedisChatMemoryRepository} when a reactive Redis template is available. The repository
+ * reports to the {@code ObservationRegistry} and {@code MeterRegistry} of the context, if any. With
+ * {@code write-through} enabled, a primary {@link WriteThroughChatMemoryRepository} caches another
+ * repository of the context, the JDBC one by default, in Redis. With {@code sharding} enabled, a
+ * primary {@link ShardedChatMemoryRepository} spreads conversations over the {@code shards}, the
+ * window chat memory and the reactive repository keeping to the default Redis template. The
+ * reactive repository, which cannot read shared texts nor offloaded payloads, is left out when
+ * {@code dedupe} or {@code offload-payloads} is enabled.
  *
  * @author Cyanty
  * @since 1.0.0
  */
-@AutoConfiguration(after = RedisAutoConfiguration.class, before = ChatMemoryAutoConfiguration.class)
+@AutoConfiguration(
+        after = {RedisAutoConfiguration.class, RedisReactiveAutoConfiguration.class},
+        before = ChatMemoryAutoConfiguration.class)
 @ConditionalOnClass({RedisChatMemoryRepository.class, RedisTemplate.class})
 @EnableConfigurationProperties({RedisChatMemoryRepositoryProperties.class})
 public class RedisChatMemoryRepositoryAutoConfiguration {
@@ -26,12 +60,196 @@ public class RedisChatMemoryRepositoryAutoConfiguration {
     @ConditionalOnMissingBean
     public RedisChatMemoryRepository redisChatMemoryRepository(
             @Qualifier(RedisChatMemoryRepositoryProperties.DEFAULT_REDIS_TEMPLATE) RedisTemplate<String, String> redisTemplate,
-            RedisChatMemoryRepositoryProperties properties) {
+            RedisChatMemoryRepositoryProperties properties,
+            ObjectProvider<MessageCodec> messageCodec,
+            ObjectProvider<ObservationRegistry> observationRegistry,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<TokenCountEstimator> tokenCountEstimator) {
+
+        return buildRepository(
+                redisTemplate,
+                properties,
+                messageCodec,
+                observationRegistry,
+                meterRegistry,
+                tokenCountEstimator);
+    }
+
+    private static RedisChatMemoryRepository buildRepository(
+            RedisTemplate<String, String> redisTemplate,
+            RedisChatMemoryRepositoryProperties properties,
+            ObjectProvider<MessageCodec> messageCodec,
+            ObjectProvider<ObservationRegistry> observationRegistry,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<TokenCountEstimator> tokenCountEstimator) {
 
         return RedisChatMemoryRepository.builder()
                 .keyPrefix(properties.getKeyPrefix())
                 .timeToLive(properties.getTimeToLive())
+                .indexKey(properties.getIndexKey())
+                .incrementalSave(properties.isIncrementalSave())
+                .nearCacheMaxEntries(properties.getNearCacheMaxEntries())
+                .nearCacheMaxBytes(properties.getNearCacheMaxBytes())
+                .nearCacheTimeToLive(properties.getNearCacheTimeToLive())
+                .codec(messageCodec.getIfAvailable(() -> properties.getCodec().create()))
+                .batchSize(properties.getBatchSize())
+                .writeBehind(properties.isWriteBehind())
+                .writeBehindMaxDelay(properties.getWriteBehindMaxDelay())
+                .writeBehindMaxPending(properties.getWriteBehindMaxPending())
+                .observationRegistry(
+                        observationRegistry.getIfUnique(() -> ObservationRegistry.NOOP))
+                .meterRegistry(meterRegistry.getIfUnique())
+                .compression(properties.getCompression())
+                .compressionThreshold(properties.getCompressionThreshold())
+                .storage(properties.getStorage())
+                .cluster(properties.isCluster())
+                .slidingExpiration(properties.isSlidingExpiration())
+                .slidingExpirationInterval(properties.getSlidingExpirationInterval())
+                .tokenCountEstimator(tokenCountEstimator(properties, tokenCountEstimator))
+                .dedupe(properties.isDedupe())
+                .dedupeThreshold(properties.getDedupeThreshold())
+                .dedupeMessageTypes(properties.getDedupeMessageTypes())
+                .dedupeCacheMaxEntries(properties.getDedupeCacheMaxEntries())
+                .offloadPayloads(properties.isOffloadPayloads())
+                .offloadThreshold(properties.getOffloadThreshold())
                 .redisTemplate(redisTemplate)
                 .build();
     }
+
+    private static TokenCountEstimator tokenCountEstimator(
+            RedisChatMemoryRepositoryProperties properties,
+            ObjectProvider<TokenCountEstimator> tokenCountEstimator) {
+        return properties.isTokenEstimates()
+                ? tokenCountEstimator.getIfUnique(JTokkitTokenCountEstimator::new)
+                : null;
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(
+            prefix = RedisChatMemoryRepositoryProperties.CONFIG_PREFIX,
+            name = "write-through",
+            havingValue = "true")
+    public WriteThroughChatMemoryRepository writeThroughChatMemoryRepository(
+            RedisChatMemoryRepository redisChatMemoryRepository,
+            RedisChatMemoryRepositoryProperties properties,
+            BeanFactory beanFactory) {
+
+        return WriteThroughChatMemoryRepository.builder()
+                .cache(redisChatMemoryRepository)
+                .delegate(
+                        beanFactory.getBean(
+                                properties.getWriteThroughDelegate(), ChatMemoryRepository.class))
+                .durability(properties.getWriteThroughDurability())
+                .build();
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(
+            prefix = RedisChatMemoryRepositoryProperties.CONFIG_PREFIX,
+            name = "sharding",
+            havingValue = "true")
+    public ShardedChatMemoryRepository shardedChatMemoryRepository(
+            RedisChatMemoryRepositoryProperties properties,
+            ObjectProvider<MessageCodec> messageCodec,
+            ObjectProvider<ObservationRegistry> observationRegistry,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            ObjectProvider<TokenCountEstimator> tokenCountEstimator,
+            BeanFactory beanFactory) {
+
+        Assert.state(
+                !properties.isWriteThrough(), "sharding cannot be combined with write-through");
+        var builder =
+                ShardedChatMemoryRepository.builder()
+                        .previousShards(properties.getPreviousShards())
+                        .virtualNodes(properties.getShardVirtualNodes());
+        for (String name : properties.getShards()) {
+            builder.shard(
+                    name,
+                    buildRepository(
+                            shardTemplate(beanFactory, name),
+                            properties,
+                            messageCodec,
+                            observationRegistry,
+                            meterRegistry,
+                            tokenCountEstimator));
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisTemplate<String, String> shardTemplate(
+            BeanFactory beanFactory, String name) {
+        Object shard = beanFactory.getBean(name);
+        if (shard instanceof RedisConnectionFactory connectionFactory) {
+            return new StringRedisTemplate(connectionFactory);
+        }
+        Assert.state(
+                shard instanceof RedisTemplate,
+                "Shard " + name + " is neither a RedisTemplate nor a RedisConnectionFactory");
+        return (RedisTemplate<String, String>) shard;
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(ChatMemory.class)
+    @ConditionalOnProperty(
+            prefix = RedisChatMemoryRepositoryProperties.CONFIG_PREFIX,
+            name = "window-chat-memory",
+            havingValue = "true")
+    public RedisWindowChatMemory redisWindowChatMemory(
+            RedisChatMemoryRepository chatMemoryRepository,
+            RedisChatMemoryRepositoryProperties properties) {
+
+        return RedisWindowChatMemory.builder()
+                .chatMemoryRepository(chatMemoryRepository)
+                .maxMessages(properties.getWindowMaxMessages())
+                .build();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({ReactiveRedisTemplate.class, Flux.class})
+    @ConditionalOnBean(name = RedisChatMemoryRepositoryProperties.DEFAULT_REACTIVE_REDIS_TEMPLATE)
+    @ConditionalOnProperty(
+            prefix = RedisChatMemoryRepositoryProperties.CONFIG_PREFIX,
+            name = "storage",
+            havingValue = "list",
+            matchIfMissing = true)
+    @ConditionalOnProperty(
+            prefix = RedisChatMemoryRepositoryProperties.CONFIG_PREFIX,
+            name = "dedupe",
+            havingValue = "false",
+            matchIfMissing = true)
+    @ConditionalOnProperty(
+            prefix = RedisChatMemoryRepositoryProperties.CONFIG_PREFIX,
+            name = "offload-payloads",
+            havingValue = "false",
+            matchIfMissing = true)
+    static class ReactiveRedisChatMemoryRepositoryConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public ReactiveRedisChatMemoryRepository reactiveRedisChatMemoryRepository(
+                @Qualifier(RedisChatMemoryRepositoryProperties.DEFAULT_REACTIVE_REDIS_TEMPLATE) ReactiveRedisTemplate<String, String> redisTemplate,
+                RedisChatMemoryRepositoryProperties properties,
+                ObjectProvider<MessageCodec> messageCodec,
+                ObjectProvider<TokenCountEstimator> tokenCountEstimator) {
+
+            return ReactiveRedisChatMemoryRepository.builder()
+                    .keyPrefix(properties.getKeyPrefix())
+                    .timeToLive(properties.getTimeToLive())
+                    .indexKey(properties.getIndexKey())
+                    .incrementalSave(properties.isIncrementalSave())
+                    .nearCacheMaxEntries(properties.getNearCacheMaxEntries())
+                    .codec(messageCodec.getIfAvailable(() -> properties.getCodec().create()))
+                    .compression(properties.getCompression())
+                    .compressionThreshold(properties.getCompressionThreshold())
+                    .cluster(properties.isCluster())
+                    .tokenCountEstimator(tokenCountEstimator(properties, tokenCountEstimator))
+                    .redisTemplate(redisTemplate)
+                    .build();
+        }
+    }
 }
@@ -1,8 +1,24 @@
 package org.springframework.ai.model.chat.memory.repository.redis.autoconfigure;
 
+import org.springframework.ai.chat.memory.repository.redis.CborMessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.JsonMessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.MessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.MessageCompression;
+import org.springframework.ai.chat.memory.repository.redis.MessageStorage;
 import org.springframework.ai.chat.memory.repository.redis.RedisChatMemoryRepositoryConfig;
+import org.springframework.ai.chat.memory.repository.redis.RedisWindowChatMemory;
+import org.springframework.ai.chat.memory.repository.redis.ShardedChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.redis.SmileMessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.WriteDurability;
+import org.springframework.ai.chat.memory.repository.redis.WriteThroughChatMemoryRepository;
+import org.springframework.ai.chat.messages.MessageType;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 /** Auto-configuration for {@link RedisChatMemoryRepositoryConfig}. */
 @ConfigurationProperties(RedisChatMemoryRepositoryProperties.CONFIG_PREFIX)
 public class RedisChatMemoryRepositoryProperties {
@@ -11,10 +27,131 @@ public class RedisChatMemoryRepositoryProperties {
 
     public static final String DEFAULT_REDIS_TEMPLATE = "stringRedisTemplate";
 
+    public static final String DEFAULT_REACTIVE_REDIS_TEMPLATE = "reactiveStringRedisTemplate";
+
+    public static final String DEFAULT_WRITE_THROUGH_DELEGATE = "jdbcChatMemoryRepository";
+
     private String keyPrefix = RedisChatMemoryRepositoryConfig.DEFAULT_KEY_PREFIX;
 
     private String timeToLive = RedisChatMemoryRepositoryConfig.DEFAULT_TIME_TO_LIVE;
 
+    private String indexKey;
+
+    private boolean incrementalSave = false;
+
+    private int nearCacheMaxEntries = 0;
+
+    private long nearCacheMaxBytes = 0;
+
+    private String nearCacheTimeToLive =
+            RedisChatMemoryRepositoryConfig.DEFAULT_NEAR_CACHE_TIME_TO_LIVE;
+
+    private Codec codec = Codec.JSON;
+
+    private int batchSize = RedisChatMemoryRepositoryConfig.DEFAULT_BATCH_SIZE;
+
+    /** Whether to provide a {@link RedisWindowChatMemory} as the {@code ChatMemory}. */
+    private boolean windowChatMemory = false;
+
+    private int windowMaxMessages = RedisWindowChatMemory.DEFAULT_MAX_MESSAGES;
+
+    private boolean writeBehind = false;
+
+    private String writeBehindMaxDelay =
+            RedisChatMemoryRepositoryConfig.DEFAULT_WRITE_BEHIND_MAX_DELAY;
+
+    private int writeBehindMaxPending =
+            RedisChatMemoryRepositoryConfig.DEFAULT_WRITE_BEHIND_MAX_PENDING;
+
+    /** Compression of the entries larger than {@code compressionThreshold} bytes. */
+    private MessageCompression compression = MessageCompression.NONE;
+
+    private int compressionThreshold =
+            RedisChatMemoryRepositoryConfig.DEFAULT_COMPRESSION_THRESHOLD;
+
+    /**
+     * Redis data type holding the messages of a conversation. The reactive repository and {@link
+     * RedisWindowChatMemory} only support lists.
+     */
+    private MessageStorage storage = MessageStorage.LIST;
+
+    /**
+     * Whether to lay keys out for Redis Cluster, wrapping conversation ids in hash tags. Changes
+     * the keys of existing conversations.
+     */
+    private boolean cluster;
+
+    /** Whether reads refresh the time to live of conversations. Requires a {@code timeToLive}. */
+    private boolean slidingExpiration;
+
+    /**
+     * Shortest time between two expiry refreshes of a conversation, a tenth of the time to live
+     * when not set.
+     */
+    private String slidingExpirationInterval;
+
+    /**
+     * Whether to store the token estimate of each message with it, from the {@code
+     * TokenCountEstimator} bean or JTokkit when there is none, for token budgeted reads.
+     */
+    private boolean tokenEstimates;
+
+    /**
+     * Whether to store the texts of large messages, or of {@code dedupeMessageTypes}, once under a
+     * key named after their SHA-256, shared by every message holding them. Requires a {@code
+     * timeToLive}.
+     */
+    private boolean dedupe;
+
+    /** Size in bytes from which message texts are shared when deduplicating. */
+    private int dedupeThreshold = RedisChatMemoryRepositoryConfig.DEFAULT_DEDUPE_THRESHOLD;
+
+    /** Types of the messages whose texts are shared whatever their size when deduplicating. */
+    private Set<MessageType> dedupeMessageTypes = new HashSet<>();
+
+    /** Maximum number of shared texts kept in the local cache. */
+    private int dedupeCacheMaxEntries =
+            RedisChatMemoryRepositoryConfig.DEFAULT_DEDUPE_CACHE_MAX_ENTRIES;
+
+    /**
+     * Whether to store tool call arguments, tool responses and media data of at least {@code
+     * offloadThreshold} bytes out of line, in a hash per conversation.
+     */
+    private boolean offloadPayloads;
+
+    /** Size in bytes from which payloads are stored out of line. */
+    private int offloadThreshold = RedisChatMemoryRepositoryConfig.DEFAULT_OFFLOAD_THRESHOLD;
+
+    /**
+     * Whether to configure a primary {@link WriteThroughChatMemoryRepository} using Redis as a
+     * cache in front of the {@code writeThroughDelegate} repository.
+     */
+    private boolean writeThrough;
+
+    /** Name of the bean of the repository of record behind the write-through cache. */
+    private String writeThroughDelegate = DEFAULT_WRITE_THROUGH_DELEGATE;
+
+    /** When the writes of the write-through cache reach the delegate repository. */
+    private WriteDurability writeThroughDurability = WriteDurability.SYNC;
+
+    /**
+     * Whether to configure a primary {@link ShardedChatMemoryRepository} spreading conversations
+     * over the {@code shards}.
+     */
+    private boolean sharding;
+
+    /**
+     * Names of the {@code RedisTemplate} or {@code RedisConnectionFactory} beans of the shards,
+     * which also name the shards on the consistent-hash ring.
+     */
+    private List<String> shards = new ArrayList<>();
+
+    /** Names of the shards before the last ones were added, while rebalancing. */
+    private List<String> previousShards = new ArrayList<>();
+
+    /** Points of each shard on the consistent-hash ring. */
+    private int shardVirtualNodes = ShardedChatMemoryRepository.DEFAULT_VIRTUAL_NODES;
+
     public RedisChatMemoryRepositoryProperties() {}
 
     public String getKeyPrefix() {
@@ -32,4 +169,277 @@ public class RedisChatMemoryRepositoryProperties {
     public void setTimeToLive(String timeToLive) {
         this.timeToLive = timeToLive;
     }
+
+    public String getIndexKey() {
+        return indexKey;
+    }
+
+    public void setIndexKey(String indexKey) {
+        this.indexKey = indexKey;
+    }
+
+    public boolean isIncrementalSave() {
+        return incrementalSave;
+    }
+
+    public void setIncrementalSave(boolean incrementalSave) {
+        this.incrementalSave = incrementalSave;
+    }
+
+    public int getNearCacheMaxEntries() {
+        return nearCacheMaxEntries;
+    }
+
+    public void setNearCacheMaxEntries(int nearCacheMaxEntries) {
+        this.nearCacheMaxEntries = nearCacheMaxEntries;
+    }
+
+    public long getNearCacheMaxBytes() {
+        return nearCacheMaxBytes;
+    }
+
+    public void setNearCacheMaxBytes(long nearCacheMaxBytes) {
+        this.nearCacheMaxBytes = nearCacheMaxBytes;
+    }
+
+    public String getNearCacheTimeToLive() {
+        return nearCacheTimeToLive;
+    }
+
+    public void setNearCacheTimeToLive(String nearCacheTimeToLive) {
+        this.nearCacheTimeToLive = nearCacheTimeToLive;
+    }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(Codec codec) {
+        this.codec = codec;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public boolean isWindowChatMemory() {
+        return windowChatMemory;
+    }
+
+    public void setWindowChatMemory(boolean windowChatMemory) {
+        this.windowChatMemory = windowChatMemory;
+    }
+
+    public int getWindowMaxMessages() {
+        return windowMaxMessages;
+    }
+
+    public void setWindowMaxMessages(int windowMaxMessages) {
+        this.windowMaxMessages = windowMaxMessages;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public String getWriteBehindMaxDelay() {
+        return writeBehindMaxDelay;
+    }
+
+    public void setWriteBehindMaxDelay(String writeBehindMaxDelay) {
+        this.writeBehindMaxDelay = writeBehindMaxDelay;
+    }
+
+    public int getWriteBehindMaxPending() {
+        return writeBehindMaxPending;
+    }
+
+    public void setWriteBehindMaxPending(int writeBehindMaxPending) {
+        this.writeBehindMaxPending = writeBehindMaxPending;
+    }
+
+    public MessageCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(MessageCompression compression) {
+        this.compression = compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public MessageStorage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(MessageStorage storage) {
+        this.storage = storage;
+    }
+
+    public boolean isCluster() {
+        return cluster;
+    }
+
+    public void setCluster(boolean cluster) {
+        this.cluster = cluster;
+    }
+
+    public boolean isSlidingExpiration() {
+        return slidingExpiration;
+    }
+
+    public void setSlidingExpiration(boolean slidingExpiration) {
+        this.slidingExpiration = slidingExpiration;
+    }
+
+    public String getSlidingExpirationInterval() {
+        return slidingExpirationInterval;
+    }
+
+    public void setSlidingExpirationInterval(String slidingExpirationInterval) {
+        this.slidingExpirationInterval = slidingExpirationInterval;
+    }
+
+    public boolean isTokenEstimates() {
+        return tokenEstimates;
+    }
+
+    public void setTokenEstimates(boolean tokenEstimates) {
+        this.tokenEstimates = tokenEstimates;
+    }
+
+    public boolean isDedupe() {
+        return dedupe;
+    }
+
+    public void setDedupe(boolean dedupe) {
+        this.dedupe = dedupe;
+    }
+
+    public int getDedupeThreshold() {
+        return dedupeThreshold;
+    }
+
+    public void setDedupeThreshold(int dedupeThreshold) {
+        this.dedupeThreshold = dedupeThreshold;
+    }
+
+    public Set<MessageType> getDedupeMessageTypes() {
+        return dedupeMessageTypes;
+    }
+
+    public void setDedupeMessageTypes(Set<MessageType> dedupeMessageTypes) {
+        this.dedupeMessageTypes = dedupeMessageTypes;
+    }
+
+    public int getDedupeCacheMaxEntries() {
+        return dedupeCacheMaxEntries;
+    }
+
+    public void setDedupeCacheMaxEntries(int dedupeCacheMaxEntries) {
+        this.dedupeCacheMaxEntries = dedupeCacheMaxEntries;
+    }
+
+    public boolean isOffloadPayloads() {
+        return offloadPayloads;
+    }
+
+    public void setOffloadPayloads(boolean offloadPayloads) {
+        this.offloadPayloads = offloadPayloads;
+    }
+
+    public int getOffloadThreshold() {
+        return offloadThreshold;
+    }
+
+    public void setOffloadThreshold(int offloadThreshold) {
+        this.offloadThreshold = offloadThreshold;
+    }
+
+    public boolean isWriteThrough() {
+        return writeThrough;
+    }
+
+    public void setWriteThrough(boolean writeThrough) {
+        this.writeThrough = writeThrough;
+    }
+
+    public String getWriteThroughDelegate() {
+        return writeThroughDelegate;
+    }
+
+    public void setWriteThroughDelegate(String writeThroughDelegate) {
+        this.writeThroughDelegate = writeThroughDelegate;
+    }
+
+    public WriteDurability getWriteThroughDurability() {
+        return writeThroughDurability;
+    }
+
+    public void setWriteThroughDurability(WriteDurability writeThroughDurability) {
+        this.writeThroughDurability = writeThroughDurability;
+    }
+
+    public boolean isSharding() {
+        return sharding;
+    }
+
+    public void setSharding(boolean sharding) {
+        this.sharding = sharding;
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    public void setShards(List<String> shards) {
+        this.shards = shards;
+    }
+
+    public List<String> getPreviousShards() {
+        return previousShards;
+    }
+
+    public void setPreviousShards(List<String> previousShards) {
+        this.previousShards = previousShards;
+    }
+
+    public int getShardVirtualNodes() {
+        return shardVirtualNodes;
+    }
+
+    public void setShardVirtualNodes(int shardVirtualNodes) {
+        this.shardVirtualNodes = shardVirtualNodes;
+    }
+
+    /** Built-in formats of the stored messages, unless a {@link MessageCodec} bean is defined. */
+    public enum Codec {
+        JSON,
+        /** Requires {@code jackson-dataformat-smile}. */
+        SMILE,
+        /** Requires {@code jackson-dataformat-cbor}. */
+        CBOR;
+
+        public MessageCodec create() {
+            return switch (this) {
+                case JSON -> new JsonMessageCodec();
+                case SMILE -> new SmileMessageCodec();
+                case CBOR -> new CborMessageCodec();
+            };
+        }
+    }
 }
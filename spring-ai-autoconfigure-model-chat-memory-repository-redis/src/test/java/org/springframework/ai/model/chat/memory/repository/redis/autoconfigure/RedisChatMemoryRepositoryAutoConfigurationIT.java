@@ -1,21 +1,38 @@
 package org.springframework.ai.model.chat.memory.repository.redis.autoconfigure;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.memory.repository.redis.ReactiveRedisChatMemoryRepository;
 import org.springframework.ai.chat.memory.repository.redis.RedisChatMemoryRepository;
 import org.springframework.ai.chat.memory.repository.redis.RedisChatMemoryRepositoryConfig;
+import org.springframework.ai.chat.memory.repository.redis.RedisWindowChatMemory;
+import org.springframework.ai.chat.memory.repository.redis.ShardedChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.redis.SmileMessageCodec;
+import org.springframework.ai.chat.memory.repository.redis.WriteDurability;
+import org.springframework.ai.chat.memory.repository.redis.WriteThroughChatMemoryRepository;
 import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.model.chat.memory.autoconfigure.ChatMemoryAutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+
 import java.util.List;
 import java.util.UUID;
 
@@ -89,6 +106,177 @@ public class RedisChatMemoryRepositoryAutoConfigurationIT {
                 });
     }
 
+    @Test
+    void useReactiveRepositoryWithReactiveRedis() {
+        this.contextRunner
+                .withPropertyValues("spring.ai.chat.memory.repository.redis.incremental-save=true")
+                .run(
+                        context ->
+                                assertThat(context)
+                                        .doesNotHaveBean(ReactiveRedisChatMemoryRepository.class));
+
+        this.contextRunner
+                .withConfiguration(AutoConfigurations.of(RedisReactiveAutoConfiguration.class))
+                .withPropertyValues("spring.ai.chat.memory.repository.redis.incremental-save=true")
+                .run(
+                        context -> {
+                            var reactiveRepository =
+                                    context.getBean(ReactiveRedisChatMemoryRepository.class);
+                            assertThat(reactiveRepository.getConfig().isIncrementalSave()).isTrue();
+                            assertThat(reactiveRepository.getRedisTemplate())
+                                    .isInstanceOf(ReactiveStringRedisTemplate.class);
+
+                            var conversationId = UUID.randomUUID().toString();
+                            reactiveRepository
+                                    .saveAll(conversationId, List.of(new UserMessage("Message")))
+                                    .block();
+                            assertThat(
+                                            context.getBean(RedisChatMemoryRepository.class)
+                                                    .findByConversationId(conversationId))
+                                    .extracting(Message::getText)
+                                    .containsExactly("Message");
+                        });
+
+        // The reactive repository cannot read shared texts
+        this.contextRunner
+                .withConfiguration(AutoConfigurations.of(RedisReactiveAutoConfiguration.class))
+                .withPropertyValues(
+                        "spring.ai.chat.memory.repository.redis.dedupe=true",
+                        "spring.ai.chat.memory.repository.redis.time-to-live=30m")
+                .run(
+                        context -> {
+                            assertThat(context)
+                                    .doesNotHaveBean(ReactiveRedisChatMemoryRepository.class);
+                            assertThat(
+                                            context.getBean(RedisChatMemoryRepository.class)
+                                                    .getConfig()
+                                                    .isDedupe())
+                                    .isTrue();
+                        });
+
+        // Nor offloaded payloads
+        this.contextRunner
+                .withConfiguration(AutoConfigurations.of(RedisReactiveAutoConfiguration.class))
+                .withPropertyValues(
+                        "spring.ai.chat.memory.repository.redis.offload-payloads=true",
+                        "spring.ai.chat.memory.repository.redis.offload-threshold=1024")
+                .run(
+                        context -> {
+                            assertThat(context)
+                                    .doesNotHaveBean(ReactiveRedisChatMemoryRepository.class);
+                            var config =
+                                    context.getBean(RedisChatMemoryRepository.class).getConfig();
+                            assertThat(config.isOffloadPayloads()).isTrue();
+                            assertThat(config.getOffloadThreshold()).isEqualTo(1024);
+                        });
+    }
+
+    @Test
+    void reportToMeterAndObservationRegistries() {
+        this.contextRunner
+                .withBean(SimpleMeterRegistry.class)
+                .withBean(TestObservationRegistry.class, TestObservationRegistry::create)
+                .run(
+                        context -> {
+                            var chatMemoryRepository =
+                                    context.getBean(RedisChatMemoryRepository.class);
+                            var conversationId = UUID.randomUUID().toString();
+                            chatMemoryRepository.saveAll(
+                                    conversationId, List.of(new UserMessage("Question")));
+
+                            assertThat(
+                                            context.getBean(SimpleMeterRegistry.class)
+                                                    .get("spring.ai.chat.memory.redis.messages")
+                                                    .tag("direction", "write")
+                                                    .counter()
+                                                    .count())
+                                    .isEqualTo(1);
+                            TestObservationRegistryAssert.assertThat(
+                                            context.getBean(TestObservationRegistry.class))
+                                    .hasObservationWithNameEqualTo("spring.ai.chat.memory.redis")
+                                    .that()
+                                    .hasLowCardinalityKeyValue("db.operation.name", "save");
+                        });
+    }
+
+    @Test
+    void useWindowChatMemoryWhenEnabled() {
+        var runner =
+                this.contextRunner.withConfiguration(
+                        AutoConfigurations.of(ChatMemoryAutoConfiguration.class));
+
+        runner.run(
+                context ->
+                        assertThat(context.getBean(ChatMemory.class))
+                                .isInstanceOf(MessageWindowChatMemory.class));
+
+        runner.withPropertyValues(
+                        "spring.ai.chat.memory.repository.redis.window-chat-memory=true",
+                        "spring.ai.chat.memory.repository.redis.window-max-messages=2")
+                .run(
+                        context -> {
+                            var chatMemory = context.getBean(ChatMemory.class);
+                            assertThat(chatMemory).isInstanceOf(RedisWindowChatMemory.class);
+
+                            var conversationId = UUID.randomUUID().toString();
+                            chatMemory.add(
+                                    conversationId,
+                                    List.of(
+                                            new UserMessage("Message 1"),
+                                            new UserMessage("Message 2"),
+                                            new UserMessage("Message 3")));
+                            assertThat(chatMemory.get(conversationId))
+                                    .extracting(Message::getText)
+                                    .containsExactly("Message 2", "Message 3");
+                        });
+    }
+
+    @Test
+    void useWriteThroughCacheWhenEnabled() {
+        var runner =
+                this.contextRunner.withBean(
+                        "jdbcChatMemoryRepository",
+                        ChatMemoryRepository.class,
+                        InMemoryChatMemoryRepository::new);
+
+        runner.run(
+                context ->
+                        assertThat(context)
+                                .doesNotHaveBean(WriteThroughChatMemoryRepository.class));
+
+        runner.withPropertyValues(
+                        "spring.ai.chat.memory.repository.redis.write-through=true",
+                        "spring.ai.chat.memory.repository.redis.write-through-durability=async")
+                .run(
+                        context -> {
+                            var chatMemoryRepository = context.getBean(ChatMemoryRepository.class);
+                            assertThat(chatMemoryRepository)
+                                    .isInstanceOf(WriteThroughChatMemoryRepository.class);
+                            assertThat(
+                                            ((WriteThroughChatMemoryRepository)
+                                                            chatMemoryRepository)
+                                                    .getDurability())
+                                    .isEqualTo(WriteDurability.ASYNC);
+
+                            var conversationId = UUID.randomUUID().toString();
+                            chatMemoryRepository.saveAll(
+                                    conversationId, List.of(new UserMessage("Question")));
+                            ((WriteThroughChatMemoryRepository) chatMemoryRepository).flush();
+                            assertThat(
+                                            context.getBean(
+                                                            "jdbcChatMemoryRepository",
+                                                            ChatMemoryRepository.class)
+                                                    .findByConversationId(conversationId))
+                                    .extracting(Message::getText)
+                                    .containsExactly("Question");
+                            assertThat(
+                                            context.getBean(RedisChatMemoryRepository.class)
+                                                    .findByConversationId(conversationId))
+                                    .extracting(Message::getText)
+                                    .containsExactly("Question");
+                        });
+    }
+
     @Test
     void setCustomConfiguration() {
         final String keyPrefix = "test_chat_memory:";
@@ -99,6 +287,7 @@ public class RedisChatMemoryRepositoryAutoConfigurationIT {
                         "spring.ai.chat.memory.repository.redis.key-prefix=" + keyPrefix)
                 .withPropertyValues(
                         "spring.ai.chat.memory.repository.redis.time-to-live=" + timeToLive)
+                .withPropertyValues("spring.ai.chat.memory.repository.redis.codec=smile")
                 .run(
                         context -> {
                             var chatMemoryRepository =
@@ -107,6 +296,7 @@ public class RedisChatMemoryRepositoryAutoConfigurationIT {
                             var config = chatMemoryRepository.getConfig();
                             assertThat(config.getKeyPrefix()).isEqualTo(keyPrefix);
                             assertThat(config.getTimeToLive()).isEqualTo(3600L);
+                            assertThat(config.getCodec()).isInstanceOf(SmileMessageCodec.class);
                             assertThat(config.getRedisTemplate())
                                     .isInstanceOf(StringRedisTemplate.class);
 
@@ -150,4 +340,44 @@ public class RedisChatMemoryRepositoryAutoConfigurationIT {
                             assertThat(count.size()).isZero();
                         });
     }
+
+    @Test
+    void shardConversationsWhenEnabled() {
+        this.contextRunner
+                .withPropertyValues(
+                        "spring.ai.chat.memory.repository.redis.sharding=true",
+                        "spring.ai.chat.memory.repository.redis.shards=stringRedisTemplate,redisConnectionFactory")
+                .run(
+                        context -> {
+                            var chatMemoryRepository = context.getBean(ChatMemoryRepository.class);
+                            assertThat(chatMemoryRepository)
+                                    .isInstanceOf(ShardedChatMemoryRepository.class);
+                            var sharded = (ShardedChatMemoryRepository) chatMemoryRepository;
+                            assertThat(sharded.getShards())
+                                    .containsOnlyKeys(
+                                            "stringRedisTemplate", "redisConnectionFactory");
+
+                            var conversationId = UUID.randomUUID().toString();
+                            chatMemoryRepository.saveAll(
+                                    conversationId, List.of(new UserMessage("Question")));
+                            assertThat(
+                                            sharded.shardOf(conversationId)
+                                                    .findByConversationId(conversationId))
+                                    .extracting(Message::getText)
+                                    .containsExactly("Question");
+                            chatMemoryRepository.deleteByConversationId(conversationId);
+                        });
+
+        // Both would be the primary repository
+        this.contextRunner
+                .withBean(
+                        "jdbcChatMemoryRepository",
+                        ChatMemoryRepository.class,
+                        InMemoryChatMemoryRepository::new)
+                .withPropertyValues(
+                        "spring.ai.chat.memory.repository.redis.sharding=true",
+                        "spring.ai.chat.memory.repository.redis.shards=stringRedisTemplate",
+                        "spring.ai.chat.memory.repository.redis.write-through=true")
+                .run(context -> assertThat(context).hasFailed());
+    }
 }
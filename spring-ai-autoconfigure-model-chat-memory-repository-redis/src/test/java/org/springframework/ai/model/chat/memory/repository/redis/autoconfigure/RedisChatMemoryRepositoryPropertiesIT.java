@@ -1,7 +1,11 @@
 package org.springframework.ai.model.chat.memory.repository.redis.autoconfigure;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.memory.repository.redis.MessageCompression;
+import org.springframework.ai.chat.memory.repository.redis.MessageStorage;
 import org.springframework.ai.chat.memory.repository.redis.RedisChatMemoryRepositoryConfig;
+import org.springframework.ai.chat.memory.repository.redis.ShardedChatMemoryRepository;
+import org.springframework.ai.chat.memory.repository.redis.WriteDurability;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -14,6 +18,47 @@ public class RedisChatMemoryRepositoryPropertiesIT {
                 .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_KEY_PREFIX);
         assertThat(props.getTimeToLive())
                 .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_TIME_TO_LIVE);
+        assertThat(props.getIndexKey()).isNull();
+        assertThat(props.isIncrementalSave()).isFalse();
+        assertThat(props.getNearCacheMaxEntries()).isZero();
+        assertThat(props.getNearCacheTimeToLive())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_NEAR_CACHE_TIME_TO_LIVE);
+        assertThat(props.getCodec()).isEqualTo(RedisChatMemoryRepositoryProperties.Codec.JSON);
+        assertThat(props.getBatchSize())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_BATCH_SIZE);
+        assertThat(props.isWindowChatMemory()).isFalse();
+        assertThat(props.getWindowMaxMessages()).isEqualTo(20);
+        assertThat(props.isWriteBehind()).isFalse();
+        assertThat(props.getWriteBehindMaxDelay())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_WRITE_BEHIND_MAX_DELAY);
+        assertThat(props.getWriteBehindMaxPending())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_WRITE_BEHIND_MAX_PENDING);
+        assertThat(props.getCompression()).isEqualTo(MessageCompression.NONE);
+        assertThat(props.getCompressionThreshold())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_COMPRESSION_THRESHOLD);
+        assertThat(props.getStorage()).isEqualTo(MessageStorage.LIST);
+        assertThat(props.isCluster()).isFalse();
+        assertThat(props.isSlidingExpiration()).isFalse();
+        assertThat(props.getSlidingExpirationInterval()).isNull();
+        assertThat(props.isTokenEstimates()).isFalse();
+        assertThat(props.isWriteThrough()).isFalse();
+        assertThat(props.getWriteThroughDelegate())
+                .isEqualTo(RedisChatMemoryRepositoryProperties.DEFAULT_WRITE_THROUGH_DELEGATE);
+        assertThat(props.getWriteThroughDurability()).isEqualTo(WriteDurability.SYNC);
+        assertThat(props.isDedupe()).isFalse();
+        assertThat(props.getDedupeThreshold())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_DEDUPE_THRESHOLD);
+        assertThat(props.getDedupeMessageTypes()).isEmpty();
+        assertThat(props.getDedupeCacheMaxEntries())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_DEDUPE_CACHE_MAX_ENTRIES);
+        assertThat(props.isOffloadPayloads()).isFalse();
+        assertThat(props.isSharding()).isFalse();
+        assertThat(props.getShards()).isEmpty();
+        assertThat(props.getPreviousShards()).isEmpty();
+        assertThat(props.getShardVirtualNodes())
+                .isEqualTo(ShardedChatMemoryRepository.DEFAULT_VIRTUAL_NODES);
+        assertThat(props.getOffloadThreshold())
+                .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_OFFLOAD_THRESHOLD);
     }
 
     @Test
@@ -21,8 +66,14 @@ public class RedisChatMemoryRepositoryPropertiesIT {
         var props = new RedisChatMemoryRepositoryProperties();
         props.setKeyPrefix("test_chat_memory:");
         props.setTimeToLive("1h");
+        props.setIndexKey("test_chat_memory_conversations");
+        props.setIncrementalSave(true);
+        props.setCodec(RedisChatMemoryRepositoryProperties.Codec.SMILE);
 
         assertThat(props.getKeyPrefix()).isEqualTo("test_chat_memory:");
         assertThat(props.getTimeToLive()).isEqualTo("1h");
+        assertThat(props.getIndexKey()).isEqualTo("test_chat_memory_conversations");
+        assertThat(props.isIncrementalSave()).isTrue();
+        assertThat(props.getCodec()).isEqualTo(RedisChatMemoryRepositoryProperties.Codec.SMILE);
     }
 }
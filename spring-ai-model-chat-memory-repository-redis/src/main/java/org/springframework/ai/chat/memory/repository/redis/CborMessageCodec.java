@@ -0,0 +1,28 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+/**
+ * Stores messages in the binary CBOR format, recognized by the self-describe tag written in front
+ * of every entry. Requires {@code jackson-dataformat-cbor}.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class CborMessageCodec extends JacksonMessageCodec {
+
+    public CborMessageCodec() {
+        super(
+                new ObjectMapper(
+                        CBORFactory.builder()
+                                .enable(CBORGenerator.Feature.WRITE_TYPE_HEADER)
+                                .build()));
+    }
+
+    @Override
+    public boolean canDecode(byte[] entry) {
+        return startsWith(entry, (byte) 0xD9, (byte) 0xD9, (byte) 0xF7);
+    }
+}
@@ -0,0 +1,66 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Consistent-hash ring routing conversation ids to shard names. Each shard is placed on the ring at
+ * {@code virtualNodes} points, the first 8 bytes of the SHA-256 of its name followed by the index
+ * of the point, and a conversation belongs to the shard of the first point at or after the position
+ * of its id. Adding a shard to {@code n} shards thus only moves about {@code 1/(n+1)} of the
+ * conversations, all to the new shard, and the ring only depends on the names, not on their order.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+final class ConsistentHashRing {
+
+    private final long[] points;
+
+    private final String[] shards;
+
+    ConsistentHashRing(Collection<String> shards, int virtualNodes) {
+        Assert.notEmpty(shards, "shards cannot be empty");
+        Assert.isTrue(virtualNodes > 0, "virtualNodes must be positive");
+        record Point(long position, String shard) {}
+
+        List<Point> ring = new ArrayList<>(shards.size() * virtualNodes);
+        for (String shard : shards) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.add(new Point(position(shard + "#" + i), shard));
+            }
+        }
+        ring.sort(Comparator.comparingLong(Point::position).thenComparing(Point::shard));
+        this.points = ring.stream().mapToLong(Point::position).toArray();
+        this.shards = ring.stream().map(Point::shard).toArray(String[]::new);
+    }
+
+    /** Name of the shard a conversation belongs to. */
+    String shardOf(String conversationId) {
+        int index = Arrays.binarySearch(points, position(conversationId));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return shards[index == points.length ? 0 : index];
+    }
+
+    private static long position(String key) {
+        try {
+            byte[] hash =
+                    MessageDigest.getInstance("SHA-256")
+                            .digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(hash).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
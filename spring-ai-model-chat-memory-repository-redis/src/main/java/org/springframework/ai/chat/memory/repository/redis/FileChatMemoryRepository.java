@@ -0,0 +1,190 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link ChatMemoryRepository} keeping each conversation in a compressed file of a local
+ * directory, meant as the cold tier of a {@link TieredChatMemoryRepository}.
+ *
+ * <p>A file holds the messages of one conversation encoded with a {@link MessageCodec}, each
+ * prefixed with its length, compressed with Deflate as a whole. Files are named after the URL-safe
+ * Base64 of the conversation id and replaced atomically on save, so readers never see a partly
+ * written conversation.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class FileChatMemoryRepository implements ChatMemoryRepository {
+
+    private static final String SUFFIX = ".messages";
+
+    private static final Base64.Encoder NAME_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder NAME_DECODER = Base64.getUrlDecoder();
+
+    private final Path directory;
+
+    private final MessageCodec codec;
+
+    private FileChatMemoryRepository(Path directory, MessageCodec codec) {
+        Assert.notNull(directory, "directory cannot be null");
+        Assert.notNull(codec, "codec cannot be null");
+        this.directory = directory;
+        this.codec = codec;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create directory " + directory, e);
+        }
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(
+                            name ->
+                                    new String(
+                                            NAME_DECODER.decode(
+                                                    name.substring(
+                                                            0, name.length() - SUFFIX.length())),
+                                            StandardCharsets.UTF_8))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list directory " + directory, e);
+        }
+    }
+
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        try (DataInputStream in =
+                new DataInputStream(
+                        new InflaterInputStream(
+                                new BufferedInputStream(
+                                        Files.newInputStream(file(conversationId)))))) {
+            int size = in.readInt();
+            List<Message> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                byte[] entry = new byte[in.readInt()];
+                in.readFully(entry);
+                messages.add(codec.decode(entry));
+            }
+            return messages;
+        } catch (NoSuchFileException e) {
+            return List.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read conversation " + conversationId, e);
+        }
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, ".", ".tmp");
+            Deflater deflater = new Deflater();
+            try (DataOutputStream out =
+                    new DataOutputStream(
+                            new DeflaterOutputStream(
+                                    new BufferedOutputStream(Files.newOutputStream(temp)),
+                                    deflater))) {
+                out.writeInt(messages.size());
+                for (Message message : messages) {
+                    byte[] entry = codec.encode(message);
+                    out.writeInt(entry.length);
+                    out.write(entry);
+                }
+            } finally {
+                deflater.end();
+            }
+            Files.move(
+                    temp,
+                    file(conversationId),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write conversation " + conversationId, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    // Left for the next cleanup of the directory
+                }
+            }
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        try {
+            Files.deleteIfExists(file(conversationId));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete conversation " + conversationId, e);
+        }
+    }
+
+    private Path file(String conversationId) {
+        return directory.resolve(
+                NAME_ENCODER.encodeToString(conversationId.getBytes(StandardCharsets.UTF_8))
+                        + SUFFIX);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** FileChatMemoryRepository Builder */
+    public static final class Builder {
+
+        private Path directory;
+
+        private MessageCodec codec = new JsonMessageCodec();
+
+        private Builder() {}
+
+        /** Directory of the conversation files, created if missing. */
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /** Format of the stored messages, JSON by default. */
+        public Builder codec(MessageCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        public FileChatMemoryRepository build() {
+            return new FileChatMemoryRepository(this.directory, this.codec);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Base class for codecs writing messages with a Jackson {@link ObjectMapper}, whatever the data
+ * format of its factory.
+ *
+ * <p>Messages are written field by field: their type, text and metadata, then the tool calls of
+ * assistant messages, the responses of tool response messages and the media of user and assistant
+ * messages, media data as binary or as the URL it was given. Entries written by earlier versions
+ * through the bean properties of the messages are read as well.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public abstract class JacksonMessageCodec implements MessageCodec {
+
+    private final ObjectMapper objectMapper;
+
+    protected JacksonMessageCodec(ObjectMapper objectMapper) {
+        Assert.notNull(objectMapper, "objectMapper cannot be null");
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public byte[] encode(Message message) {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(entry)) {
+            generator.writeStartObject();
+            generator.writeStringField("messageType", message.getMessageType().name());
+            generator.writeStringField("text", message.getText());
+            generator.writeFieldName("metadata");
+            generator.writeObject(message.getMetadata());
+            if (message instanceof AssistantMessage assistantMessage
+                    && assistantMessage.hasToolCalls()) {
+                generator.writeArrayFieldStart("toolCalls");
+                for (AssistantMessage.ToolCall toolCall : assistantMessage.getToolCalls()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", toolCall.id());
+                    generator.writeStringField("type", toolCall.type());
+                    generator.writeStringField("name", toolCall.name());
+                    generator.writeStringField("arguments", toolCall.arguments());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            if (message instanceof ToolResponseMessage toolResponseMessage) {
+                generator.writeArrayFieldStart("responses");
+                for (ToolResponseMessage.ToolResponse response :
+                        toolResponseMessage.getResponses()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("id", response.id());
+                    generator.writeStringField("name", response.name());
+                    generator.writeStringField("responseData", response.responseData());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            if (message instanceof MediaContent content && !content.getMedia().isEmpty()) {
+                generator.writeArrayFieldStart("media");
+                for (Media media : content.getMedia()) {
+                    writeMedia(generator, media);
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new RuntimeException("Error serializing message", e);
+        }
+        return entry.toByteArray();
+    }
+
+    private static void writeMedia(JsonGenerator generator, Media media) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("id", media.getId());
+        generator.writeStringField("name", media.getName());
+        generator.writeStringField("mimeType", media.getMimeType().toString());
+        if (media.getData() instanceof byte[] bytes) {
+            generator.writeFieldName("bytes");
+            generator.writeBinary(bytes);
+        } else {
+            generator.writeStringField("data", media.getData().toString());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Decodes the entry in a single pass over the parser's tokens, building the message without an
+     * intermediate tree. The metadata keeps the timestamp the message was stored with.
+     */
+    @Override
+    public Message decode(byte[] entry) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(entry)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected a message object");
+            }
+            MessageType messageType = MessageType.USER;
+            String text = null;
+            Map<String, Object> metadata = Map.of();
+            List<AssistantMessage.ToolCall> toolCalls = List.of();
+            List<ToolResponseMessage.ToolResponse> responses = List.of();
+            List<Media> media = List.of();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (field) {
+                    case "messageType" -> messageType =
+                            MessageType.valueOf(parser.getText().toUpperCase());
+                    case "text" -> text = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                    case "metadata" -> {
+                        if (token == JsonToken.START_OBJECT) {
+                            metadata = readObject(parser);
+                        }
+                    }
+                    case "toolCalls" -> {
+                        if (token == JsonToken.START_ARRAY) {
+                            toolCalls = new ArrayList<>();
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                Map<String, Object> toolCall = readObject(parser);
+                                toolCalls.add(
+                                        new AssistantMessage.ToolCall(
+                                                (String) toolCall.get("id"),
+                                                (String) toolCall.get("type"),
+                                                (String) toolCall.get("name"),
+                                                (String) toolCall.get("arguments")));
+                            }
+                        }
+                    }
+                    case "responses" -> {
+                        if (token == JsonToken.START_ARRAY) {
+                            responses = new ArrayList<>();
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                Map<String, Object> response = readObject(parser);
+                                responses.add(
+                                        new ToolResponseMessage.ToolResponse(
+                                                (String) response.get("id"),
+                                                (String) response.get("name"),
+                                                (String) response.get("responseData")));
+                            }
+                        }
+                    }
+                    case "media" -> {
+                        if (token == JsonToken.START_ARRAY) {
+                            media = new ArrayList<>();
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                media.add(readMedia(parser));
+                            }
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            return toMessage(messageType, text, metadata, toolCalls, responses, media);
+        } catch (IOException e) {
+            throw new RuntimeException("Error deserializing message", e);
+        }
+    }
+
+    /**
+     * Reads a media object, its data either binary or a URL. Earlier versions wrote the mime type
+     * as an object and the binary data twice, as {@code data} and {@code dataAsByteArray}.
+     */
+    @SuppressWarnings("unchecked")
+    private static Media readMedia(JsonParser parser) throws IOException {
+        Media.Builder media = Media.builder();
+        Object data = null;
+        byte[] bytes = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "id" -> media.id(parser.getText());
+                case "name" -> media.name(parser.getText());
+                case "mimeType" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        Map<String, Object> mimeType = readObject(parser);
+                        media.mimeType(
+                                new MimeType(
+                                        (String) mimeType.get("type"),
+                                        (String) mimeType.get("subtype"),
+                                        (Map<String, String>)
+                                                mimeType.getOrDefault("parameters", Map.of())));
+                    } else {
+                        media.mimeType(MimeType.valueOf(parser.getText()));
+                    }
+                }
+                case "bytes", "dataAsByteArray" -> bytes = parser.getBinaryValue();
+                case "data" -> data = readValue(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return media.data(bytes != null ? bytes : data).build();
+    }
+
+    /** Messages copy their metadata, so the decoded map is handed over as is. */
+    private static Message toMessage(
+            MessageType messageType,
+            String text,
+            Map<String, Object> metadata,
+            List<AssistantMessage.ToolCall> toolCalls,
+            List<ToolResponseMessage.ToolResponse> responses,
+            List<Media> media) {
+        return switch (messageType) {
+            case ASSISTANT -> new AssistantMessage(text, metadata, toolCalls, media);
+            case USER -> UserMessage.builder()
+                    .text(text != null ? text : "")
+                    .media(media)
+                    .metadata(metadata)
+                    .build();
+            case SYSTEM -> SystemMessage.builder()
+                    .text(text != null ? text : "")
+                    .metadata(metadata)
+                    .build();
+            case TOOL -> new ToolResponseMessage(responses, metadata);
+        };
+    }
+
+    private static Map<String, Object> readObject(JsonParser parser) throws IOException {
+        Map<String, Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            map.put(name, readValue(parser));
+        }
+        return map;
+    }
+
+    /** Reads the current value into the types Jackson's untyped deserializer would produce. */
+    private static Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        return switch (token) {
+            case START_OBJECT -> readObject(parser);
+            case START_ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readValue(parser));
+                }
+                yield list;
+            }
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NUMBER_INT -> parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+            case VALUE_TRUE -> Boolean.TRUE;
+            case VALUE_FALSE -> Boolean.FALSE;
+            case VALUE_EMBEDDED_OBJECT -> parser.getEmbeddedObject();
+            case VALUE_NULL -> null;
+            default -> throw new JsonParseException(parser, "Unexpected token " + token);
+        };
+    }
+
+    /** Whether the entry starts with the given marker bytes. */
+    protected static boolean startsWith(byte[] entry, byte... marker) {
+        if (entry.length < marker.length) {
+            return false;
+        }
+        for (int i = 0; i < marker.length; i++) {
+            if (entry[i] != marker[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Stores messages as JSON text, the format written by earlier versions of this repository.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class JsonMessageCodec extends JacksonMessageCodec {
+
+    public JsonMessageCodec() {
+        super(new ObjectMapper());
+    }
+
+    @Override
+    public boolean canDecode(byte[] entry) {
+        return startsWith(entry, (byte) '{');
+    }
+}
@@ -0,0 +1,25 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.ai.chat.messages.Message;
+
+/**
+ * Converts chat messages to and from the entries stored in a conversation list.
+ *
+ * <p>Entries written by different codecs may share a list, for example after switching the
+ * configured format, so every codec must recognize its own entries from their leading bytes.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ * @see JsonMessageCodec
+ * @see SmileMessageCodec
+ * @see CborMessageCodec
+ */
+public interface MessageCodec {
+
+    byte[] encode(Message message);
+
+    Message decode(byte[] entry);
+
+    /** Whether the entry carries the format marker of this codec. */
+    boolean canDecode(byte[] entry);
+}
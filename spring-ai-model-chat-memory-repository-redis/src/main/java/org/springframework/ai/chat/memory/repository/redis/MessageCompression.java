@@ -0,0 +1,18 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+/**
+ * Compression of the stored entries larger than {@link
+ * RedisChatMemoryRepositoryConfig#getCompressionThreshold()}. Compressed entries carry a header
+ * naming the algorithm, so they are read back whatever the configured compression.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public enum MessageCompression {
+
+    /** Entries are stored as encoded by the codec. */
+    NONE,
+
+    /** Deflate of the JDK at its fastest level, which already shrinks text several times. */
+    DEFLATE
+}
@@ -0,0 +1,987 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encoding and decoding of the entries of a conversation list, and the arguments of {@code
+ * save_messages.lua}, shared by the blocking and the reactive repository.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+final class MessageEntries {
+
+    static final RedisScript<Long> SAVE_MESSAGES_SCRIPT =
+            RedisScript.of(
+                    new ClassPathResource("save_messages.lua", MessageEntries.class), Long.class);
+
+    static final RedisScript<Long> SAVE_STREAM_SCRIPT =
+            RedisScript.of(
+                    new ClassPathResource("save_stream.lua", MessageEntries.class), Long.class);
+
+    static final RedisScript<List> TOKEN_WINDOW_SCRIPT =
+            RedisScript.of(
+                    new ClassPathResource("token_window.lua", MessageEntries.class), List.class);
+
+    static final RedisScript<List> FIND_SINCE_SCRIPT =
+            RedisScript.of(
+                    new ClassPathResource("find_since.lua", MessageEntries.class), List.class);
+
+    /** Field of a stream entry holding the message entry, see {@code save_stream.lua}. */
+    static final byte[] STREAM_FIELD = bytes("m");
+
+    /**
+     * Leading byte of entries starting with a header, followed by its kind. Neither the codecs nor
+     * the value serializers of earlier versions start an entry with it.
+     */
+    static final byte HEADER = 0x00;
+
+    /** Header of an entry compressed with Deflate, followed by the zlib stream. */
+    private static final byte DEFLATE = 0x01;
+
+    /**
+     * Header of an entry carrying the token estimate of its message as a 4 byte big endian integer,
+     * followed by the entry itself, see {@code token_window.lua}.
+     */
+    private static final byte TOKENS = 0x02;
+
+    private static final int TOKENS_HEADER_LENGTH = 6;
+
+    /**
+     * Header of every entry, carrying the sequence number of its message within the conversation as
+     * an 8 byte big endian integer, followed by the entry itself. Entries are encoded with the
+     * sequence of their message, or {@code 0} for new messages, to which the save scripts assign
+     * the next sequence of the conversation.
+     */
+    private static final byte SEQUENCE = 0x03;
+
+    private static final int SEQUENCE_HEADER_LENGTH = 10;
+
+    /**
+     * Header of an entry whose message text is stored apart and shared with the messages of any
+     * conversation holding the same text, followed by the SHA-256 of the text and the entry of the
+     * message without its text, see {@link SharedTexts}.
+     */
+    private static final byte SHARED_TEXT = 0x04;
+
+    private static final int SHARED_TEXT_HEADER_LENGTH = 34;
+
+    /**
+     * Header of an entry whose large payloads are stored out of line in the payload hash of its
+     * conversation, followed by their number as a 2 byte big endian integer, a reference to each
+     * and the entry of the message holding empty placeholders instead. A reference is the 2 byte
+     * index of the payload among those of its message, see {@link #payloads(Message)}, followed by
+     * the SHA-256 of its bytes naming its field in the hash, see {@code save_messages.lua}.
+     */
+    private static final byte PAYLOADS = 0x05;
+
+    private static final int PAYLOADS_HEADER_LENGTH = 4;
+
+    private static final int PAYLOAD_REFERENCE_LENGTH = 34;
+
+    /**
+     * Header marking the entry of a system message, followed by the possibly compressed entry
+     * itself, so that {@code window_messages.lua} keeps system messages when trimming a window.
+     */
+    private static final byte SYSTEM = 0x06;
+
+    private static final int SYSTEM_HEADER_LENGTH = 2;
+
+    private final MessageCodec codec;
+
+    private final MessageStorage storage;
+
+    private final MessageCompression compression;
+
+    private final int compressionThreshold;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final boolean dedupe;
+
+    private final int dedupeThreshold;
+
+    private final Set<MessageType> dedupeMessageTypes;
+
+    /** Store of the shared texts, {@code null} when they cannot be read. */
+    private final SharedTexts sharedTexts;
+
+    private final boolean offloadPayloads;
+
+    private final int offloadThreshold;
+
+    /** Reader of the payloads stored out of line, {@code null} when they cannot be read. */
+    private final MessagePayloads payloads;
+
+    private final JsonMessageCodec jsonCodec = new JsonMessageCodec();
+
+    /** Codecs tried in order when reading, starting with the configured one. */
+    private final List<MessageCodec> decoders;
+
+    private final Function<byte[], Object> legacyReader;
+
+    /**
+     * Entries that neither share message texts nor read shared ones, and keep their payloads
+     * inline.
+     *
+     * @param config configuration of the codec and compression writing new entries
+     * @param legacyReader reads entries written through the template's value serializer by earlier
+     *     versions
+     */
+    MessageEntries(RedisChatMemoryRepositoryConfig config, Function<byte[], Object> legacyReader) {
+        this(config, legacyReader, null, null);
+    }
+
+    /**
+     * @param sharedTexts store of the texts shared when {@link
+     *     RedisChatMemoryRepositoryConfig#isDedupe() deduplicating}
+     * @param payloads reader of the payloads stored out of line when {@link
+     *     RedisChatMemoryRepositoryConfig#isOffloadPayloads() offloading}
+     */
+    MessageEntries(
+            RedisChatMemoryRepositoryConfig config,
+            Function<byte[], Object> legacyReader,
+            SharedTexts sharedTexts,
+            MessagePayloads payloads) {
+        this.codec = config.getCodec();
+        this.storage = config.getStorage();
+        this.compression = config.getCompression();
+        this.compressionThreshold = config.getCompressionThreshold();
+        this.tokenCountEstimator = config.getTokenCountEstimator();
+        this.dedupe = config.isDedupe() && sharedTexts != null;
+        this.dedupeThreshold = config.getDedupeThreshold();
+        this.dedupeMessageTypes = config.getDedupeMessageTypes();
+        this.sharedTexts = sharedTexts;
+        this.offloadPayloads = config.isOffloadPayloads() && payloads != null;
+        this.offloadThreshold = config.getOffloadThreshold();
+        this.payloads = payloads;
+        this.decoders = decoders(codec);
+        this.legacyReader = legacyReader;
+    }
+
+    private List<MessageCodec> decoders(MessageCodec codec) {
+        List<MessageCodec> decoders = new ArrayList<>();
+        decoders.add(codec);
+        if (!(codec instanceof JsonMessageCodec)) {
+            decoders.add(jsonCodec);
+        }
+        ClassLoader classLoader = MessageEntries.class.getClassLoader();
+        if (!(codec instanceof SmileMessageCodec)
+                && ClassUtils.isPresent(
+                        "com.fasterxml.jackson.dataformat.smile.SmileFactory", classLoader)) {
+            decoders.add(new SmileMessageCodec());
+        }
+        if (!(codec instanceof CborMessageCodec)
+                && ClassUtils.isPresent(
+                        "com.fasterxml.jackson.dataformat.cbor.CBORFactory", classLoader)) {
+            decoders.add(new CborMessageCodec());
+        }
+        return decoders;
+    }
+
+    /**
+     * Encodes a message, storing its text apart when deduplicating and the text qualifies, and its
+     * large payloads out of line when offloading. The shared texts must be {@link #store(Map)
+     * stored} before the entries referring to them, and the payloads written along with them, see
+     * {@link #saveScriptArgs}.
+     *
+     * @param texts collects the shared texts by hash, {@code null} to keep every text inline
+     * @param payloads collects the payloads stored out of line by the hex SHA-256 naming their
+     *     field, encoded, {@code null} to keep every payload inline
+     */
+    byte[] encode(Message message, Map<String, String> texts, Map<String, byte[]> payloads) {
+        message.getMetadata().remove(RedisChatMemoryRepository.ENTRY_DIGEST);
+        message.getMetadata().remove(RedisChatMemoryRepository.ENTRY_ID);
+        // Rewrites of a message keep its id and the time it was first stored
+        message.getMetadata()
+                .putIfAbsent(RedisChatMemoryRepository.MESSAGE_ID, UUID.randomUUID().toString());
+        message.getMetadata().putIfAbsent("timestamp", Instant.now().toString());
+        String sharedText = texts != null ? sharedText(message) : null;
+        Map<Integer, byte[]> offloaded = payloads != null ? offloaded(message) : Map.of();
+        Object sequence = message.getMetadata().remove(RedisChatMemoryRepository.SEQUENCE);
+        byte[] entry;
+        try {
+            Message encoded = message;
+            if (!offloaded.isEmpty()) {
+                Map<Integer, byte[]> placeholders = new HashMap<>();
+                offloaded.keySet().forEach(slot -> placeholders.put(slot, new byte[0]));
+                encoded = withPayloads(encoded, placeholders);
+            }
+            entry = codec.encode(sharedText != null ? copy(encoded, "") : encoded);
+        } finally {
+            if (sequence != null) {
+                message.getMetadata().put(RedisChatMemoryRepository.SEQUENCE, sequence);
+            }
+        }
+        byte[] uncompressed = entry;
+        if (compression == MessageCompression.DEFLATE && entry.length > compressionThreshold) {
+            entry = deflate(entry);
+        }
+        boolean compressed = entry != uncompressed;
+        if (message.getMessageType() == MessageType.SYSTEM) {
+            entry = withSystem(entry);
+        }
+        if (sharedText != null) {
+            String hash = SharedTexts.hash(sharedText);
+            texts.put(hash, sharedText);
+            entry = withSharedText(entry, HexFormat.of().parseHex(hash));
+        }
+        if (!offloaded.isEmpty()) {
+            List<Integer> slots = new ArrayList<>(offloaded.keySet());
+            List<byte[]> hashes = new ArrayList<>(slots.size());
+            for (int slot : slots) {
+                byte[] payload = offloaded.get(slot);
+                byte[] hash = SharedTexts.sha256(payload);
+                hashes.add(hash);
+                payloads.put(
+                        HexFormat.of().formatHex(hash),
+                        encodeBlob(payload, compression, compressionThreshold));
+            }
+            entry = withPayloadReferences(entry, slots, hashes);
+        }
+        if (tokenCountEstimator != null || sharedText != null || !offloaded.isEmpty()) {
+            // Outside the compressed entry, so that scripts read it without decompressing it. The
+            // size of an entry sharing its text or payloads tells nothing of its tokens, so it
+            // always has one.
+            entry = withTokens(entry, estimateTokens(message));
+        } else if (compressed) {
+            // Nor does the size of a compressed entry: count its size before compression, as
+            // token_window.lua counts the entries without a token header
+            entry = withTokens(entry, (uncompressed.length + 3) / 4);
+        }
+        return withSequence(entry, sequence instanceof Number number ? number.longValue() : 0);
+    }
+
+    /** Returns the text of a message if it is to be shared, {@code null} to keep it inline. */
+    private String sharedText(Message message) {
+        if (!dedupe) {
+            return null;
+        }
+        String text = message.getText();
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        return dedupeMessageTypes.contains(message.getMessageType())
+                        || MessageEntries.bytes(text).length >= dedupeThreshold
+                ? text
+                : null;
+    }
+
+    /** Writes the texts shared by encoded entries, see {@link SharedTexts#store(Map)}. */
+    void store(Map<String, String> texts) {
+        if (!texts.isEmpty()) {
+            sharedTexts.store(texts);
+        }
+    }
+
+    /**
+     * Refreshes the expiry of the texts shared by conversations whose expiry was just set or
+     * refreshed, see {@link SharedTexts#refresh(Collection)}.
+     */
+    void refreshTexts(Collection<String> conversationIds) {
+        if (sharedTexts != null && !conversationIds.isEmpty()) {
+            sharedTexts.refresh(conversationIds);
+        }
+    }
+
+    private static byte[] withSystem(byte[] entry) {
+        byte[] withSystem = new byte[SYSTEM_HEADER_LENGTH + entry.length];
+        withSystem[0] = HEADER;
+        withSystem[1] = SYSTEM;
+        System.arraycopy(entry, 0, withSystem, SYSTEM_HEADER_LENGTH, entry.length);
+        return withSystem;
+    }
+
+    private static byte[] withSharedText(byte[] entry, byte[] hash) {
+        byte[] withSharedText = new byte[SHARED_TEXT_HEADER_LENGTH + entry.length];
+        withSharedText[0] = HEADER;
+        withSharedText[1] = SHARED_TEXT;
+        System.arraycopy(hash, 0, withSharedText, 2, hash.length);
+        System.arraycopy(entry, 0, withSharedText, SHARED_TEXT_HEADER_LENGTH, entry.length);
+        return withSharedText;
+    }
+
+    /** Returns the payloads of a message large enough to be stored out of line, by index. */
+    private Map<Integer, byte[]> offloaded(Message message) {
+        if (!offloadPayloads) {
+            return Map.of();
+        }
+        Map<Integer, byte[]> offloaded = new LinkedHashMap<>();
+        List<Object> payloads = payloads(message);
+        for (int slot = 0; slot < payloads.size(); slot++) {
+            Object payload = payloads.get(slot);
+            byte[] bytes =
+                    payload instanceof byte[] data
+                            ? data
+                            : payload != null ? bytes(payload.toString()) : null;
+            if (bytes != null && bytes.length > 0 && bytes.length >= offloadThreshold) {
+                offloaded.put(slot, bytes);
+            }
+        }
+        Assert.state(offloaded.size() <= 0xffff, "Too many payloads in a message");
+        return offloaded;
+    }
+
+    /**
+     * Payloads of a message that may be stored out of line, in the order of their indexes: the
+     * arguments of its tool calls, its tool responses, then the data of its media.
+     */
+    private static List<Object> payloads(Message message) {
+        List<Object> payloads = new ArrayList<>();
+        if (message instanceof AssistantMessage assistantMessage) {
+            assistantMessage.getToolCalls().forEach(toolCall -> payloads.add(toolCall.arguments()));
+        }
+        if (message instanceof ToolResponseMessage toolResponseMessage) {
+            toolResponseMessage
+                    .getResponses()
+                    .forEach(response -> payloads.add(response.responseData()));
+        }
+        if (message instanceof MediaContent content) {
+            content.getMedia().forEach(media -> payloads.add(media.getData()));
+        }
+        return payloads;
+    }
+
+    /**
+     * Copies a message with its own metadata and some of its {@link #payloads(Message) payloads}
+     * replaced, binary media data by the bytes given and other payloads by their UTF-8 text.
+     *
+     * @param replaced bytes of the replaced payloads by index
+     */
+    private static Message withPayloads(Message message, Map<Integer, byte[]> replaced) {
+        int[] slot = {0};
+        Function<Object, Object> payload =
+                value -> {
+                    byte[] bytes = replaced.get(slot[0]++);
+                    if (bytes == null) {
+                        return value;
+                    }
+                    return value instanceof byte[]
+                            ? bytes
+                            : new String(bytes, StandardCharsets.UTF_8);
+                };
+        Map<String, Object> metadata = new HashMap<>(message.getMetadata());
+        return switch (message.getMessageType()) {
+            case ASSISTANT -> {
+                var assistantMessage = (AssistantMessage) message;
+                List<AssistantMessage.ToolCall> toolCalls =
+                        assistantMessage.getToolCalls().stream()
+                                .map(
+                                        toolCall ->
+                                                new AssistantMessage.ToolCall(
+                                                        toolCall.id(),
+                                                        toolCall.type(),
+                                                        toolCall.name(),
+                                                        (String)
+                                                                payload.apply(
+                                                                        toolCall.arguments())))
+                                .toList();
+                yield new AssistantMessage(
+                        assistantMessage.getText(),
+                        metadata,
+                        toolCalls,
+                        withPayloads(assistantMessage.getMedia(), payload));
+            }
+            case USER -> UserMessage.builder()
+                    .text(message.getText())
+                    .media(withPayloads(((UserMessage) message).getMedia(), payload))
+                    .metadata(metadata)
+                    .build();
+            case SYSTEM -> SystemMessage.builder()
+                    .text(message.getText())
+                    .metadata(metadata)
+                    .build();
+            case TOOL -> new ToolResponseMessage(
+                    ((ToolResponseMessage) message)
+                            .getResponses().stream()
+                                    .map(
+                                            response ->
+                                                    new ToolResponseMessage.ToolResponse(
+                                                            response.id(),
+                                                            response.name(),
+                                                            (String)
+                                                                    payload.apply(
+                                                                            response
+                                                                                    .responseData())))
+                                    .toList(),
+                    metadata);
+        };
+    }
+
+    private static List<Media> withPayloads(List<Media> media, Function<Object, Object> payload) {
+        return media.stream()
+                .map(
+                        item ->
+                                Media.builder()
+                                        .mimeType(item.getMimeType())
+                                        .data(payload.apply(item.getData()))
+                                        .id(item.getId())
+                                        .name(item.getName())
+                                        .build())
+                .toList();
+    }
+
+    private static byte[] withPayloadReferences(
+            byte[] entry, List<Integer> slots, List<byte[]> hashes) {
+        int headerLength = PAYLOADS_HEADER_LENGTH + slots.size() * PAYLOAD_REFERENCE_LENGTH;
+        byte[] withPayloads = new byte[headerLength + entry.length];
+        withPayloads[0] = HEADER;
+        withPayloads[1] = PAYLOADS;
+        withPayloads[2] = (byte) (slots.size() >>> 8);
+        withPayloads[3] = (byte) slots.size();
+        for (int i = 0; i < slots.size(); i++) {
+            int offset = PAYLOADS_HEADER_LENGTH + i * PAYLOAD_REFERENCE_LENGTH;
+            withPayloads[offset] = (byte) (slots.get(i) >>> 8);
+            withPayloads[offset + 1] = (byte) (int) slots.get(i);
+            System.arraycopy(hashes.get(i), 0, withPayloads, offset + 2, 32);
+        }
+        System.arraycopy(entry, 0, withPayloads, headerLength, entry.length);
+        return withPayloads;
+    }
+
+    private static byte[] withSequence(byte[] entry, long sequence) {
+        byte[] withSequence = new byte[SEQUENCE_HEADER_LENGTH + entry.length];
+        withSequence[0] = HEADER;
+        withSequence[1] = SEQUENCE;
+        for (int i = 0; i < 8; i++) {
+            withSequence[2 + i] = (byte) (sequence >>> (56 - 8 * i));
+        }
+        System.arraycopy(entry, 0, withSequence, SEQUENCE_HEADER_LENGTH, entry.length);
+        return withSequence;
+    }
+
+    private static byte[] withTokens(byte[] entry, int tokens) {
+        byte[] withTokens = new byte[TOKENS_HEADER_LENGTH + entry.length];
+        withTokens[0] = HEADER;
+        withTokens[1] = TOKENS;
+        withTokens[2] = (byte) (tokens >>> 24);
+        withTokens[3] = (byte) (tokens >>> 16);
+        withTokens[4] = (byte) (tokens >>> 8);
+        withTokens[5] = (byte) tokens;
+        System.arraycopy(entry, 0, withTokens, TOKENS_HEADER_LENGTH, entry.length);
+        return withTokens;
+    }
+
+    /**
+     * Estimates the tokens of a message with the configured estimator, counting its media, tool
+     * calls and tool responses as well, or as a quarter of its characters without an estimator.
+     */
+    int estimateTokens(Message message) {
+        int tokens =
+                tokenCountEstimator != null && message instanceof MediaContent content
+                        ? tokenCountEstimator.estimate(content)
+                        : estimateTokens(message.getText());
+        if (message instanceof AssistantMessage assistantMessage) {
+            for (AssistantMessage.ToolCall toolCall : assistantMessage.getToolCalls()) {
+                tokens += estimateTokens(toolCall.name()) + estimateTokens(toolCall.arguments());
+            }
+        } else if (message instanceof ToolResponseMessage toolResponseMessage) {
+            for (ToolResponseMessage.ToolResponse response : toolResponseMessage.getResponses()) {
+                tokens += estimateTokens(response.name()) + estimateTokens(response.responseData());
+            }
+        }
+        return tokens;
+    }
+
+    private int estimateTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return tokenCountEstimator != null
+                ? tokenCountEstimator.estimate(text)
+                : (text.length() + 3) / 4;
+    }
+
+    /** Compresses an entry, unless it does not get any smaller. */
+    static byte[] deflate(byte[] entry) {
+        if (entry.length <= 2) {
+            return entry;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(entry);
+            deflater.finish();
+            byte[] compressed = new byte[entry.length];
+            compressed[0] = HEADER;
+            compressed[1] = DEFLATE;
+            int length = 2 + deflater.deflate(compressed, 2, compressed.length - 2);
+            return deflater.finished() ? Arrays.copyOf(compressed, length) : entry;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] entry) {
+        if (entry.length < 2 || entry[1] != DEFLATE) {
+            throw new IllegalStateException("Unrecognized message entry compression");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(entry, 2, entry.length - 2);
+            ByteArrayOutputStream decompressed = new ByteArrayOutputStream(entry.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed message entry");
+                }
+                decompressed.write(buffer, 0, length);
+            }
+            return decompressed.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed message entry", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Encodes a value stored apart from the entries, a shared text or a payload, compressed with
+     * Deflate above the compression threshold. Values starting with a NUL byte are prefixed with a
+     * header, so that they cannot be mistaken for compressed ones.
+     */
+    static byte[] encodeBlob(byte[] bytes, MessageCompression compression, int threshold) {
+        if (compression == MessageCompression.DEFLATE && bytes.length > threshold) {
+            byte[] compressed = deflate(bytes);
+            if (compressed != bytes) {
+                return compressed;
+            }
+        }
+        if (bytes.length > 0 && bytes[0] == HEADER) {
+            byte[] prefixed = new byte[bytes.length + 2];
+            prefixed[0] = HEADER;
+            prefixed[1] = HEADER;
+            System.arraycopy(bytes, 0, prefixed, 2, bytes.length);
+            return prefixed;
+        }
+        return bytes;
+    }
+
+    /** Decodes a value {@link #encodeBlob encoded} apart from the entries. */
+    static byte[] decodeBlob(byte[] value) {
+        if (value.length >= 2 && value[0] == HEADER) {
+            return value[1] == HEADER ? Arrays.copyOfRange(value, 2, value.length) : inflate(value);
+        }
+        return value;
+    }
+
+    /**
+     * Decodes an entry holding its text and payloads inline.
+     *
+     * @throws IllegalStateException if the entry shares its text or stores payloads out of line
+     */
+    Message decode(byte[] entry) {
+        return decode(entry, Map.of(), Map.of());
+    }
+
+    /**
+     * Decodes an entry with the codec whose format marker it carries. Entries matching none were
+     * written through the template's value serializer by earlier versions and hold JSON. The
+     * sequence is recorded in the {@link RedisChatMemoryRepository#SEQUENCE} metadata, token
+     * estimates and system markers are skipped, shared texts and payloads filled in and compressed
+     * entries decompressed first, whatever the configuration.
+     *
+     * @param texts shared texts by hash, see {@link #sharedTexts(List)}
+     * @param payloads payloads of the conversation by hash, see {@link #payloads(Map)}
+     */
+    private Message decode(byte[] entry, Map<String, String> texts, Map<String, byte[]> payloads) {
+        long sequence = sequence(entry);
+        int offset = bodyOffset(entry);
+        Map<Integer, String> references = payloadReferences(entry, offset);
+        offset += payloadHeaderLength(entry, offset);
+        String hash = sharedTextHash(entry, offset);
+        if (hash != null) {
+            offset += SHARED_TEXT_HEADER_LENGTH;
+        }
+        if (entry.length >= offset + SYSTEM_HEADER_LENGTH
+                && entry[offset] == HEADER
+                && entry[offset + 1] == SYSTEM) {
+            offset += SYSTEM_HEADER_LENGTH;
+        }
+        if (offset > 0) {
+            entry = Arrays.copyOfRange(entry, offset, entry.length);
+        }
+        if (entry.length > 0 && entry[0] == HEADER) {
+            entry = inflate(entry);
+        }
+        Message message = decodeMessage(entry);
+        if (hash != null) {
+            String text = texts.get(hash);
+            if (text == null) {
+                throw new IllegalStateException(
+                        "Shared text " + hash + " of a message entry cannot be read");
+            }
+            message = copy(message, text);
+        }
+        if (!references.isEmpty()) {
+            Map<Integer, byte[]> restored = new HashMap<>();
+            references.forEach(
+                    (slot, payloadHash) -> {
+                        byte[] payload = payloads.get(payloadHash);
+                        if (payload == null) {
+                            throw new IllegalStateException(
+                                    "Payload "
+                                            + payloadHash
+                                            + " of a message entry cannot be read");
+                        }
+                        restored.put(slot, payload);
+                    });
+            message = withPayloads(message, restored);
+        }
+        if (sequence > 0) {
+            message.getMetadata().put(RedisChatMemoryRepository.SEQUENCE, sequence);
+        }
+        return message;
+    }
+
+    /** Offset of an entry past its sequence and token headers. */
+    private static int bodyOffset(byte[] entry) {
+        int offset = sequence(entry) >= 0 ? SEQUENCE_HEADER_LENGTH : 0;
+        if (entry.length >= offset + TOKENS_HEADER_LENGTH
+                && entry[offset] == HEADER
+                && entry[offset + 1] == TOKENS) {
+            offset += TOKENS_HEADER_LENGTH;
+        }
+        return offset;
+    }
+
+    /** Length of the payloads header of an entry at an offset, {@code 0} if it has none. */
+    private static int payloadHeaderLength(byte[] entry, int offset) {
+        if (entry.length < offset + PAYLOADS_HEADER_LENGTH
+                || entry[offset] != HEADER
+                || entry[offset + 1] != PAYLOADS) {
+            return 0;
+        }
+        int count = ((entry[offset + 2] & 0xff) << 8) | (entry[offset + 3] & 0xff);
+        return PAYLOADS_HEADER_LENGTH + count * PAYLOAD_REFERENCE_LENGTH;
+    }
+
+    /** Hex SHA-256 of the payloads an entry stores out of line, by index. */
+    private static Map<Integer, String> payloadReferences(byte[] entry, int offset) {
+        int length = payloadHeaderLength(entry, offset);
+        if (length == 0) {
+            return Map.of();
+        }
+        Map<Integer, String> references = new LinkedHashMap<>();
+        for (int reference = offset + PAYLOADS_HEADER_LENGTH;
+                reference < offset + length;
+                reference += PAYLOAD_REFERENCE_LENGTH) {
+            int slot = ((entry[reference] & 0xff) << 8) | (entry[reference + 1] & 0xff);
+            references.put(
+                    slot,
+                    HexFormat.of()
+                            .formatHex(entry, reference + 2, reference + PAYLOAD_REFERENCE_LENGTH));
+        }
+        return references;
+    }
+
+    /** Offset of the shared text header of an entry, past its payloads header. */
+    private static int sharedTextOffset(byte[] entry) {
+        int offset = bodyOffset(entry);
+        return offset + payloadHeaderLength(entry, offset);
+    }
+
+    /** Hash of the text shared by an entry, {@code null} if it holds its text inline. */
+    private static String sharedTextHash(byte[] entry, int offset) {
+        if (entry.length < offset + SHARED_TEXT_HEADER_LENGTH
+                || entry[offset] != HEADER
+                || entry[offset + 1] != SHARED_TEXT) {
+            return null;
+        }
+        return HexFormat.of().formatHex(entry, offset + 2, offset + SHARED_TEXT_HEADER_LENGTH);
+    }
+
+    /** Reads the texts shared by entries, in one round trip at most. */
+    private Map<String, String> sharedTexts(List<byte[]> stored) {
+        Set<String> hashes = new LinkedHashSet<>();
+        for (byte[] entry : stored) {
+            String hash = sharedTextHash(entry, sharedTextOffset(entry));
+            if (hash != null) {
+                hashes.add(hash);
+            }
+        }
+        if (hashes.isEmpty() || sharedTexts == null) {
+            return Map.of();
+        }
+        return sharedTexts.resolve(hashes);
+    }
+
+    /**
+     * Reads the payloads stored out of line by the entries of conversations, in one round trip at
+     * most.
+     *
+     * @param stored entries by conversation id
+     * @return the payloads of each conversation by hash, for the conversations referring to some
+     */
+    Map<String, Map<String, byte[]>> payloads(Map<String, List<byte[]>> stored) {
+        Map<String, Set<String>> references = new LinkedHashMap<>();
+        stored.forEach(
+                (conversationId, entries) -> {
+                    for (byte[] entry : entries) {
+                        Map<Integer, String> hashes = payloadReferences(entry, bodyOffset(entry));
+                        if (!hashes.isEmpty()) {
+                            references
+                                    .computeIfAbsent(conversationId, id -> new LinkedHashSet<>())
+                                    .addAll(hashes.values());
+                        }
+                    }
+                });
+        if (references.isEmpty() || payloads == null) {
+            return Map.of();
+        }
+        return payloads.read(references);
+    }
+
+    /**
+     * Decodes the entries of a conversation, reading the texts they share and the payloads they
+     * store out of line first.
+     *
+     * @param entryIds ids of stream entries, {@code null} for list entries
+     * @param withDigest whether to record the digests for a later incremental save
+     */
+    List<Message> decode(
+            String conversationId, List<byte[]> stored, List<String> entryIds, boolean withDigest) {
+        return decode(
+                stored,
+                entryIds,
+                withDigest,
+                payloads(Map.of(conversationId, stored)).getOrDefault(conversationId, Map.of()));
+    }
+
+    /**
+     * Decodes the entries of a conversation, reading the texts they share first.
+     *
+     * @param payloads payloads of the conversation read beforehand, see {@link #payloads(Map)}
+     */
+    List<Message> decode(
+            List<byte[]> stored,
+            List<String> entryIds,
+            boolean withDigest,
+            Map<String, byte[]> payloads) {
+        Map<String, String> texts = sharedTexts(stored);
+        List<Message> messages = new ArrayList<>(stored.size());
+        for (int i = 0; i < stored.size(); i++) {
+            byte[] entry = stored.get(i);
+            Message message = decode(entry, texts, payloads);
+            if (entryIds != null) {
+                message.getMetadata().put(RedisChatMemoryRepository.ENTRY_ID, entryIds.get(i));
+            }
+            if (withDigest) {
+                message.getMetadata()
+                        .put(
+                                RedisChatMemoryRepository.ENTRY_DIGEST,
+                                entryIds != null ? entryIds.get(i) : digest(entry));
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /** Reads the sequence header of an entry, {@code -1} for entries of earlier versions. */
+    private static long sequence(byte[] entry) {
+        if (entry.length < SEQUENCE_HEADER_LENGTH || entry[0] != HEADER || entry[1] != SEQUENCE) {
+            return -1;
+        }
+        long sequence = 0;
+        for (int i = 2; i < SEQUENCE_HEADER_LENGTH; i++) {
+            sequence = (sequence << 8) | (entry[i] & 0xff);
+        }
+        return sequence;
+    }
+
+    private Message decodeMessage(byte[] entry) {
+        for (MessageCodec decoder : decoders) {
+            if (decoder.canDecode(entry)) {
+                return decoder.decode(entry);
+            }
+        }
+        if (legacyReader.apply(entry) instanceof String json) {
+            return jsonCodec.decode(json.getBytes(StandardCharsets.UTF_8));
+        }
+        throw new IllegalStateException("Unrecognized message entry format");
+    }
+
+    /** Decodes an entry, recording its digest for a later incremental save if requested. */
+    Message decode(byte[] entry, boolean withDigest) {
+        Message message = decode(entry);
+        if (withDigest) {
+            message.getMetadata().put(RedisChatMemoryRepository.ENTRY_DIGEST, digest(entry));
+        }
+        return message;
+    }
+
+    /** Script saving messages to the configured storage, taking {@link #saveScriptArgs}. */
+    RedisScript<Long> saveScript() {
+        return storage == MessageStorage.STREAM ? SAVE_STREAM_SCRIPT : SAVE_MESSAGES_SCRIPT;
+    }
+
+    /**
+     * Counts the leading messages read from Redis, which must match the tail of the stored list for
+     * an incremental save; anything before that run has been evicted and is trimmed away.
+     *
+     * @return the number of stored messages, {@code 0} if the conversation has to be rewritten
+     */
+    static int storedCount(List<Message> messages) {
+        int stored = 0;
+        while (stored < messages.size() && entryDigest(messages.get(stored)) != null) {
+            stored++;
+        }
+        for (int i = stored; i < messages.size(); i++) {
+            if (entryDigest(messages.get(i)) != null) {
+                return 0;
+            }
+        }
+        return stored;
+    }
+
+    static String entryDigest(Message message) {
+        return (String) message.getMetadata().get(RedisChatMemoryRepository.ENTRY_DIGEST);
+    }
+
+    /** SHA-1 of the entry as it is stored in Redis. */
+    static String digest(byte[] entry) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(entry));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Number of {@link #saveScriptArgs arguments} ahead of the payloads and message entries. */
+    static final int SAVE_SCRIPT_ARGS = 8;
+
+    /**
+     * Arguments of {@link #saveScript()} keeping the first {@code keep} messages, which are already
+     * stored, and appending the rest.
+     *
+     * <p>Payloads stored out of line are written by the script along with the entries, as field and
+     * value pairs following the leading arguments, see {@link #entryArgs(List)}.
+     *
+     * @param channel channel announcing the change to near caches, {@code null} to skip
+     * @param texts collects the shared texts of the kept and appended messages, which must be
+     *     {@link #store(Map) stored} before running the script, {@code null} to keep every text
+     *     inline
+     */
+    List<byte[]> saveScriptArgs(
+            String conversationId,
+            long timeToLive,
+            int keep,
+            List<Message> messages,
+            String channel,
+            Map<String, String> texts) {
+        List<byte[]> entries = new ArrayList<>(messages.size() - keep);
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        for (Message message : messages.subList(keep, messages.size())) {
+            entries.add(encode(message, texts, payloads));
+        }
+        List<byte[]> args =
+                new ArrayList<>(SAVE_SCRIPT_ARGS + payloads.size() * 2 + entries.size());
+        args.add(bytes(String.valueOf(timeToLive)));
+        args.add(bytes(String.valueOf(keep)));
+        args.add(bytes(keep > 0 ? entryDigest(messages.get(0)) : ""));
+        args.add(bytes(keep > 0 ? entryDigest(messages.get(keep - 1)) : ""));
+        args.add(bytes(conversationId));
+        args.add(bytes(String.valueOf(System.currentTimeMillis())));
+        args.add(bytes(channel != null ? channel : ""));
+        args.addAll(payloadArgs(payloads));
+        if (texts != null) {
+            // Kept entries refer to their shared texts for as long as the conversation lives
+            for (Message message : messages.subList(0, keep)) {
+                String text = sharedText(message);
+                if (text != null) {
+                    texts.put(SharedTexts.hash(text), text);
+                }
+            }
+        }
+        args.addAll(entries);
+        return args;
+    }
+
+    /**
+     * Arguments of the save scripts writing payloads stored out of line: their number of arguments
+     * followed by the field and value of each.
+     */
+    static List<byte[]> payloadArgs(Map<String, byte[]> payloads) {
+        List<byte[]> args = new ArrayList<>(1 + payloads.size() * 2);
+        args.add(bytes(String.valueOf(payloads.size() * 2)));
+        payloads.forEach(
+                (hash, payload) -> {
+                    args.add(HexFormat.of().parseHex(hash));
+                    args.add(payload);
+                });
+        return args;
+    }
+
+    /** The message entries among {@link #saveScriptArgs arguments}, past the payloads. */
+    static List<byte[]> entryArgs(List<byte[]> args) {
+        int payloadArgs =
+                Integer.parseInt(
+                        new String(args.get(SAVE_SCRIPT_ARGS - 1), StandardCharsets.UTF_8));
+        return args.subList(SAVE_SCRIPT_ARGS + payloadArgs, args.size());
+    }
+
+    /** Copies a message with its own metadata, as callers may mutate it. */
+    static Message copy(Message message) {
+        return copy(message, message.getText());
+    }
+
+    /** Copies a message with its own metadata and another text. */
+    private static Message copy(Message message, String text) {
+        Map<String, Object> metadata = new HashMap<>(message.getMetadata());
+        return switch (message.getMessageType()) {
+            case ASSISTANT -> {
+                var assistantMessage = (AssistantMessage) message;
+                yield new AssistantMessage(
+                        text,
+                        metadata,
+                        assistantMessage.getToolCalls(),
+                        assistantMessage.getMedia());
+            }
+            case USER -> UserMessage.builder()
+                    .text(text)
+                    .media(((UserMessage) message).getMedia())
+                    .metadata(metadata)
+                    .build();
+            case SYSTEM -> SystemMessage.builder().text(text).metadata(metadata).build();
+            case TOOL -> new ToolResponseMessage(
+                    ((ToolResponseMessage) message).getResponses(), metadata);
+        };
+    }
+
+    static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
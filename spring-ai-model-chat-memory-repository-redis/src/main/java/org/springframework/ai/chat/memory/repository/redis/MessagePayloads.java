@@ -0,0 +1,93 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reader of the payloads that {@link MessageEntries} stores out of line: tool call arguments, tool
+ * responses and media data of at least the {@link
+ * RedisChatMemoryRepositoryConfig#getOffloadThreshold() offload threshold}. The payloads of a
+ * conversation live in a hash under {@link RedisChatMemoryRepositoryConfig#getPayloadKey(String)},
+ * one field per payload named after the SHA-256 of its bytes, which the save scripts write along
+ * with the entries referring to them, expire with the conversation and clear of the payloads no
+ * entry refers to any longer.
+ *
+ * <p>Payloads are read eagerly, along with the entries referring to them, not on first access:
+ * Spring AI messages and media are plain values with no hook to defer their contents. Reads only
+ * fetch the payloads of the entries they return, so that tail and token budget reads of a
+ * conversation do not pay for the payloads of its older messages.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+final class MessagePayloads {
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final RedisChatMemoryRepositoryConfig config;
+
+    MessagePayloads(
+            RedisTemplate<String, String> redisTemplate, RedisChatMemoryRepositoryConfig config) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+    }
+
+    /**
+     * Reads payloads with one {@code HMGET} per conversation, in one pipelined round trip.
+     *
+     * @param hashes hex SHA-256 of the payloads to read by conversation id
+     * @return the decoded payloads found, by hash and conversation id
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Map<String, byte[]>> read(Map<String, Set<String>> hashes) {
+        List<String> conversationIds = new ArrayList<>(hashes.keySet());
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    for (String conversationId : conversationIds) {
+                                        connection
+                                                .hashCommands()
+                                                .hMGet(
+                                                        rawKey(
+                                                                config.getPayloadKey(
+                                                                        conversationId)),
+                                                        hashes.get(conversationId).stream()
+                                                                .map(HexFormat.of()::parseHex)
+                                                                .toArray(byte[][]::new));
+                                    }
+                                    return null;
+                                },
+                        RedisSerializer.byteArray());
+
+        Map<String, Map<String, byte[]>> payloads = new HashMap<>();
+        for (int i = 0; i < conversationIds.size(); i++) {
+            String conversationId = conversationIds.get(i);
+            List<byte[]> values = (List<byte[]>) results.get(i);
+            Map<String, byte[]> found = new LinkedHashMap<>();
+            int field = 0;
+            for (String hash : hashes.get(conversationId)) {
+                byte[] value = values != null ? values.get(field++) : null;
+                if (value != null) {
+                    found.put(hash, MessageEntries.decodeBlob(value));
+                }
+            }
+            payloads.put(conversationId, found);
+        }
+        return payloads;
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+}
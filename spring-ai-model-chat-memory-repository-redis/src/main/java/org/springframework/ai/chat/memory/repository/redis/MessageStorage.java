@@ -0,0 +1,21 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+/**
+ * Redis data type holding the messages of a conversation.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public enum MessageStorage {
+
+    /** A list of entries, read and written as a whole. */
+    LIST,
+
+    /**
+     * A stream with one entry per message. Redis assigns every message an id, its time of writing
+     * in milliseconds and a sequence number, so messages can be read by id or time range and
+     * consumers can catch up on what was appended since the last id they read, see {@link
+     * RedisChatMemoryRepository#findMessagesAfter(String, String, int)}.
+     */
+    STREAM
+}
@@ -0,0 +1,107 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.ai.chat.messages.Message;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process LRU cache of deserialized conversations, bounded by entry count and by the size of the
+ * stored entries. Conversations are handed out as copies, as callers such as {@code
+ * MessageWindowChatMemory} mutate message metadata.
+ *
+ * <p>A read that raced with an invalidation is not cached: callers take a {@link #generation()}
+ * before reading from Redis and pass it to {@link #put}.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+final class NearCache {
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final long timeToLiveNanos;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    private long generation;
+
+    /**
+     * @param maxEntries maximum number of cached conversations
+     * @param maxBytes maximum total size of the cached entries, {@code <= 0} for no limit
+     * @param timeToLiveMillis maximum age of a cached conversation, {@code <= 0} for no limit
+     */
+    NearCache(int maxEntries, long maxBytes, long timeToLiveMillis) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLiveNanos = timeToLiveMillis > 0 ? timeToLiveMillis * 1_000_000L : -1;
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    /** Returns a copy of the cached conversation, or {@code null} on a miss. */
+    List<Message> get(String conversationId) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(conversationId);
+            if (entry == null) {
+                return null;
+            }
+            if (timeToLiveNanos > 0 && System.nanoTime() - entry.cachedAt > timeToLiveNanos) {
+                remove(conversationId);
+                return null;
+            }
+        }
+        return entry.messages.stream().map(MessageEntries::copy).toList();
+    }
+
+    /** Caches a conversation unless it was invalidated since {@code generation} was taken. */
+    synchronized void put(
+            String conversationId, List<Message> messages, long size, long generation) {
+        if (generation != this.generation || (maxBytes > 0 && size > maxBytes)) {
+            return;
+        }
+        remove(conversationId);
+        entries.put(
+                conversationId,
+                new Entry(
+                        messages.stream().map(MessageEntries::copy).toList(),
+                        size,
+                        System.nanoTime()));
+        bytes += size;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || (maxBytes > 0 && bytes > maxBytes)) {
+            bytes -= eldest.next().getValue().size;
+            eldest.remove();
+        }
+    }
+
+    synchronized void invalidate(String conversationId) {
+        generation++;
+        remove(conversationId);
+    }
+
+    synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void remove(String conversationId) {
+        Entry removed = entries.remove(conversationId);
+        if (removed != null) {
+            bytes -= removed.size;
+        }
+    }
+
+    private record Entry(List<Message> messages, long size, long cachedAt) {}
+}
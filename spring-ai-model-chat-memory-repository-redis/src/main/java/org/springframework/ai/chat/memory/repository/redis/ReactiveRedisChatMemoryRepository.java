@@ -0,0 +1,344 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisElementReader;
+import org.springframework.data.redis.serializer.RedisElementWriter;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A non-blocking counterpart of {@link RedisChatMemoryRepository} built on a {@link
+ * ReactiveRedisTemplate}, for streaming chat endpoints running on an event loop. Both read and
+ * write the same data, so they can be mixed freely.
+ *
+ * <p>There is no near cache, but with {@link
+ * RedisChatMemoryRepositoryConfig#getNearCacheMaxEntries()} set, changes are announced on the
+ * invalidation channel for the near caches of blocking repositories. It writes every message text
+ * and payload inline, and cannot read conversations holding texts shared by the {@link
+ * RedisChatMemoryRepositoryConfig#isDedupe() deduplication} or payloads stored out of line by the
+ * {@link RedisChatMemoryRepositoryConfig#isOffloadPayloads() offloading} of blocking repositories.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class ReactiveRedisChatMemoryRepository {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(ReactiveRedisChatMemoryRepository.class);
+
+    private static final RedisElementWriter<byte[]> ARGS_WRITER =
+            RedisElementWriter.from(RedisSerializer.byteArray());
+
+    private static final RedisElementReader<Long> RESULT_READER =
+            RedisElementReader.from(new GenericToStringSerializer<>(Long.class));
+
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+
+    private final RedisChatMemoryRepositoryConfig config;
+
+    private final MessageEntries entries;
+
+    private ReactiveRedisChatMemoryRepository(
+            ReactiveRedisTemplate<String, String> redisTemplate,
+            RedisChatMemoryRepositoryConfig config) {
+        Assert.notNull(redisTemplate, "redisTemplate cannot be null");
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        RedisSerializationContext.SerializationPair<String> values =
+                redisTemplate.getSerializationContext().getValueSerializationPair();
+        this.entries = new MessageEntries(config, entry -> values.read(ByteBuffer.wrap(entry)));
+    }
+
+    public RedisChatMemoryRepositoryConfig getConfig() {
+        return config;
+    }
+
+    public ReactiveRedisTemplate<String, String> getRedisTemplate() {
+        return redisTemplate;
+    }
+
+    /**
+     * Lists the conversations recorded in the conversation id index, most recently active first.
+     * Ids whose time to live has passed are pruned from the index on the way.
+     */
+    public Flux<String> findConversationIds() {
+        return findConversationIds(0, -1, Sort.Direction.DESC);
+    }
+
+    /**
+     * Lists one page of conversation ids ordered by last activity, {@link Sort.Direction#DESC}
+     * returning the most recently active conversations first.
+     *
+     * @param offset number of conversation ids to skip
+     * @param limit maximum number of conversation ids to return, negative for all remaining
+     * @param direction order of last activity
+     */
+    public Flux<String> findConversationIds(long offset, int limit, Sort.Direction direction) {
+        Assert.isTrue(offset >= 0, "offset cannot be negative");
+        Assert.isTrue(limit != 0, "limit cannot be zero");
+        Assert.notNull(direction, "direction cannot be null");
+
+        ByteBuffer indexKey = rawKey(config.getIndexKey());
+        Range<Long> range = Range.closed(offset, limit < 0 ? -1 : offset + limit - 1);
+        return redisTemplate
+                .execute(
+                        connection -> {
+                            Mono<Long> prune =
+                                    config.getTimeToLive() > 0
+                                            ? connection
+                                                    .zSetCommands()
+                                                    .zRemRangeByScore(
+                                                            indexKey,
+                                                            Range.leftUnbounded(
+                                                                    Range.Bound.exclusive(
+                                                                            expiredBefore())))
+                                            : Mono.empty();
+                            return prune.thenMany(
+                                    direction.isDescending()
+                                            ? connection.zSetCommands().zRevRange(indexKey, range)
+                                            : connection.zSetCommands().zRange(indexKey, range));
+                        })
+                .map(member -> StandardCharsets.UTF_8.decode(member).toString());
+    }
+
+    /**
+     * Reads the messages of a conversation, emitting nothing if it does not exist. Collect them
+     * into a list before passing them back to {@link #saveAll(String, List)}.
+     */
+    public Flux<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+
+        ByteBuffer key = rawKey(config.getConversationKey(conversationId));
+        return redisTemplate
+                .execute(connection -> connection.listCommands().lRange(key, 0, -1))
+                .map(entry -> entries.decode(bytes(entry), config.isIncrementalSave()))
+                .switchIfEmpty(
+                        Flux.defer(
+                                () -> {
+                                    logger.debug(
+                                            "No messages found for conversationId: "
+                                                    + conversationId);
+                                    return Flux.empty();
+                                }));
+    }
+
+    /**
+     * Replaces the messages of a conversation, see {@link RedisChatMemoryRepository#saveAll(String,
+     * List)}.
+     */
+    public Mono<Void> saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+
+        if (messages.isEmpty()) {
+            return deleteByConversationId(conversationId);
+        }
+
+        String key = config.getConversationKey(conversationId);
+        int stored = config.isIncrementalSave() ? MessageEntries.storedCount(messages) : 0;
+        Mono<Long> save =
+                stored > 0
+                        ? executeSaveScript(conversationId, key, stored, messages)
+                                .filter(size -> size >= 0)
+                                .switchIfEmpty(
+                                        Mono.defer(
+                                                () -> {
+                                                    logger.debug(
+                                                            "Stored messages changed for key: "
+                                                                    + key
+                                                                    + ", rewriting");
+                                                    return executeSaveScript(
+                                                            conversationId, key, 0, messages);
+                                                }))
+                        : executeSaveScript(conversationId, key, 0, messages);
+        return save.then();
+    }
+
+    /** See {@code save_messages.lua}. */
+    private Mono<Long> executeSaveScript(
+            String conversationId, String key, int keep, List<Message> messages) {
+        return Mono.fromCallable(
+                        () ->
+                                entries.saveScriptArgs(
+                                        conversationId,
+                                        config.getTimeToLive(),
+                                        keep,
+                                        messages,
+                                        invalidationChannel(),
+                                        null))
+                .flatMapMany(
+                        args ->
+                                redisTemplate.execute(
+                                        MessageEntries.SAVE_MESSAGES_SCRIPT,
+                                        config.isCluster()
+                                                ? List.of(key, config.getPayloadKey(conversationId))
+                                                : List.of(
+                                                        key,
+                                                        config.getPayloadKey(conversationId),
+                                                        config.getIndexKey()),
+                                        args,
+                                        ARGS_WRITER,
+                                        RESULT_READER))
+                .next()
+                .flatMap(
+                        size ->
+                                config.isCluster() && size >= 0
+                                        ? index(conversationId).thenReturn(size)
+                                        : Mono.just(size))
+                .defaultIfEmpty(-1L);
+    }
+
+    /**
+     * Records the last activity of a saved conversation in cluster mode, where the save script
+     * cannot reach the conversation id index.
+     */
+    private Mono<Long> index(String conversationId) {
+        ByteBuffer indexKey = rawKey(config.getIndexKey());
+        ByteBuffer member = ByteBuffer.wrap(MessageEntries.bytes(conversationId));
+        return redisTemplate
+                .execute(
+                        connection ->
+                                connection
+                                        .zSetCommands()
+                                        .zAdd(
+                                                indexKey,
+                                                (double) System.currentTimeMillis(),
+                                                member))
+                .next();
+    }
+
+    public Mono<Void> deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+
+        ByteBuffer key = rawKey(config.getConversationKey(conversationId));
+        ByteBuffer payloadKey = rawKey(config.getPayloadKey(conversationId));
+        ByteBuffer indexKey = rawKey(config.getIndexKey());
+        ByteBuffer member = ByteBuffer.wrap(MessageEntries.bytes(conversationId));
+        String channel = invalidationChannel();
+        return redisTemplate
+                .execute(
+                        connection ->
+                                Mono.when(
+                                        connection.keyCommands().mUnlink(List.of(key, payloadKey)),
+                                        connection.zSetCommands().zRem(indexKey, member),
+                                        channel != null
+                                                ? connection
+                                                        .pubSubCommands()
+                                                        .publish(
+                                                                ByteBuffer.wrap(
+                                                                        MessageEntries.bytes(
+                                                                                channel)),
+                                                                member.duplicate())
+                                                : Mono.empty()))
+                .then();
+    }
+
+    private String invalidationChannel() {
+        return config.getNearCacheMaxEntries() > 0 ? config.getInvalidationChannel() : null;
+    }
+
+    /** Index entries last active before this instant have outlived the time to live. */
+    private double expiredBefore() {
+        return System.currentTimeMillis() - config.getTimeToLive() * 1000d;
+    }
+
+    private ByteBuffer rawKey(String key) {
+        return redisTemplate.getSerializationContext().getKeySerializationPair().write(key);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** ReactiveRedisChatMemoryRepository Builder */
+    public static final class Builder {
+        private final RedisChatMemoryRepositoryConfig.Builder builder =
+                RedisChatMemoryRepositoryConfig.builder();
+
+        private ReactiveRedisTemplate<String, String> redisTemplate;
+
+        private Builder() {}
+
+        public Builder keyPrefix(String keyPrefix) {
+            this.builder.withKeyPrefix(keyPrefix);
+            return this;
+        }
+
+        public Builder timeToLive(String timeToLive) {
+            this.builder.withTimeToLive(timeToLive);
+            return this;
+        }
+
+        public Builder indexKey(String indexKey) {
+            this.builder.withIndexKey(indexKey);
+            return this;
+        }
+
+        public Builder incrementalSave(boolean incrementalSave) {
+            this.builder.withIncrementalSave(incrementalSave);
+            return this;
+        }
+
+        /** Announces changes to the near caches of blocking repositories if positive. */
+        public Builder nearCacheMaxEntries(int nearCacheMaxEntries) {
+            this.builder.withNearCacheMaxEntries(nearCacheMaxEntries);
+            return this;
+        }
+
+        public Builder codec(MessageCodec codec) {
+            this.builder.withCodec(codec);
+            return this;
+        }
+
+        public Builder compression(MessageCompression compression) {
+            this.builder.withCompression(compression);
+            return this;
+        }
+
+        public Builder compressionThreshold(int compressionThreshold) {
+            this.builder.withCompressionThreshold(compressionThreshold);
+            return this;
+        }
+
+        public Builder cluster(boolean cluster) {
+            this.builder.withCluster(cluster);
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.builder.withTokenCountEstimator(tokenCountEstimator);
+            return this;
+        }
+
+        public Builder redisTemplate(ReactiveRedisTemplate<String, String> redisTemplate) {
+            this.redisTemplate = redisTemplate;
+            return this;
+        }
+
+        public ReactiveRedisChatMemoryRepository build() {
+            return new ReactiveRedisChatMemoryRepository(this.redisTemplate, this.builder.build());
+        }
+    }
+}
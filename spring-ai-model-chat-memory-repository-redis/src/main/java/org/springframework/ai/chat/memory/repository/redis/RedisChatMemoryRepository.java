@@ -3,32 +3,61 @@ package org.springframework.ai.chat.memory.repository.redis;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.memory.ChatMemoryRepository;
-import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.MessageType;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.ToolResponseMessage;
-import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.DecoratedRedisConnection;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
 import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.util.Assert;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * An implementation of {@link ChatMemoryRepository} for Redis
@@ -36,15 +65,59 @@ import java.util.concurrent.TimeUnit;
  * @author Cyanty
  * @since 1.0.0
  */
-public final class RedisChatMemoryRepository implements ChatMemoryRepository {
+public final class RedisChatMemoryRepository implements ChatMemoryRepository, AutoCloseable {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisChatMemoryRepository.class);
 
+    /**
+     * Metadata key holding the digest of the stored entry a message was read from. Only set when
+     * incremental save is enabled, it is never written to Redis.
+     */
+    public static final String ENTRY_DIGEST = "redisEntryDigest";
+
+    /**
+     * Metadata key holding the stream entry id of a message read from {@link MessageStorage#STREAM
+     * stream storage}, never written to Redis. Pass the id of the last message read to {@link
+     * #findMessagesAfter(String, String, int)} to read what was appended since.
+     */
+    public static final String ENTRY_ID = "redisEntryId";
+
+    /**
+     * Metadata key holding the id of a message, a random UUID assigned when it is first stored and
+     * kept when it is rewritten.
+     */
+    public static final String MESSAGE_ID = "redisMessageId";
+
+    /**
+     * Metadata key holding the sequence number of a message, a {@code Long} assigned when it is
+     * first stored, one more than the last message of the conversation. Pass the sequence of the
+     * last message read to {@link #findSince(String, long)} to read the messages stored since.
+     */
+    public static final String SEQUENCE = "redisSequence";
+
+    private static final int SCAN_BATCH_SIZE = 1000;
+
+    /** Most cluster masters scanned at once by {@link #reindexConversationIds()}. */
+    private static final int MAX_PARALLEL_SCANS = 16;
+
+    /** Pause between two batches of {@link #purgeIdleConversations(Duration)}. */
+    public static final long DEFAULT_PURGE_PAUSE_MILLIS = 10;
+
     private final RedisTemplate<String, String> redisTemplate;
 
     private final RedisChatMemoryRepositoryConfig config;
 
-    private final ObjectMapper objectMapper;
+    private final MessageEntries entries;
+
+    private final NearCache nearCache;
+
+    private final RedisMessageListenerContainer invalidationListener;
+
+    private final WriteBehindQueue writeBehind;
+
+    private final RepositoryMetrics metrics;
+
+    private final SlidingExpiration slidingExpiration;
 
     private RedisChatMemoryRepository(RedisChatMemoryRepositoryConfig config) {
         this(config.getRedisTemplate(), config);
@@ -55,135 +128,1434 @@ public final class RedisChatMemoryRepository implements ChatMemoryRepository {
         Assert.notNull(redisTemplate, "redisTemplate cannot be null");
         this.redisTemplate = redisTemplate;
         this.config = config;
-        this.objectMapper = new ObjectMapper();
+        this.entries =
+                new MessageEntries(
+                        config,
+                        redisTemplate.getValueSerializer()::deserialize,
+                        new SharedTexts(redisTemplate, config),
+                        new MessagePayloads(redisTemplate, config));
+        if (config.getNearCacheMaxEntries() > 0) {
+            this.nearCache =
+                    new NearCache(
+                            config.getNearCacheMaxEntries(),
+                            config.getNearCacheMaxBytes(),
+                            config.getNearCacheTimeToLive());
+            this.invalidationListener = subscribeToInvalidations(this.nearCache);
+        } else {
+            this.nearCache = null;
+            this.invalidationListener = null;
+        }
+        this.metrics =
+                new RepositoryMetrics(config.getObservationRegistry(), config.getMeterRegistry());
+        this.slidingExpiration =
+                config.isSlidingExpiration()
+                        ? new SlidingExpiration(config.getSlidingExpirationInterval())
+                        : null;
+        this.writeBehind =
+                config.isWriteBehind()
+                        ? new WriteBehindQueue(
+                                conversations ->
+                                        metrics.observe(
+                                                "flush", null, () -> writeAll(conversations)),
+                                config.getWriteBehindMaxDelay(),
+                                config.getWriteBehindMaxPending(),
+                                config.getBatchSize())
+                        : null;
+    }
+
+    /**
+     * Evicts conversations from the near cache when any node announces a change on the invalidation
+     * channel, see {@code save_messages.lua} and {@link #deleteByConversationId(String)}.
+     */
+    private RedisMessageListenerContainer subscribeToInvalidations(NearCache nearCache) {
+        RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        Assert.state(connectionFactory != null, "redisTemplate has no connection factory");
+
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) ->
+                        nearCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(config.getInvalidationChannel()));
+        container.afterPropertiesSet();
+        container.start();
+        return container;
     }
 
     public RedisChatMemoryRepositoryConfig getConfig() {
         return config;
     }
 
+    /** Encoding of the entries, sharing its cache of shared texts with the window memory. */
+    MessageEntries entries() {
+        return entries;
+    }
+
+    /** Debouncer of the expiry refreshes, {@code null} without sliding expiration. */
+    SlidingExpiration slidingExpiration() {
+        return slidingExpiration;
+    }
+
+    /**
+     * Lists the conversations recorded in the conversation id index, most recently active first.
+     * Ids whose time to live has passed are pruned from the index on the way.
+     */
     @Override
     public List<String> findConversationIds() {
-        return redisTemplate.execute(
-                (RedisCallback<List<String>>)
-                        connection -> {
-                            var keys = new HashSet<String>();
-                            ScanOptions options =
-                                    ScanOptions.scanOptions()
-                                            .match(String.format("*%s*", config.getKeyPrefix()))
-                                            .count(Integer.MAX_VALUE)
-                                            .build();
-
-                            try (Cursor<byte[]> cursor = connection.keyCommands().scan(options)) {
-                                while (cursor.hasNext()) {
-                                    String[] key =
-                                            new String(cursor.next(), StandardCharsets.UTF_8)
-                                                    .split(":");
-                                    if (key.length > 0) {
-                                        keys.add(key[key.length - 1]);
+        return findConversationIds(0, -1, Sort.Direction.DESC);
+    }
+
+    /**
+     * Lists one page of conversation ids, most recently active first.
+     *
+     * @param offset number of conversation ids to skip
+     * @param limit maximum number of conversation ids to return
+     */
+    public List<String> findConversationIds(long offset, int limit) {
+        return findConversationIds(offset, limit, Sort.Direction.DESC);
+    }
+
+    /**
+     * Lists one page of conversation ids ordered by last activity, {@link Sort.Direction#DESC}
+     * returning the most recently active conversations first.
+     *
+     * @param offset number of conversation ids to skip
+     * @param limit maximum number of conversation ids to return, negative for all remaining
+     * @param direction order of last activity
+     */
+    public List<String> findConversationIds(long offset, int limit, Sort.Direction direction) {
+        Assert.isTrue(offset >= 0, "offset cannot be negative");
+        Assert.isTrue(limit != 0, "limit cannot be zero");
+        Assert.notNull(direction, "direction cannot be null");
+        return metrics.observe("list", null, () -> listConversationIds(offset, limit, direction));
+    }
+
+    private List<String> listConversationIds(long offset, int limit, Sort.Direction direction) {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        long end = limit < 0 ? -1 : offset + limit - 1;
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    if (config.getTimeToLive() > 0) {
+                                        connection
+                                                .zSetCommands()
+                                                .zRemRangeByScore(
+                                                        indexKey,
+                                                        Range.leftUnbounded(
+                                                                Range.Bound.exclusive(
+                                                                        expiredBefore())));
                                     }
-                                }
+                                    if (direction.isDescending()) {
+                                        connection.zSetCommands().zRevRange(indexKey, offset, end);
+                                    } else {
+                                        connection.zSetCommands().zRange(indexKey, offset, end);
+                                    }
+                                    return null;
+                                },
+                        RedisSerializer.string());
+
+        @SuppressWarnings("unchecked")
+        Set<String> conversationIds = (Set<String>) results.get(results.size() - 1);
+        return new ArrayList<>(conversationIds);
+    }
+
+    /**
+     * Lazily iterates over all conversation ids with {@code ZSCAN}, holding one batch in memory at
+     * a time. The order is unspecified and ids may be returned more than once if the index changes
+     * while iterating. The stream holds a Redis connection and must be closed.
+     */
+    public Stream<String> streamConversationIds() {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        double expiredBefore = config.getTimeToLive() > 0 ? expiredBefore() : Double.NaN;
+        Cursor<Tuple> cursor =
+                redisTemplate.executeWithStickyConnection(
+                        connection ->
+                                connection
+                                        .zSetCommands()
+                                        .zScan(
+                                                indexKey,
+                                                ScanOptions.scanOptions()
+                                                        .count(SCAN_BATCH_SIZE)
+                                                        .build()));
+        Assert.state(cursor != null, "No cursor returned for the conversation id index");
+
+        return cursor.stream()
+                .filter(tuple -> Double.isNaN(expiredBefore) || tuple.getScore() >= expiredBefore)
+                .map(tuple -> new String(tuple.getValue(), StandardCharsets.UTF_8))
+                .onClose(cursor::close);
+    }
+
+    /**
+     * Adds every conversation stored under the key prefix to the conversation id index. Only needed
+     * once for conversations saved before the index existed, as it scans the keyspace.
+     *
+     * @return the number of conversations found
+     */
+    public long reindexConversationIds() {
+        return metrics.observe("reindex", null, this::reindex);
+    }
+
+    private long reindex() {
+        ScanOptions options =
+                ScanOptions.scanOptions()
+                        .match(scanPattern())
+                        .type(
+                                config.getStorage() == MessageStorage.STREAM
+                                        ? DataType.STREAM
+                                        : DataType.LIST)
+                        .count(SCAN_BATCH_SIZE)
+                        .build();
+        double score = System.currentTimeMillis();
+
+        List<RedisClusterNode> masters =
+                redisTemplate.execute(
+                        (RedisCallback<List<RedisClusterNode>>)
+                                connection ->
+                                        unwrap(connection) instanceof RedisClusterConnection cluster
+                                                ? masters(cluster)
+                                                : null);
+        if (masters == null) {
+            return indexScanned(connection -> connection.keyCommands().scan(options), score);
+        }
+        if (masters.isEmpty()) {
+            return 0;
+        }
+
+        // Keys are spread over the masters and SCAN only covers the node it runs on: scan them all
+        // in parallel, each feeding the shared index
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(masters.size(), MAX_PARALLEL_SCANS));
+        try {
+            List<CompletableFuture<Long>> scans =
+                    masters.stream()
+                            .map(
+                                    node ->
+                                            CompletableFuture.supplyAsync(
+                                                    () ->
+                                                            indexScanned(
+                                                                    connection ->
+                                                                            ((RedisClusterConnection)
+                                                                                            unwrap(
+                                                                                                    connection))
+                                                                                    .scan(
+                                                                                            node,
+                                                                                            options),
+                                                                    score),
+                                                    executor))
+                            .toList();
+            long found = 0;
+            for (CompletableFuture<Long> scan : scans) {
+                found += scan.join();
+            }
+            return found;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the {@code SCAN MATCH} pattern of the conversation keys: the serialized key prefix,
+     * its glob characters escaped, followed by {@code *}. Key serializers that do not start keys
+     * with their prefix, such as JDK serialization writing a header and the length of the key
+     * first, match the prefix anywhere in the keys instead, leaving the other keys to {@link
+     * #conversationId(String)}.
+     */
+    private byte[] scanPattern() {
+        byte[] prefix = rawKey(config.getKeyPrefix());
+        byte[] key = rawKey(config.getKeyPrefix() + "_");
+        boolean leading =
+                key.length > prefix.length
+                        && Arrays.equals(prefix, 0, prefix.length, key, 0, prefix.length);
+        ByteArrayOutputStream pattern = new ByteArrayOutputStream();
+        if (!leading) {
+            prefix = MessageEntries.bytes(config.getKeyPrefix());
+            pattern.write('*');
+        }
+        for (byte b : prefix) {
+            if (b == '*' || b == '?' || b == '[' || b == ']' || b == '\\') {
+                pattern.write('\\');
+            }
+            pattern.write(b);
+        }
+        pattern.write('*');
+        return pattern.toByteArray();
+    }
+
+    private static List<RedisClusterNode> masters(RedisClusterConnection connection) {
+        List<RedisClusterNode> masters = new ArrayList<>();
+        connection
+                .clusterGetNodes()
+                .forEach(
+                        node -> {
+                            if (node.isMaster() && !node.isMarkedAsFail()) {
+                                masters.add(node);
                             }
-                            return new ArrayList<>(keys);
                         });
+        return masters;
+    }
+
+    /** Adds the conversations of the keys returned by a scan to the index, one batch at a time. */
+    private long indexScanned(Function<RedisConnection, Cursor<byte[]>> scan, double score) {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        Long count =
+                redisTemplate.execute(
+                        (RedisCallback<Long>)
+                                connection -> {
+                                    long found = 0;
+                                    Set<Tuple> batch = new HashSet<>();
+                                    try (Cursor<byte[]> cursor = scan.apply(connection)) {
+                                        while (cursor.hasNext()) {
+                                            String conversationId =
+                                                    conversationId(deserializeKey(cursor.next()));
+                                            if (conversationId == null) {
+                                                continue;
+                                            }
+                                            batch.add(
+                                                    new DefaultTuple(
+                                                            conversationId.getBytes(
+                                                                    StandardCharsets.UTF_8),
+                                                            score));
+                                            if (batch.size() == SCAN_BATCH_SIZE) {
+                                                found += batch.size();
+                                                connection.zSetCommands().zAdd(indexKey, batch);
+                                                batch.clear();
+                                            }
+                                        }
+                                    }
+                                    if (!batch.isEmpty()) {
+                                        found += batch.size();
+                                        connection.zSetCommands().zAdd(indexKey, batch);
+                                    }
+                                    return found;
+                                });
+        return count == null ? 0 : count;
+    }
+
+    /** Returns the id of the conversation stored under a key, {@code null} for other keys. */
+    private String conversationId(String key) {
+        String keyPrefix = config.getKeyPrefix();
+        if (key == null
+                || !key.startsWith(keyPrefix)
+                || key.startsWith(config.getSharedTextKeyPrefix())
+                || key.startsWith(config.getPayloadKeyPrefix())
+                || key.length() == keyPrefix.length()) {
+            return null;
+        }
+        String conversationId = key.substring(keyPrefix.length());
+        if (config.isCluster()) {
+            if (conversationId.length() < 3
+                    || !conversationId.startsWith("{")
+                    || !conversationId.endsWith("}")) {
+                return null;
+            }
+            conversationId = conversationId.substring(1, conversationId.length() - 1);
+        }
+        return conversationId;
     }
 
     @Override
     public List<Message> findByConversationId(String conversationId) {
         Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return metrics.observe("find", conversationId, () -> find(conversationId));
+    }
+
+    private List<Message> find(String conversationId) {
+        if (writeBehind != null) {
+            List<Message> pending = writeBehind.get(conversationId);
+            if (pending != null) {
+                return pending;
+            }
+        }
+        if (nearCache != null) {
+            List<Message> cached = nearCache.get(conversationId);
+            if (cached != null) {
+                refresh(List.of(conversationId));
+                return cached;
+            }
+        }
+        long generation = nearCache != null ? nearCache.generation() : 0;
 
-        String key = config.getKeyPrefix() + conversationId;
-        List<String> messageStrings = redisTemplate.opsForList().range(key, 0, -1);
-        if (messageStrings == null) {
+        boolean refresh = slidingExpiration != null && slidingExpiration.due(conversationId);
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    readAll(connection, conversationId);
+                                    if (refresh) {
+                                        refresh(connection, conversationId);
+                                    }
+                                    return null;
+                                },
+                        null);
+        if (refresh) {
+            entries.refreshTexts(List.of(conversationId));
+        }
+        StoredEntries stored = stored(results.get(0));
+        if (stored.entries().isEmpty()) {
             logger.debug("No messages found for conversationId: " + conversationId);
             return List.of();
         }
 
-        List<Message> messages = new ArrayList<>();
-        for (String messageString : messageStrings) {
-            try {
-                JsonNode jsonNode = objectMapper.readTree(messageString);
-                messages.add(getMessage(jsonNode));
-            } catch (JsonProcessingException e) {
-                throw new RuntimeException("Error deserializing message", e);
-            }
+        metrics.read(stored.entries());
+        List<Message> messages = decode(conversationId, stored);
+        if (nearCache != null) {
+            nearCache.put(
+                    conversationId, messages, RepositoryMetrics.size(stored.entries()), generation);
         }
         return messages;
     }
 
+    /**
+     * Reads many conversations in pipelined round trips of {@link
+     * RedisChatMemoryRepositoryConfig#getBatchSize()} conversations each, decoding the entries of a
+     * batch in parallel.
+     *
+     * @return the messages of every conversation found, in the order of the given ids
+     */
+    public Map<String, List<Message>> findByConversationIds(Collection<String> conversationIds) {
+        Assert.notNull(conversationIds, "conversationIds cannot be null");
+        conversationIds.forEach(
+                conversationId ->
+                        Assert.hasText(conversationId, "conversationId cannot be null or empty"));
+        return metrics.observe("find_batch", null, () -> findAll(conversationIds, true));
+    }
+
+    /**
+     * Checks which of the given conversations exist, with one {@code EXISTS} each in a single
+     * pipeline rather than reading their messages. Conversations pending a write-behind save count
+     * as existing.
+     *
+     * @return the ids of the conversations found, in the order of the given ids
+     */
+    Set<String> existingConversationIds(Collection<String> conversationIds) {
+        List<String> ids = new ArrayList<>(new LinkedHashSet<>(conversationIds));
+        Set<String> existing = new LinkedHashSet<>();
+        if (ids.isEmpty()) {
+            return existing;
+        }
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    for (String conversationId : ids) {
+                                        connection
+                                                .keyCommands()
+                                                .exists(
+                                                        rawKey(
+                                                                config.getConversationKey(
+                                                                        conversationId)));
+                                    }
+                                    return null;
+                                });
+        for (int i = 0; i < ids.size(); i++) {
+            String conversationId = ids.get(i);
+            if (Boolean.TRUE.equals(results.get(i))
+                    || (writeBehind != null && writeBehind.get(conversationId) != null)) {
+                existing.add(conversationId);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * @param slide whether the reads refresh the expiry of the conversations, if sliding expiration
+     *     is enabled
+     */
+    private Map<String, List<Message>> findAll(Collection<String> conversationIds, boolean slide) {
+        Map<String, List<Message>> found = new HashMap<>();
+        List<String> hits = new ArrayList<>();
+        List<String> misses = new ArrayList<>();
+        for (String conversationId : new LinkedHashSet<>(conversationIds)) {
+            List<Message> pending = writeBehind != null ? writeBehind.get(conversationId) : null;
+            if (pending != null) {
+                // Writing the pending save sets the expiry
+                found.put(conversationId, pending);
+                continue;
+            }
+            List<Message> cached = nearCache != null ? nearCache.get(conversationId) : null;
+            if (cached != null) {
+                found.put(conversationId, cached);
+                hits.add(conversationId);
+            } else {
+                misses.add(conversationId);
+            }
+        }
+        long generation = nearCache != null ? nearCache.generation() : 0;
+        if (slide) {
+            refresh(hits);
+        }
+
+        for (List<String> batch : batches(misses)) {
+            List<String> refreshes = slide ? refreshesDue(batch) : List.<String>of();
+            List<Object> results =
+                    redisTemplate.executePipelined(
+                            (RedisCallback<Object>)
+                                    connection -> {
+                                        for (String conversationId : batch) {
+                                            readAll(connection, conversationId);
+                                        }
+                                        refreshes.forEach(
+                                                conversationId ->
+                                                        refresh(connection, conversationId));
+                                        return null;
+                                    },
+                            null);
+            entries.refreshTexts(refreshes);
+
+            List<StoredEntries> stored =
+                    results.subList(0, batch.size()).stream().map(this::stored).toList();
+            Map<String, List<byte[]>> storedEntries = new HashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                storedEntries.put(batch.get(i), stored.get(i).entries());
+            }
+            Map<String, Map<String, byte[]>> payloads = entries.payloads(storedEntries);
+            List<List<Message>> decoded =
+                    IntStream.range(0, batch.size())
+                            .parallel()
+                            .mapToObj(
+                                    i ->
+                                            entries.decode(
+                                                    stored.get(i).entries(),
+                                                    stored.get(i).ids(),
+                                                    config.isIncrementalSave(),
+                                                    payloads.getOrDefault(batch.get(i), Map.of())))
+                            .toList();
+            for (int i = 0; i < batch.size(); i++) {
+                if (decoded.get(i).isEmpty()) {
+                    continue;
+                }
+                found.put(batch.get(i), decoded.get(i));
+                metrics.read(stored.get(i).entries());
+                if (nearCache != null) {
+                    nearCache.put(
+                            batch.get(i),
+                            decoded.get(i),
+                            RepositoryMetrics.size(stored.get(i).entries()),
+                            generation);
+                }
+            }
+        }
+
+        Map<String, List<Message>> ordered = new LinkedHashMap<>();
+        for (String conversationId : conversationIds) {
+            List<Message> messages = found.get(conversationId);
+            if (messages != null && !messages.isEmpty()) {
+                ordered.put(conversationId, messages);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Reads the last messages of a conversation, with {@code LRANGE} from the end of a list or
+     * {@code XREVRANGE} on a stream, without transferring the rest of it. Saves pending in
+     * write-behind mode are honored, the near cache is bypassed.
+     *
+     * @param count maximum number of messages to return
+     * @return the last messages, oldest first
+     */
+    public List<Message> findLastMessages(String conversationId, int count) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(count > 0, "count must be positive");
+        return metrics.observe(
+                "find_last",
+                conversationId,
+                () -> {
+                    List<Message> pending =
+                            writeBehind != null ? writeBehind.get(conversationId) : null;
+                    if (pending != null) {
+                        return new ArrayList<>(
+                                pending.subList(
+                                        Math.max(0, pending.size() - count), pending.size()));
+                    }
+                    byte[] key = rawKey(config.getConversationKey(conversationId));
+                    Object result =
+                            read(
+                                    conversationId,
+                                    connection ->
+                                            config.getStorage() == MessageStorage.STREAM
+                                                    ? streamCommands(connection)
+                                                            .xRevRange(
+                                                                    key,
+                                                                    Range.unbounded(),
+                                                                    Limit.limit().count(count))
+                                                    : connection
+                                                            .listCommands()
+                                                            .lRange(key, -count, -1));
+                    StoredEntries stored = stored(result);
+                    if (config.getStorage() == MessageStorage.STREAM) {
+                        stored = stored.reversed();
+                    }
+                    metrics.read(stored.entries());
+                    return decode(conversationId, stored);
+                });
+    }
+
+    /**
+     * Reads the newest messages of a conversation whose token estimates fit a budget, for instance
+     * the context window left to the history of a prompt. A script walks the conversation from its
+     * end and reads the estimates stored in the entry headers by {@link
+     * Builder#tokenCountEstimator(TokenCountEstimator)}, so only the returned messages are
+     * transferred and decoded. Entries written without an estimator count a token per four bytes of
+     * their size before compression. Saves pending in write-behind mode are honored, the near cache
+     * is bypassed.
+     *
+     * @param maxTokens token budget of the returned messages
+     * @return the newest messages fitting the budget, oldest first
+     */
+    public List<Message> findLastMessagesWithinTokens(String conversationId, int maxTokens) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(maxTokens > 0, "maxTokens must be positive");
+        return metrics.observe(
+                "find_tokens",
+                conversationId,
+                () -> {
+                    List<Message> pending =
+                            writeBehind != null ? writeBehind.get(conversationId) : null;
+                    if (pending != null) {
+                        int start = pending.size();
+                        int tokens = 0;
+                        while (start > 0) {
+                            tokens += entries.estimateTokens(pending.get(start - 1));
+                            if (tokens > maxTokens) {
+                                break;
+                            }
+                            start--;
+                        }
+                        return new ArrayList<>(pending.subList(start, pending.size()));
+                    }
+                    List<byte[]> result =
+                            readScript(
+                                    conversationId,
+                                    MessageEntries.TOKEN_WINDOW_SCRIPT,
+                                    MessageEntries.bytes(String.valueOf(maxTokens)));
+                    StoredEntries stored = scriptEntries(result);
+                    metrics.read(stored.entries());
+                    return decode(conversationId, stored);
+                });
+    }
+
+    /**
+     * Reads the messages of a conversation stored after a given {@link #SEQUENCE sequence}, letting
+     * caches and consumers fetch only new messages. A script walks the conversation from its end
+     * and stops at the first message already read, so only the new messages are transferred and
+     * decoded. Saves pending in write-behind mode are honored, the near cache is bypassed.
+     *
+     * @param sequence sequence of the last message read, {@code 0} to read every message stored
+     *     with a sequence
+     * @return the messages stored since, oldest first, each carrying its {@link #SEQUENCE}
+     */
+    public List<Message> findSince(String conversationId, long sequence) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(sequence >= 0, "sequence cannot be negative");
+        return metrics.observe(
+                "find_since",
+                conversationId,
+                () -> {
+                    List<Message> pending =
+                            writeBehind != null ? writeBehind.get(conversationId) : null;
+                    if (pending != null) {
+                        // Messages not stored yet have no sequence and are newer than any
+                        return pending.stream()
+                                .filter(
+                                        message ->
+                                                !(message.getMetadata().get(SEQUENCE)
+                                                                instanceof Number number)
+                                                        || number.longValue() > sequence)
+                                .toList();
+                    }
+                    List<byte[]> result =
+                            readScript(
+                                    conversationId,
+                                    MessageEntries.FIND_SINCE_SCRIPT,
+                                    MessageEntries.bytes(String.valueOf(sequence)));
+                    StoredEntries stored = scriptEntries(result);
+                    metrics.read(stored.entries());
+                    return decode(conversationId, stored);
+                });
+    }
+
+    /**
+     * Runs {@code token_window.lua} or {@code find_since.lua} on a conversation, followed in the
+     * same pipeline by the refresh of its expiry when one is due, as {@link #read(String,
+     * Function)} does.
+     *
+     * @param bound token budget or sequence the script reads up to
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<byte[]> readScript(String conversationId, RedisScript<List> script, byte[] bound) {
+        byte[] storage =
+                MessageEntries.bytes(
+                        config.getStorage() == MessageStorage.STREAM ? "stream" : "list");
+        byte[] step = MessageEntries.bytes(String.valueOf(config.getBatchSize()));
+        if (slidingExpiration == null || !slidingExpiration.due(conversationId)) {
+            return (List<byte[]>)
+                    redisTemplate.execute(
+                            script,
+                            RedisSerializer.byteArray(),
+                            (RedisSerializer) RedisSerializer.byteArray(),
+                            List.of(config.getConversationKey(conversationId)),
+                            storage,
+                            bound,
+                            step);
+        }
+        byte[] key = rawKey(config.getConversationKey(conversationId));
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    connection
+                                            .scriptingCommands()
+                                            .scriptLoad(
+                                                    script.getScriptAsString()
+                                                            .getBytes(StandardCharsets.UTF_8));
+                                    connection
+                                            .scriptingCommands()
+                                            .evalSha(
+                                                    script.getSha1(),
+                                                    ReturnType.MULTI,
+                                                    1,
+                                                    key,
+                                                    storage,
+                                                    bound,
+                                                    step);
+                                    refresh(connection, conversationId);
+                                    return null;
+                                },
+                        null);
+        entries.refreshTexts(List.of(conversationId));
+        return (List<byte[]>) results.get(1);
+    }
+
+    /**
+     * Splits the result of {@code token_window.lua} or {@code find_since.lua} into entries and
+     * stream entry ids.
+     */
+    private StoredEntries scriptEntries(List<byte[]> result) {
+        if (result == null) {
+            return new StoredEntries(List.of(), null);
+        }
+        List<byte[]> stored = new ArrayList<>(result.size() / 2);
+        List<String> ids = new ArrayList<>(result.size() / 2);
+        for (int i = 0; i + 1 < result.size(); i += 2) {
+            ids.add(new String(result.get(i), StandardCharsets.UTF_8));
+            stored.add(result.get(i + 1));
+        }
+        return new StoredEntries(stored, config.getStorage() == MessageStorage.STREAM ? ids : null);
+    }
+
+    /**
+     * Reads the messages of a {@link MessageStorage#STREAM stream} conversation appended after a
+     * given entry, with {@code XRANGE}, letting consumers catch up incrementally instead of
+     * re-reading the whole conversation. Only stored messages are read, not saves pending in
+     * write-behind mode.
+     *
+     * @param entryId {@link #ENTRY_ID} of the last message read, or a time in epoch milliseconds to
+     *     read the messages written after it, {@code null} to read from the start
+     * @param count maximum number of messages to return
+     * @return the messages following the entry, oldest first, each carrying its {@link #ENTRY_ID}
+     */
+    public List<Message> findMessagesAfter(String conversationId, String entryId, int count) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.isTrue(count > 0, "count must be positive");
+        Assert.state(
+                config.getStorage() == MessageStorage.STREAM,
+                "findMessagesAfter requires stream storage");
+        return metrics.observe(
+                "find_after",
+                conversationId,
+                () -> {
+                    byte[] key = rawKey(config.getConversationKey(conversationId));
+                    Range<String> range =
+                            entryId != null
+                                    ? Range.rightUnbounded(Range.Bound.exclusive(entryId))
+                                    : Range.unbounded();
+                    StoredEntries stored =
+                            stored(
+                                    read(
+                                            conversationId,
+                                            connection ->
+                                                    streamCommands(connection)
+                                                            .xRange(
+                                                                    key,
+                                                                    range,
+                                                                    Limit.limit().count(count))));
+                    metrics.read(stored.entries());
+                    return decode(conversationId, stored);
+                });
+    }
+
+    /**
+     * Runs a read of one conversation, followed in the same pipeline by the refresh of its expiry
+     * when one is due.
+     */
+    private Object read(String conversationId, Function<RedisConnection, Object> read) {
+        if (slidingExpiration == null || !slidingExpiration.due(conversationId)) {
+            return redisTemplate.execute((RedisCallback<Object>) read::apply);
+        }
+        Object result =
+                redisTemplate
+                        .executePipelined(
+                                (RedisCallback<Object>)
+                                        connection -> {
+                                            read.apply(connection);
+                                            refresh(connection, conversationId);
+                                            return null;
+                                        },
+                                null)
+                        .get(0);
+        entries.refreshTexts(List.of(conversationId));
+        return result;
+    }
+
+    /** Returns the conversations whose expiry is due for a refresh, recording them as refreshed. */
+    private List<String> refreshesDue(List<String> conversationIds) {
+        if (slidingExpiration == null) {
+            return List.of();
+        }
+        return conversationIds.stream().filter(slidingExpiration::due).toList();
+    }
+
+    /** Refreshes the expiry of conversations read without a round trip to Redis, when due. */
+    private void refresh(List<String> conversationIds) {
+        List<String> refreshes = refreshesDue(conversationIds);
+        if (!refreshes.isEmpty()) {
+            redisTemplate.executePipelined(
+                    (RedisCallback<Object>)
+                            connection -> {
+                                refreshes.forEach(
+                                        conversationId -> refresh(connection, conversationId));
+                                return null;
+                            });
+            entries.refreshTexts(refreshes);
+        }
+    }
+
+    /**
+     * Slides the expiry of a conversation, of its payloads and its last activity in the
+     * conversation id index, leaving conversations that no longer exist alone.
+     */
+    private void refresh(RedisConnection connection, String conversationId) {
+        connection
+                .keyCommands()
+                .expire(rawKey(config.getConversationKey(conversationId)), config.getTimeToLive());
+        if (config.isOffloadPayloads()) {
+            connection
+                    .keyCommands()
+                    .expire(rawKey(config.getPayloadKey(conversationId)), config.getTimeToLive());
+        }
+        connection
+                .zSetCommands()
+                .zAdd(
+                        rawKey(config.getIndexKey()),
+                        System.currentTimeMillis(),
+                        conversationId.getBytes(StandardCharsets.UTF_8),
+                        ZAddArgs.ifExists());
+    }
+
+    /** Issues the read of a whole conversation, an {@code LRANGE} or an {@code XRANGE}. */
+    private Object readAll(RedisConnection connection, String conversationId) {
+        byte[] key = rawKey(config.getConversationKey(conversationId));
+        return config.getStorage() == MessageStorage.STREAM
+                ? streamCommands(connection).xRange(key, Range.unbounded())
+                : connection.listCommands().lRange(key, 0, -1);
+    }
+
+    /**
+     * Returns the stream commands of the native connection: those of the decorating string
+     * connection of a {@code StringRedisTemplate} do not support byte array keys.
+     */
+    private static RedisStreamCommands streamCommands(RedisConnection connection) {
+        return unwrap(connection).streamCommands();
+    }
+
+    /** Returns the native connection behind the one of a {@code StringRedisTemplate}. */
+    private static RedisConnection unwrap(RedisConnection connection) {
+        return connection instanceof DecoratedRedisConnection decorated
+                ? decorated.getDelegate()
+                : connection;
+    }
+
+    /** Unpacks the result of a list or stream read. */
+    @SuppressWarnings("unchecked")
+    private StoredEntries stored(Object result) {
+        if (result == null) {
+            return new StoredEntries(List.of(), null);
+        }
+        if (config.getStorage() != MessageStorage.STREAM) {
+            return new StoredEntries((List<byte[]>) result, null);
+        }
+        List<ByteRecord> records = (List<ByteRecord>) result;
+        List<byte[]> stored = new ArrayList<>(records.size());
+        List<String> ids = new ArrayList<>(records.size());
+        for (ByteRecord record : records) {
+            byte[] entry = null;
+            for (Map.Entry<byte[], byte[]> field : record.getValue().entrySet()) {
+                if (Arrays.equals(field.getKey(), MessageEntries.STREAM_FIELD)) {
+                    entry = field.getValue();
+                }
+            }
+            if (entry != null) {
+                stored.add(entry);
+                ids.add(record.getId().getValue());
+            }
+        }
+        return new StoredEntries(stored, ids);
+    }
+
+    private List<Message> decode(String conversationId, StoredEntries stored) {
+        return entries.decode(
+                conversationId, stored.entries(), stored.ids(), config.isIncrementalSave());
+    }
+
+    /** Entries of a conversation as stored, with their ids in stream storage. */
+    private record StoredEntries(List<byte[]> entries, List<String> ids) {
+
+        StoredEntries reversed() {
+            List<byte[]> reversedEntries = new ArrayList<>(entries);
+            Collections.reverse(reversedEntries);
+            List<String> reversedIds = new ArrayList<>(ids);
+            Collections.reverse(reversedIds);
+            return new StoredEntries(reversedEntries, reversedIds);
+        }
+    }
+
     @Override
     public void saveAll(String conversationId, List<Message> messages) {
         Assert.hasText(conversationId, "conversationId cannot be null or empty");
         Assert.notNull(messages, "messages cannot be null");
         Assert.noNullElements(messages, "messages cannot contain null elements");
+        metrics.observe("save", conversationId, () -> save(conversationId, messages));
+    }
 
-        String key = config.getKeyPrefix() + conversationId;
+    private void save(String conversationId, List<Message> messages) {
+        if (writeBehind != null) {
+            writeBehind.enqueue(conversationId, messages);
+            return;
+        }
 
-        deleteByConversationId(conversationId);
+        String key = config.getConversationKey(conversationId);
+
+        if (messages.isEmpty()) {
+            deleteByConversationId(conversationId);
+            return;
+        }
+
+        if (!config.isIncrementalSave() || !saveIncrementally(conversationId, key, messages)) {
+            executeSaveScript(conversationId, key, 0, messages);
+        }
+        if (nearCache != null) {
+            nearCache.invalidate(conversationId);
+        }
+    }
 
-        List<String> messageJsons =
-                messages.stream()
-                        .map(
-                                message -> {
-                                    try {
-                                        message.getMetadata()
-                                                .put("timestamp", Instant.now().toString());
-                                        return objectMapper.writeValueAsString(message);
-                                    } catch (JsonProcessingException e) {
-                                        throw new RuntimeException("Error serializing message", e);
+    /**
+     * Saves many conversations in pipelined round trips of {@link
+     * RedisChatMemoryRepositoryConfig#getBatchSize()} conversations each, with the same semantics
+     * as {@link #saveAll(String, List)} for every entry.
+     */
+    public void saveAll(Map<String, List<Message>> conversations) {
+        Assert.notNull(conversations, "conversations cannot be null");
+        conversations.forEach(
+                (conversationId, messages) -> {
+                    Assert.hasText(conversationId, "conversationId cannot be null or empty");
+                    Assert.notNull(messages, "messages cannot be null");
+                    Assert.noNullElements(messages, "messages cannot contain null elements");
+                });
+
+        metrics.observe(
+                "save_batch",
+                null,
+                () -> {
+                    if (writeBehind != null) {
+                        conversations.forEach(writeBehind::enqueue);
+                    } else {
+                        writeAll(conversations);
+                    }
+                });
+    }
+
+    /** Writes conversations right away, in write-behind mode too. */
+    private void writeAll(Map<String, List<Message>> conversations) {
+        List<String> emptied = new ArrayList<>();
+        Map<String, Integer> saves = new LinkedHashMap<>();
+        conversations.forEach(
+                (conversationId, messages) -> {
+                    if (messages.isEmpty()) {
+                        emptied.add(conversationId);
+                    } else {
+                        saves.put(
+                                conversationId,
+                                config.isIncrementalSave()
+                                        ? MessageEntries.storedCount(messages)
+                                        : 0);
+                    }
+                });
+
+        delete(emptied);
+        for (List<String> batch : batches(new ArrayList<>(saves.keySet()))) {
+            Map<String, Integer> keep = new LinkedHashMap<>();
+            batch.forEach(conversationId -> keep.put(conversationId, saves.get(conversationId)));
+            List<Long> sizes = executeSaveScripts(keep, conversations);
+
+            Map<String, Integer> rewrites = new LinkedHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                if (sizes.get(i) < 0) {
+                    logger.debug("Stored messages changed for conversationId: " + batch.get(i));
+                    rewrites.put(batch.get(i), 0);
+                }
+            }
+            if (!rewrites.isEmpty()) {
+                executeSaveScripts(rewrites, conversations);
+            }
+        }
+        if (nearCache != null) {
+            saves.keySet().forEach(nearCache::invalidate);
+        }
+    }
+
+    /**
+     * Appends only the messages that are not stored yet. Messages read by {@link
+     * #findByConversationId(String)} carry the digest of their stored entry, so the leading run of
+     * such messages must match the tail of the stored list.
+     *
+     * @return {@code false} if the stored list does not line up with the given messages and the
+     *     conversation has to be rewritten
+     */
+    private boolean saveIncrementally(String conversationId, String key, List<Message> messages) {
+        int stored = MessageEntries.storedCount(messages);
+        if (stored == 0) {
+            return false;
+        }
+        if (executeSaveScript(conversationId, key, stored, messages) < 0) {
+            logger.debug("Stored messages changed for key: " + key + ", rewriting");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Trims or deletes the list, appends the messages after the first {@code keep} and refreshes
+     * the expiry in one atomic round trip, see {@code save_messages.lua}.
+     *
+     * @return the new list length, or {@code -1} if the kept entries no longer match
+     */
+    private long executeSaveScript(
+            String conversationId, String key, int keep, List<Message> messages) {
+        Map<String, String> texts = new LinkedHashMap<>();
+        List<byte[]> args =
+                entries.saveScriptArgs(
+                        conversationId,
+                        config.getTimeToLive(),
+                        keep,
+                        messages,
+                        nearCache != null ? config.getInvalidationChannel() : null,
+                        texts);
+        entries.store(texts);
+        metrics.written(messages.size(), MessageEntries.entryArgs(args));
+        String payloadKey = config.getPayloadKey(conversationId);
+        Long size =
+                redisTemplate.execute(
+                        entries.saveScript(),
+                        RedisSerializer.byteArray(),
+                        new GenericToStringSerializer<>(Long.class),
+                        config.isCluster()
+                                ? List.of(key, payloadKey)
+                                : List.of(key, payloadKey, config.getIndexKey()),
+                        args.toArray());
+        if (size == null || size < 0) {
+            return -1;
+        }
+        saved(List.of(conversationId));
+        return size;
+    }
+
+    /**
+     * Runs {@code save_messages.lua} for every conversation in one pipeline, loading the script
+     * first as {@code EVALSHA} cannot fall back to {@code EVAL} within a pipeline.
+     *
+     * @param keep number of stored messages to keep per conversation
+     * @return the new list lengths in the order of {@code keep}, {@code -1} where the kept entries
+     *     no longer match
+     */
+    private List<Long> executeSaveScripts(
+            Map<String, Integer> keep, Map<String, List<Message>> conversations) {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        List<byte[][]> calls = new ArrayList<>(keep.size());
+        Map<String, String> texts = new LinkedHashMap<>();
+        keep.forEach(
+                (conversationId, stored) -> {
+                    List<byte[]> args =
+                            entries.saveScriptArgs(
+                                    conversationId,
+                                    config.getTimeToLive(),
+                                    stored,
+                                    conversations.get(conversationId),
+                                    nearCache != null ? config.getInvalidationChannel() : null,
+                                    texts);
+                    metrics.written(
+                            conversations.get(conversationId).size(),
+                            MessageEntries.entryArgs(args));
+                    args.add(0, rawKey(config.getConversationKey(conversationId)));
+                    args.add(1, rawKey(config.getPayloadKey(conversationId)));
+                    if (!config.isCluster()) {
+                        args.add(2, indexKey);
+                    }
+                    calls.add(args.toArray(new byte[0][]));
+                });
+
+        entries.store(texts);
+
+        RedisScript<Long> script = entries.saveScript();
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    connection
+                                            .scriptingCommands()
+                                            .scriptLoad(
+                                                    script.getScriptAsString()
+                                                            .getBytes(StandardCharsets.UTF_8));
+                                    for (byte[][] keysAndArgs : calls) {
+                                        connection
+                                                .scriptingCommands()
+                                                .evalSha(
+                                                        script.getSha1(),
+                                                        ReturnType.INTEGER,
+                                                        config.isCluster() ? 2 : 3,
+                                                        keysAndArgs);
                                     }
-                                })
+                                    return null;
+                                });
+        List<Long> sizes =
+                results.subList(1, results.size()).stream()
+                        .map(size -> size == null ? -1L : (Long) size)
                         .toList();
+        List<String> saved = new ArrayList<>();
+        List<String> conversationIds = new ArrayList<>(keep.keySet());
+        for (int i = 0; i < sizes.size(); i++) {
+            if (sizes.get(i) >= 0) {
+                saved.add(conversationIds.get(i));
+            }
+        }
+        saved(saved);
+        return sizes;
+    }
+
+    /**
+     * Completes the saves of conversations: the save scripts set their expiry but not that of the
+     * texts they share, and cannot reach the conversation id index in cluster mode.
+     */
+    private void saved(List<String> conversationIds) {
+        if (slidingExpiration != null) {
+            conversationIds.forEach(slidingExpiration::refreshed);
+        }
+        entries.refreshTexts(conversationIds);
+        if (config.isCluster()) {
+            index(conversationIds);
+        }
+    }
 
-        redisTemplate.opsForList().rightPushAll(key, messageJsons);
-        if (config.getTimeToLive() > 0) {
-            redisTemplate.expire(key, config.getTimeToLive(), TimeUnit.SECONDS);
+    /** Records the last activity of saved conversations in the conversation id index. */
+    private void index(List<String> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return;
         }
+        byte[] indexKey = rawKey(config.getIndexKey());
+        double score = System.currentTimeMillis();
+        Set<Tuple> tuples = new HashSet<>();
+        conversationIds.forEach(
+                conversationId ->
+                        tuples.add(
+                                new DefaultTuple(
+                                        conversationId.getBytes(StandardCharsets.UTF_8), score)));
+        redisTemplate.execute(
+                (RedisCallback<Long>)
+                        connection -> connection.zSetCommands().zAdd(indexKey, tuples));
     }
 
     @Override
     public void deleteByConversationId(String conversationId) {
         Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        metrics.observe(
+                "delete",
+                conversationId,
+                () -> {
+                    if (writeBehind != null) {
+                        writeBehind.enqueue(conversationId, List.of());
+                    } else {
+                        delete(List.of(conversationId));
+                    }
+                });
+    }
 
-        String key = config.getKeyPrefix() + conversationId;
-        redisTemplate.delete(key);
-    }
-
-    private Message getMessage(JsonNode jsonNode) {
-        String type =
-                Optional.ofNullable(jsonNode)
-                        .map(node -> node.get("messageType"))
-                        .map(JsonNode::asText)
-                        .orElse(MessageType.USER.getValue());
-        MessageType messageType = MessageType.valueOf(type.toUpperCase());
-
-        String textContent =
-                Optional.ofNullable(jsonNode)
-                        .map(node -> node.get("text"))
-                        .map(JsonNode::asText)
-                        .orElseGet(
-                                () ->
-                                        (messageType == MessageType.SYSTEM
-                                                        || messageType == MessageType.USER)
-                                                ? ""
-                                                : null);
+    /**
+     * Deletes many conversations in pipelined round trips of {@link
+     * RedisChatMemoryRepositoryConfig#getBatchSize()} conversations each, with the same semantics
+     * as {@link #deleteByConversationId(String)} for every entry.
+     */
+    public void deleteByConversationIds(Collection<String> conversationIds) {
+        Assert.notNull(conversationIds, "conversationIds cannot be null");
+        conversationIds.forEach(
+                conversationId ->
+                        Assert.hasText(conversationId, "conversationId cannot be null or empty"));
+        metrics.observe(
+                "delete_batch",
+                null,
+                () -> {
+                    if (writeBehind != null) {
+                        conversationIds.forEach(
+                                conversationId -> writeBehind.enqueue(conversationId, List.of()));
+                    } else {
+                        delete(new ArrayList<>(new LinkedHashSet<>(conversationIds)));
+                    }
+                });
+    }
 
-        Map<String, Object> metadata =
-                Optional.ofNullable(jsonNode)
-                        .map(node -> node.get("metadata"))
-                        .map(
-                                node ->
-                                        objectMapper.convertValue(
-                                                node, new TypeReference<Map<String, Object>>() {}))
-                        .orElse(new HashMap<>());
-        metadata.put("timestamp", Instant.now().toString());
+    /**
+     * Deletes the conversations idle for longer than {@code maxIdle}, pausing {@value
+     * #DEFAULT_PURGE_PAUSE_MILLIS}ms between batches.
+     *
+     * @return the number of conversations deleted
+     * @see #purgeIdleConversations(Duration, Duration)
+     */
+    public long purgeIdleConversations(Duration maxIdle) {
+        return purgeIdleConversations(maxIdle, Duration.ofMillis(DEFAULT_PURGE_PAUSE_MILLIS));
+    }
 
-        return switch (messageType) {
-            case ASSISTANT -> new AssistantMessage(textContent, metadata);
-            case USER -> UserMessage.builder().text(textContent).metadata(metadata).build();
-            case SYSTEM -> SystemMessage.builder().text(textContent).metadata(metadata).build();
-            case TOOL -> new ToolResponseMessage(List.of(), metadata);
-        };
+    /**
+     * Deletes the conversations last active longer than {@code maxIdle} ago according to the
+     * conversation id index, in batches of {@link RedisChatMemoryRepositoryConfig#getBatchSize()}
+     * conversations separated by a pause, so that purging many conversations does not compete with
+     * the traffic of the application. Conversations missing from the index, such as those saved
+     * before it existed, are only found after {@link #reindexConversationIds()}. A conversation
+     * saved again while it is being purged may be deleted nonetheless.
+     *
+     * @param pause time to wait between two batches, {@link Duration#ZERO} for none
+     * @return the number of conversations deleted, up to the interruption of the calling thread
+     */
+    public long purgeIdleConversations(Duration maxIdle, Duration pause) {
+        Assert.notNull(maxIdle, "maxIdle cannot be null");
+        Assert.isTrue(!maxIdle.isNegative(), "maxIdle cannot be negative");
+        Assert.notNull(pause, "pause cannot be null");
+        Assert.isTrue(!pause.isNegative(), "pause cannot be negative");
+        return metrics.observe("purge", null, () -> purge(maxIdle, pause, null));
+    }
+
+    /**
+     * Moves the conversations last active longer than {@code maxIdle} ago out of Redis: each batch
+     * of idle conversations is read and handed to {@code archive}, such as a cold store, before it
+     * is deleted, as with {@link #purgeIdleConversations(Duration, Duration)}. The archived
+     * messages carry neither {@link #ENTRY_DIGEST} nor {@link #ENTRY_ID}, and reading them does not
+     * refresh their expiry. Conversations saved again while their batch is archived are kept, and
+     * an exception thrown by {@code archive} stops the purge before its batch is deleted.
+     *
+     * @param archive receives each batch of idle conversations, by conversation id
+     * @return the number of conversations deleted, up to the interruption of the calling thread
+     */
+    public long purgeIdleConversations(
+            Duration maxIdle, Duration pause, Consumer<Map<String, List<Message>>> archive) {
+        Assert.notNull(maxIdle, "maxIdle cannot be null");
+        Assert.isTrue(!maxIdle.isNegative(), "maxIdle cannot be negative");
+        Assert.notNull(pause, "pause cannot be null");
+        Assert.isTrue(!pause.isNegative(), "pause cannot be negative");
+        Assert.notNull(archive, "archive cannot be null");
+        return metrics.observe("archive", null, () -> purge(maxIdle, pause, archive));
+    }
+
+    private long purge(
+            Duration maxIdle, Duration pause, Consumer<Map<String, List<Message>>> archive) {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        double idleSince = System.currentTimeMillis() - maxIdle.toMillis();
+        long purged = 0;
+        while (true) {
+            // Deleted conversations leave the index, so every round reads the next batch
+            Set<byte[]> idle =
+                    redisTemplate.execute(
+                            (RedisCallback<Set<byte[]>>)
+                                    connection ->
+                                            connection
+                                                    .zSetCommands()
+                                                    .zRangeByScore(
+                                                            indexKey,
+                                                            Range.leftUnbounded(
+                                                                    Range.Bound.inclusive(
+                                                                            idleSince)),
+                                                            Limit.limit()
+                                                                    .count(config.getBatchSize())));
+            if (idle == null || idle.isEmpty()) {
+                return purged;
+            }
+            List<String> conversationIds =
+                    idle.stream()
+                            .map(
+                                    conversationId ->
+                                            new String(conversationId, StandardCharsets.UTF_8))
+                            .toList();
+            if (archive != null) {
+                archive.accept(archived(findAll(conversationIds, false)));
+                conversationIds = stillIdle(conversationIds, idleSince);
+            }
+            delete(conversationIds);
+            purged += conversationIds.size();
+            if (idle.size() < config.getBatchSize()) {
+                return purged;
+            }
+            if (!pause.isZero()) {
+                try {
+                    Thread.sleep(pause.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return purged;
+                }
+            }
+        }
+    }
+
+    /** Copies conversations without the metadata tying their messages to the stored entries. */
+    private static Map<String, List<Message>> archived(Map<String, List<Message>> conversations) {
+        Map<String, List<Message>> archived = new LinkedHashMap<>();
+        conversations.forEach(
+                (conversationId, messages) ->
+                        archived.put(
+                                conversationId,
+                                messages.stream()
+                                        .map(
+                                                message -> {
+                                                    Message copy = MessageEntries.copy(message);
+                                                    copy.getMetadata().remove(ENTRY_DIGEST);
+                                                    copy.getMetadata().remove(ENTRY_ID);
+                                                    return copy;
+                                                })
+                                        .toList()));
+        return archived;
+    }
+
+    /** Filters out the conversations saved again since they were found idle. */
+    private List<String> stillIdle(List<String> conversationIds, double idleSince) {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        List<Object> scores =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    for (String conversationId : conversationIds) {
+                                        connection
+                                                .zSetCommands()
+                                                .zScore(
+                                                        indexKey,
+                                                        MessageEntries.bytes(conversationId));
+                                    }
+                                    return null;
+                                });
+        List<String> idle = new ArrayList<>(conversationIds.size());
+        for (int i = 0; i < conversationIds.size(); i++) {
+            if (!(scores.get(i) instanceof Double score) || score <= idleSince) {
+                idle.add(conversationIds.get(i));
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * Writes the conversations pending in write-behind mode right away, returning once they are
+     * stored. Does nothing when write-behind is disabled.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            metrics.observe("flush", null, writeBehind::flush);
+        }
+    }
+
+    /**
+     * Deletes conversations right away, in pipelined round trips of one batch each, bypassing the
+     * write-behind queue.
+     */
+    void delete(List<String> conversationIds) {
+        byte[] indexKey = rawKey(config.getIndexKey());
+        for (List<String> batch : batches(conversationIds)) {
+            redisTemplate.executePipelined(
+                    (RedisCallback<Object>)
+                            connection -> {
+                                for (String conversationId : batch) {
+                                    byte[] member = conversationId.getBytes(StandardCharsets.UTF_8);
+                                    // UNLINK frees long conversations off the main thread
+                                    connection
+                                            .keyCommands()
+                                            .unlink(
+                                                    rawKey(
+                                                            config.getConversationKey(
+                                                                    conversationId)),
+                                                    rawKey(config.getPayloadKey(conversationId)));
+                                    connection.zSetCommands().zRem(indexKey, member);
+                                    if (nearCache != null) {
+                                        connection.publish(
+                                                config.getInvalidationChannel()
+                                                        .getBytes(StandardCharsets.UTF_8),
+                                                member);
+                                    }
+                                }
+                                return null;
+                            });
+        }
+        if (nearCache != null) {
+            conversationIds.forEach(nearCache::invalidate);
+        }
+    }
+
+    private List<List<String>> batches(List<String> conversationIds) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < conversationIds.size(); from += config.getBatchSize()) {
+            batches.add(
+                    conversationIds.subList(
+                            from, Math.min(from + config.getBatchSize(), conversationIds.size())));
+        }
+        return batches;
+    }
+
+    /**
+     * Writes the conversations pending in write-behind mode and stops listening for near cache
+     * invalidations. Saves and deletes in write-behind mode then throw {@link
+     * IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (invalidationListener != null) {
+            try {
+                invalidationListener.destroy();
+            } catch (Exception e) {
+                logger.warn("Error stopping the near cache invalidation listener", e);
+            }
+            nearCache.invalidateAll();
+        }
+    }
+
+    /** Index entries last active before this instant have outlived the time to live. */
+    private double expiredBefore() {
+        return System.currentTimeMillis() - config.getTimeToLive() * 1000d;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<String> keySerializer() {
+        return (RedisSerializer<String>) redisTemplate.getKeySerializer();
+    }
+
+    private byte[] rawKey(String key) {
+        return keySerializer().serialize(key);
+    }
+
+    /** Returns {@code null} for keys written through a different key serializer. */
+    private String deserializeKey(byte[] rawKey) {
+        try {
+            return keySerializer().deserialize(rawKey);
+        } catch (SerializationException e) {
+            return null;
+        }
     }
 
     public static Builder builder() {
@@ -207,6 +1579,138 @@ public final class RedisChatMemoryRepository implements ChatMemoryRepository {
             return this;
         }
 
+        public Builder indexKey(String indexKey) {
+            this.builder.withIndexKey(indexKey);
+            return this;
+        }
+
+        public Builder incrementalSave(boolean incrementalSave) {
+            this.builder.withIncrementalSave(incrementalSave);
+            return this;
+        }
+
+        public Builder nearCacheMaxEntries(int nearCacheMaxEntries) {
+            this.builder.withNearCacheMaxEntries(nearCacheMaxEntries);
+            return this;
+        }
+
+        public Builder nearCacheMaxBytes(long nearCacheMaxBytes) {
+            this.builder.withNearCacheMaxBytes(nearCacheMaxBytes);
+            return this;
+        }
+
+        public Builder nearCacheTimeToLive(String nearCacheTimeToLive) {
+            this.builder.withNearCacheTimeToLive(nearCacheTimeToLive);
+            return this;
+        }
+
+        public Builder codec(MessageCodec codec) {
+            this.builder.withCodec(codec);
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.builder.withBatchSize(batchSize);
+            return this;
+        }
+
+        public Builder writeBehind(boolean writeBehind) {
+            this.builder.withWriteBehind(writeBehind);
+            return this;
+        }
+
+        public Builder writeBehindMaxDelay(String writeBehindMaxDelay) {
+            this.builder.withWriteBehindMaxDelay(writeBehindMaxDelay);
+            return this;
+        }
+
+        public Builder writeBehindMaxPending(int writeBehindMaxPending) {
+            this.builder.withWriteBehindMaxPending(writeBehindMaxPending);
+            return this;
+        }
+
+        public Builder observationRegistry(ObservationRegistry observationRegistry) {
+            this.builder.withObservationRegistry(observationRegistry);
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.builder.withMeterRegistry(meterRegistry);
+            return this;
+        }
+
+        public Builder compression(MessageCompression compression) {
+            this.builder.withCompression(compression);
+            return this;
+        }
+
+        public Builder compressionThreshold(int compressionThreshold) {
+            this.builder.withCompressionThreshold(compressionThreshold);
+            return this;
+        }
+
+        public Builder storage(MessageStorage storage) {
+            this.builder.withStorage(storage);
+            return this;
+        }
+
+        public Builder cluster(boolean cluster) {
+            this.builder.withCluster(cluster);
+            return this;
+        }
+
+        public Builder slidingExpiration(boolean slidingExpiration) {
+            this.builder.withSlidingExpiration(slidingExpiration);
+            return this;
+        }
+
+        public Builder slidingExpirationInterval(String slidingExpirationInterval) {
+            this.builder.withSlidingExpirationInterval(slidingExpirationInterval);
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.builder.withTokenCountEstimator(tokenCountEstimator);
+            return this;
+        }
+
+        /**
+         * Store shared message texts once, see {@link RedisChatMemoryRepositoryConfig#isDedupe()}.
+         */
+        public Builder dedupe(boolean dedupe) {
+            this.builder.withDedupe(dedupe);
+            return this;
+        }
+
+        public Builder dedupeThreshold(int dedupeThreshold) {
+            this.builder.withDedupeThreshold(dedupeThreshold);
+            return this;
+        }
+
+        public Builder dedupeMessageTypes(Set<MessageType> dedupeMessageTypes) {
+            this.builder.withDedupeMessageTypes(dedupeMessageTypes);
+            return this;
+        }
+
+        public Builder dedupeCacheMaxEntries(int dedupeCacheMaxEntries) {
+            this.builder.withDedupeCacheMaxEntries(dedupeCacheMaxEntries);
+            return this;
+        }
+
+        /**
+         * Store large tool call arguments, tool responses and media data out of line, see {@link
+         * RedisChatMemoryRepositoryConfig#isOffloadPayloads()}.
+         */
+        public Builder offloadPayloads(boolean offloadPayloads) {
+            this.builder.withOffloadPayloads(offloadPayloads);
+            return this;
+        }
+
+        public Builder offloadThreshold(int offloadThreshold) {
+            this.builder.withOffloadThreshold(offloadThreshold);
+            return this;
+        }
+
         public Builder redisTemplate(RedisTemplate<String, String> redisTemplate) {
             this.builder.withRedisTemplate(redisTemplate);
             return this;
@@ -1,8 +1,16 @@
 package org.springframework.ai.chat.memory.repository.redis;
 
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 
 import java.time.Duration;
+import java.util.Set;
 
 /** redis chat memory repository config */
 public class RedisChatMemoryRepositoryConfig {
@@ -11,10 +19,103 @@ public class RedisChatMemoryRepositoryConfig {
 
     public static final String DEFAULT_TIME_TO_LIVE = "-1";
 
+    /**
+     * Appended to the key prefix, without its trailing colon, to name the conversation id index
+     * when no index key is configured, so the index never collides with a conversation key.
+     */
+    public static final String DEFAULT_INDEX_KEY_SUFFIX = "_index";
+
+    /** Appended like {@link #DEFAULT_INDEX_KEY_SUFFIX} to name the invalidation channel. */
+    public static final String DEFAULT_INVALIDATION_CHANNEL_SUFFIX = "_invalidation";
+
+    /**
+     * Appended like {@link #DEFAULT_INDEX_KEY_SUFFIX} to prefix the message texts shared by
+     * deduplication.
+     */
+    public static final String DEFAULT_SHARED_TEXT_KEY_PREFIX_SUFFIX = "_text:";
+
+    /**
+     * Appended like {@link #DEFAULT_INDEX_KEY_SUFFIX} to prefix the hashes holding the payloads of
+     * conversations stored out of line.
+     */
+    public static final String DEFAULT_PAYLOAD_KEY_PREFIX_SUFFIX = "_payload:";
+
+    public static final String DEFAULT_NEAR_CACHE_TIME_TO_LIVE = "60s";
+
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    public static final String DEFAULT_WRITE_BEHIND_MAX_DELAY = "100ms";
+
+    public static final int DEFAULT_WRITE_BEHIND_MAX_PENDING = 10_000;
+
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    public static final int DEFAULT_DEDUPE_THRESHOLD = 1024;
+
+    public static final int DEFAULT_DEDUPE_CACHE_MAX_ENTRIES = 1000;
+
+    public static final int DEFAULT_OFFLOAD_THRESHOLD = 4096;
+
     private final String keyPrefix;
 
     private final long timeToLive;
 
+    private final String indexKey;
+
+    private final String invalidationChannel;
+
+    private final String sharedTextKeyPrefix;
+
+    private final String payloadKeyPrefix;
+
+    private final boolean incrementalSave;
+
+    private final int nearCacheMaxEntries;
+
+    private final long nearCacheMaxBytes;
+
+    private final long nearCacheTimeToLive;
+
+    private final MessageCodec codec;
+
+    private final int batchSize;
+
+    private final boolean writeBehind;
+
+    private final long writeBehindMaxDelay;
+
+    private final int writeBehindMaxPending;
+
+    private final ObservationRegistry observationRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    private final MessageCompression compression;
+
+    private final int compressionThreshold;
+
+    private final MessageStorage storage;
+
+    private final boolean cluster;
+
+    private final boolean slidingExpiration;
+
+    private final long slidingExpirationInterval;
+
+    private final TokenCountEstimator tokenCountEstimator;
+
+    private final boolean dedupe;
+
+    private final int dedupeThreshold;
+
+    private final Set<MessageType> dedupeMessageTypes;
+
+    private final int dedupeCacheMaxEntries;
+
+    private final boolean offloadPayloads;
+
+    private final int offloadThreshold;
+
     private final RedisTemplate<String, String> redisTemplate;
 
     public String getKeyPrefix() {
@@ -25,6 +126,170 @@ public class RedisChatMemoryRepositoryConfig {
         return timeToLive;
     }
 
+    public String getIndexKey() {
+        return indexKey;
+    }
+
+    /** Pub/sub channel announcing changed conversations to the near caches of other nodes. */
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    /** Prefix of the message texts shared by deduplication, followed by their SHA-256. */
+    public String getSharedTextKeyPrefix() {
+        return sharedTextKeyPrefix;
+    }
+
+    /** Prefix of the hashes holding the payloads of a conversation stored out of line. */
+    public String getPayloadKeyPrefix() {
+        return payloadKeyPrefix;
+    }
+
+    public boolean isIncrementalSave() {
+        return incrementalSave;
+    }
+
+    public int getNearCacheMaxEntries() {
+        return nearCacheMaxEntries;
+    }
+
+    public long getNearCacheMaxBytes() {
+        return nearCacheMaxBytes;
+    }
+
+    /** Maximum age of a near cache entry in milliseconds, {@code <= 0} for no limit. */
+    public long getNearCacheTimeToLive() {
+        return nearCacheTimeToLive;
+    }
+
+    public MessageCodec getCodec() {
+        return codec;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    public long getWriteBehindMaxDelay() {
+        return writeBehindMaxDelay;
+    }
+
+    public int getWriteBehindMaxPending() {
+        return writeBehindMaxPending;
+    }
+
+    public ObservationRegistry getObservationRegistry() {
+        return observationRegistry;
+    }
+
+    public MeterRegistry getMeterRegistry() {
+        return meterRegistry;
+    }
+
+    public MessageCompression getCompression() {
+        return compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public MessageStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Whether keys are laid out for Redis Cluster. Conversation ids are then wrapped in a hash tag,
+     * {@code prefix{conversationId}}, so that all keys of a conversation map to the same slot and
+     * can be written by one script, while the conversation id index, which lives in a slot of its
+     * own, is updated next to the scripts rather than by them.
+     */
+    public boolean isCluster() {
+        return cluster;
+    }
+
+    /** Key of the messages of a conversation. */
+    public String getConversationKey(String conversationId) {
+        return keyPrefix + hashTag(conversationId);
+    }
+
+    /** Key of the hash holding the payloads of a conversation stored out of line. */
+    public String getPayloadKey(String conversationId) {
+        return payloadKeyPrefix + hashTag(conversationId);
+    }
+
+    private String hashTag(String conversationId) {
+        return cluster ? "{" + conversationId + "}" : conversationId;
+    }
+
+    /**
+     * Whether reads refresh the time to live of the conversations they read, so that a conversation
+     * only expires once it has been neither written nor read for the time to live. Refreshes are
+     * debounced per conversation, see {@link #getSlidingExpirationInterval()}.
+     */
+    public boolean isSlidingExpiration() {
+        return slidingExpiration;
+    }
+
+    /**
+     * Shortest time in milliseconds between two refreshes of the expiry of a conversation by the
+     * reads of one repository.
+     */
+    public long getSlidingExpirationInterval() {
+        return slidingExpirationInterval;
+    }
+
+    public TokenCountEstimator getTokenCountEstimator() {
+        return tokenCountEstimator;
+    }
+
+    /**
+     * Whether the texts of large messages, or of the {@link #getDedupeMessageTypes() chosen types},
+     * are stored once under a key named after their SHA-256 and shared by every message holding
+     * them, such as a system prompt repeated by all conversations. Entries then only hold a
+     * reference to the text, which reads resolve in one {@code MGET}. Shared texts expire after the
+     * conversations referring to them, so deduplication requires a {@link #getTimeToLive() time to
+     * live}.
+     */
+    public boolean isDedupe() {
+        return dedupe;
+    }
+
+    /** Size in bytes from which message texts are shared when deduplicating. */
+    public int getDedupeThreshold() {
+        return dedupeThreshold;
+    }
+
+    /** Types of the messages whose texts are shared whatever their size when deduplicating. */
+    public Set<MessageType> getDedupeMessageTypes() {
+        return dedupeMessageTypes;
+    }
+
+    /** Maximum number of shared texts kept in the local cache. */
+    public int getDedupeCacheMaxEntries() {
+        return dedupeCacheMaxEntries;
+    }
+
+    /**
+     * Whether tool call arguments, tool responses and media data of at least the {@link
+     * #getOffloadThreshold() offload threshold} are stored out of line, in a hash of their
+     * conversation, so that the conversation list only holds references to them and stays small.
+     * Reads fetch the payloads of the messages they return with one {@code HMGET}, eagerly rather
+     * than on first access, as messages and media cannot defer their contents.
+     */
+    public boolean isOffloadPayloads() {
+        return offloadPayloads;
+    }
+
+    /** Size in bytes from which payloads are stored out of line. */
+    public int getOffloadThreshold() {
+        return offloadThreshold;
+    }
+
     public RedisTemplate<String, String> getRedisTemplate() {
         return redisTemplate;
     }
@@ -32,6 +297,71 @@ public class RedisChatMemoryRepositoryConfig {
     private RedisChatMemoryRepositoryConfig(Builder builder) {
         this.keyPrefix = builder.keyPrefix;
         this.timeToLive = parseTimeToSeconds(builder.timeToLive);
+        this.indexKey =
+                StringUtils.hasText(builder.indexKey)
+                        ? builder.indexKey
+                        : StringUtils.trimTrailingCharacter(builder.keyPrefix, ':')
+                                + DEFAULT_INDEX_KEY_SUFFIX;
+        this.invalidationChannel =
+                StringUtils.trimTrailingCharacter(builder.keyPrefix, ':')
+                        + DEFAULT_INVALIDATION_CHANNEL_SUFFIX;
+        this.sharedTextKeyPrefix =
+                StringUtils.trimTrailingCharacter(builder.keyPrefix, ':')
+                        + DEFAULT_SHARED_TEXT_KEY_PREFIX_SUFFIX;
+        this.payloadKeyPrefix =
+                StringUtils.trimTrailingCharacter(builder.keyPrefix, ':')
+                        + DEFAULT_PAYLOAD_KEY_PREFIX_SUFFIX;
+        this.incrementalSave = builder.incrementalSave;
+        this.nearCacheMaxEntries = builder.nearCacheMaxEntries;
+        this.nearCacheMaxBytes = builder.nearCacheMaxBytes;
+        this.nearCacheTimeToLive = parseTimeToMillis(builder.nearCacheTimeToLive);
+        Assert.isTrue(
+                this.nearCacheTimeToLive >= 0 || "-1".equals(builder.nearCacheTimeToLive),
+                "nearCacheTimeToLive must be a duration such as 500ms or 60s, or -1 for no limit");
+        this.codec = builder.codec;
+        Assert.isTrue(builder.batchSize > 0, "batchSize must be positive");
+        this.batchSize = builder.batchSize;
+        this.writeBehind = builder.writeBehind;
+        this.writeBehindMaxDelay = parseTimeToMillis(builder.writeBehindMaxDelay);
+        Assert.isTrue(
+                !builder.writeBehind || this.writeBehindMaxDelay > 0,
+                "writeBehindMaxDelay must be positive");
+        Assert.isTrue(
+                !builder.writeBehind || builder.writeBehindMaxPending > 0,
+                "writeBehindMaxPending must be positive");
+        this.writeBehindMaxPending = builder.writeBehindMaxPending;
+        this.observationRegistry = builder.observationRegistry;
+        this.meterRegistry = builder.meterRegistry;
+        this.compression = builder.compression;
+        Assert.notNull(builder.compression, "compression cannot be null");
+        Assert.isTrue(builder.compressionThreshold >= 0, "compressionThreshold cannot be negative");
+        this.compressionThreshold = builder.compressionThreshold;
+        this.storage = builder.storage;
+        this.cluster = builder.cluster;
+        this.slidingExpiration = builder.slidingExpiration;
+        Assert.isTrue(
+                !builder.slidingExpiration || this.timeToLive > 0,
+                "slidingExpiration requires a timeToLive");
+        this.slidingExpirationInterval =
+                StringUtils.hasText(builder.slidingExpirationInterval)
+                        ? parseTimeToMillis(builder.slidingExpirationInterval)
+                        : this.timeToLive * 100;
+        Assert.isTrue(
+                !builder.slidingExpiration || this.slidingExpirationInterval > 0,
+                "slidingExpirationInterval must be positive");
+        this.tokenCountEstimator = builder.tokenCountEstimator;
+        this.dedupe = builder.dedupe;
+        Assert.isTrue(!builder.dedupe || this.timeToLive > 0, "dedupe requires a timeToLive");
+        Assert.isTrue(builder.dedupeThreshold >= 0, "dedupeThreshold cannot be negative");
+        this.dedupeThreshold = builder.dedupeThreshold;
+        Assert.notNull(builder.dedupeMessageTypes, "dedupeMessageTypes cannot be null");
+        this.dedupeMessageTypes = Set.copyOf(builder.dedupeMessageTypes);
+        Assert.isTrue(
+                builder.dedupeCacheMaxEntries >= 0, "dedupeCacheMaxEntries cannot be negative");
+        this.dedupeCacheMaxEntries = builder.dedupeCacheMaxEntries;
+        this.offloadPayloads = builder.offloadPayloads;
+        Assert.isTrue(builder.offloadThreshold >= 0, "offloadThreshold cannot be negative");
+        this.offloadThreshold = builder.offloadThreshold;
         this.redisTemplate = builder.redisTemplate;
     }
 
@@ -49,6 +379,14 @@ public class RedisChatMemoryRepositoryConfig {
         return duration.getSeconds();
     }
 
+    private long parseTimeToMillis(String time) {
+        if (time != null && time.endsWith("ms")) {
+            return Long.parseLong(time.substring(0, time.length() - 2));
+        }
+        long seconds = parseTimeToSeconds(time);
+        return seconds < 0 ? -1 : seconds * 1000;
+    }
+
     private String convertToIso8601(String time) {
         String value = time.replaceAll("[^\\d]", "");
         String unit = time.replaceAll("[\\d]", "");
@@ -73,6 +411,56 @@ public class RedisChatMemoryRepositoryConfig {
 
         private String timeToLive = DEFAULT_TIME_TO_LIVE;
 
+        private String indexKey;
+
+        private boolean incrementalSave = false;
+
+        private int nearCacheMaxEntries = 0;
+
+        private long nearCacheMaxBytes = 0;
+
+        private String nearCacheTimeToLive = DEFAULT_NEAR_CACHE_TIME_TO_LIVE;
+
+        private MessageCodec codec = new JsonMessageCodec();
+
+        private int batchSize = DEFAULT_BATCH_SIZE;
+
+        private boolean writeBehind = false;
+
+        private String writeBehindMaxDelay = DEFAULT_WRITE_BEHIND_MAX_DELAY;
+
+        private int writeBehindMaxPending = DEFAULT_WRITE_BEHIND_MAX_PENDING;
+
+        private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+        private MeterRegistry meterRegistry;
+
+        private MessageCompression compression = MessageCompression.NONE;
+
+        private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+        private MessageStorage storage = MessageStorage.LIST;
+
+        private boolean cluster = false;
+
+        private boolean slidingExpiration = false;
+
+        private String slidingExpirationInterval;
+
+        private TokenCountEstimator tokenCountEstimator;
+
+        private boolean dedupe = false;
+
+        private int dedupeThreshold = DEFAULT_DEDUPE_THRESHOLD;
+
+        private Set<MessageType> dedupeMessageTypes = Set.of();
+
+        private int dedupeCacheMaxEntries = DEFAULT_DEDUPE_CACHE_MAX_ENTRIES;
+
+        private boolean offloadPayloads = false;
+
+        private int offloadThreshold = DEFAULT_OFFLOAD_THRESHOLD;
+
         private RedisTemplate<String, String> redisTemplate;
 
         private Builder() {}
@@ -85,6 +473,106 @@ public class RedisChatMemoryRepositoryConfig {
             return this.timeToLive;
         }
 
+        public String getIndexKey() {
+            return this.indexKey;
+        }
+
+        public boolean isIncrementalSave() {
+            return this.incrementalSave;
+        }
+
+        public int getNearCacheMaxEntries() {
+            return this.nearCacheMaxEntries;
+        }
+
+        public long getNearCacheMaxBytes() {
+            return this.nearCacheMaxBytes;
+        }
+
+        public String getNearCacheTimeToLive() {
+            return this.nearCacheTimeToLive;
+        }
+
+        public MessageCodec getCodec() {
+            return this.codec;
+        }
+
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        public boolean isWriteBehind() {
+            return this.writeBehind;
+        }
+
+        public String getWriteBehindMaxDelay() {
+            return this.writeBehindMaxDelay;
+        }
+
+        public int getWriteBehindMaxPending() {
+            return this.writeBehindMaxPending;
+        }
+
+        public ObservationRegistry getObservationRegistry() {
+            return this.observationRegistry;
+        }
+
+        public MeterRegistry getMeterRegistry() {
+            return this.meterRegistry;
+        }
+
+        public MessageCompression getCompression() {
+            return this.compression;
+        }
+
+        public int getCompressionThreshold() {
+            return this.compressionThreshold;
+        }
+
+        public MessageStorage getStorage() {
+            return this.storage;
+        }
+
+        public boolean isCluster() {
+            return this.cluster;
+        }
+
+        public boolean isSlidingExpiration() {
+            return this.slidingExpiration;
+        }
+
+        public String getSlidingExpirationInterval() {
+            return this.slidingExpirationInterval;
+        }
+
+        public TokenCountEstimator getTokenCountEstimator() {
+            return this.tokenCountEstimator;
+        }
+
+        public boolean isDedupe() {
+            return this.dedupe;
+        }
+
+        public int getDedupeThreshold() {
+            return this.dedupeThreshold;
+        }
+
+        public Set<MessageType> getDedupeMessageTypes() {
+            return this.dedupeMessageTypes;
+        }
+
+        public int getDedupeCacheMaxEntries() {
+            return this.dedupeCacheMaxEntries;
+        }
+
+        public boolean isOffloadPayloads() {
+            return this.offloadPayloads;
+        }
+
+        public int getOffloadThreshold() {
+            return this.offloadThreshold;
+        }
+
         public RedisTemplate<String, String> getRedisTemplate() {
             return this.redisTemplate;
         }
@@ -99,6 +587,196 @@ public class RedisChatMemoryRepositoryConfig {
             return this;
         }
 
+        /**
+         * Key of the sorted set indexing conversation ids by last activity, derived from the key
+         * prefix when not set.
+         */
+        public Builder withIndexKey(String indexKey) {
+            this.indexKey = indexKey;
+            return this;
+        }
+
+        /**
+         * When enabled, {@code saveAll} only appends the messages that are not stored yet and trims
+         * the evicted head instead of rewriting the whole conversation.
+         */
+        public Builder withIncrementalSave(boolean incrementalSave) {
+            this.incrementalSave = incrementalSave;
+            return this;
+        }
+
+        /** Maximum number of conversations kept in the local near cache, {@code 0} disables it. */
+        public Builder withNearCacheMaxEntries(int nearCacheMaxEntries) {
+            this.nearCacheMaxEntries = nearCacheMaxEntries;
+            return this;
+        }
+
+        /**
+         * Maximum total size of the stored entries kept in the near cache, {@code 0} for no limit.
+         */
+        public Builder withNearCacheMaxBytes(long nearCacheMaxBytes) {
+            this.nearCacheMaxBytes = nearCacheMaxBytes;
+            return this;
+        }
+
+        /**
+         * Maximum age of a near cache entry, bounding staleness should an invalidation be missed.
+         */
+        public Builder withNearCacheTimeToLive(String nearCacheTimeToLive) {
+            this.nearCacheTimeToLive = nearCacheTimeToLive;
+            return this;
+        }
+
+        /**
+         * Codec writing new entries, {@link JsonMessageCodec} by default. Entries of the other
+         * built-in codecs stay readable.
+         */
+        public Builder withCodec(MessageCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * Number of conversations read or written per pipelined round trip by the batch operations.
+         */
+        public Builder withBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Write conversations asynchronously in pipelined batches, see {@link
+         * RedisChatMemoryRepository#flush()}.
+         */
+        public Builder withWriteBehind(boolean writeBehind) {
+            this.writeBehind = writeBehind;
+            return this;
+        }
+
+        /** Longest time a write-behind save stays pending, such as {@code 100ms} or {@code 1s}. */
+        public Builder withWriteBehindMaxDelay(String writeBehindMaxDelay) {
+            this.writeBehindMaxDelay = writeBehindMaxDelay;
+            return this;
+        }
+
+        /**
+         * Number of conversations pending in write-behind mode beyond which saving callers flush
+         * the queue themselves.
+         */
+        public Builder withWriteBehindMaxPending(int writeBehindMaxPending) {
+            this.writeBehindMaxPending = writeBehindMaxPending;
+            return this;
+        }
+
+        /** Registry of the observations timing and tracing every operation, none by default. */
+        public Builder withObservationRegistry(ObservationRegistry observationRegistry) {
+            this.observationRegistry = observationRegistry;
+            return this;
+        }
+
+        /** Registry of the message, byte and conversation length meters, none by default. */
+        public Builder withMeterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /** Compression of entries larger than the compression threshold, none by default. */
+        public Builder withCompression(MessageCompression compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /** Size in bytes above which encoded entries are compressed. */
+        public Builder withCompressionThreshold(int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        /** Redis data type holding the messages of a conversation, a list by default. */
+        public Builder withStorage(MessageStorage storage) {
+            this.storage = storage;
+            return this;
+        }
+
+        /**
+         * Lays keys out for Redis Cluster, see {@link RedisChatMemoryRepositoryConfig#isCluster()}.
+         */
+        public Builder withCluster(boolean cluster) {
+            this.cluster = cluster;
+            return this;
+        }
+
+        /**
+         * Refresh the time to live of conversations when they are read, see {@link
+         * RedisChatMemoryRepositoryConfig#isSlidingExpiration()}.
+         */
+        public Builder withSlidingExpiration(boolean slidingExpiration) {
+            this.slidingExpiration = slidingExpiration;
+            return this;
+        }
+
+        /**
+         * Shortest time between two expiry refreshes of a conversation, such as {@code 5m}, a tenth
+         * of the time to live by default.
+         */
+        public Builder withSlidingExpirationInterval(String slidingExpirationInterval) {
+            this.slidingExpirationInterval = slidingExpirationInterval;
+            return this;
+        }
+
+        /**
+         * Estimator of the tokens of each message, stored in a header of its entry, none by
+         * default, see {@link RedisChatMemoryRepository#findLastMessagesWithinTokens(String, int)}.
+         */
+        public Builder withTokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        /**
+         * Store shared message texts once, see {@link RedisChatMemoryRepositoryConfig#isDedupe()}.
+         */
+        public Builder withDedupe(boolean dedupe) {
+            this.dedupe = dedupe;
+            return this;
+        }
+
+        /** Size in bytes from which message texts are shared when deduplicating. */
+        public Builder withDedupeThreshold(int dedupeThreshold) {
+            this.dedupeThreshold = dedupeThreshold;
+            return this;
+        }
+
+        /**
+         * Types of the messages whose texts are shared whatever their size when deduplicating, such
+         * as {@link MessageType#SYSTEM}, none by default.
+         */
+        public Builder withDedupeMessageTypes(Set<MessageType> dedupeMessageTypes) {
+            this.dedupeMessageTypes = dedupeMessageTypes;
+            return this;
+        }
+
+        /** Maximum number of shared texts kept in the local cache, {@code 0} disables it. */
+        public Builder withDedupeCacheMaxEntries(int dedupeCacheMaxEntries) {
+            this.dedupeCacheMaxEntries = dedupeCacheMaxEntries;
+            return this;
+        }
+
+        /**
+         * Store large payloads out of line, see {@link
+         * RedisChatMemoryRepositoryConfig#isOffloadPayloads()}.
+         */
+        public Builder withOffloadPayloads(boolean offloadPayloads) {
+            this.offloadPayloads = offloadPayloads;
+            return this;
+        }
+
+        /** Size in bytes from which payloads are stored out of line. */
+        public Builder withOffloadThreshold(int offloadThreshold) {
+            this.offloadThreshold = offloadThreshold;
+            return this;
+        }
+
         public Builder withRedisTemplate(RedisTemplate<String, String> redisTemplate) {
             this.redisTemplate = redisTemplate;
             return this;
@@ -0,0 +1,250 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ChatMemory} keeping a window of the most recent messages of each conversation, like
+ * {@link MessageWindowChatMemory}, but trimmed by Redis itself: messages are appended with {@code
+ * RPUSH} and the window is enforced with {@code LTRIM} in one atomic call, see {@code
+ * window_messages.lua}, and reads fetch only the window with a negative-index {@code LRANGE}. The
+ * stored list and the transferred bytes stay bounded however long a conversation runs.
+ *
+ * <p>As with {@link MessageWindowChatMemory}, system messages count towards the window but are
+ * never evicted, and system messages among the added ones replace the stored system messages. They
+ * stay in the conversation list, in their place, so every read of the repository sees the same
+ * messages as the window: their entries carry a marker that the script trims around. A conversation
+ * saved through the repository and longer than the window is read in full and windowed here until
+ * the next {@link #add(String, List)} trims it.
+ *
+ * <p>Conversations are stored under the keys of the {@link RedisChatMemoryRepository} it is built
+ * with, which must use {@link MessageStorage#LIST list storage}, and listed in its conversation id
+ * index.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class RedisWindowChatMemory implements ChatMemory {
+
+    public static final int DEFAULT_MAX_MESSAGES = 20;
+
+    private static final RedisScript<Long> WINDOW_MESSAGES_SCRIPT =
+            RedisScript.of(
+                    new ClassPathResource("window_messages.lua", RedisWindowChatMemory.class),
+                    Long.class);
+
+    private final RedisChatMemoryRepository chatMemoryRepository;
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final RedisChatMemoryRepositoryConfig config;
+
+    private final MessageEntries entries;
+
+    private final int maxMessages;
+
+    private final SlidingExpiration slidingExpiration;
+
+    private RedisWindowChatMemory(RedisChatMemoryRepository chatMemoryRepository, int maxMessages) {
+        Assert.notNull(chatMemoryRepository, "chatMemoryRepository cannot be null");
+        Assert.isTrue(maxMessages > 0, "maxMessages must be greater than 0");
+        this.chatMemoryRepository = chatMemoryRepository;
+        this.config = chatMemoryRepository.getConfig();
+        Assert.isTrue(
+                config.getStorage() == MessageStorage.LIST,
+                "RedisWindowChatMemory requires list storage");
+        this.redisTemplate = config.getRedisTemplate();
+        this.entries = chatMemoryRepository.entries();
+        this.maxMessages = maxMessages;
+        this.slidingExpiration = chatMemoryRepository.slidingExpiration();
+    }
+
+    @Override
+    public void add(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+
+        long systemMessages = messages.stream().filter(SystemMessage.class::isInstance).count();
+        Map<String, String> texts = new LinkedHashMap<>();
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        List<byte[]> encoded = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            encoded.add(entries.encode(message, texts, payloads));
+        }
+        entries.store(texts);
+
+        List<byte[]> args = new ArrayList<>(7 + payloads.size() * 2 + messages.size());
+        args.add(MessageEntries.bytes(String.valueOf(config.getTimeToLive())));
+        args.add(MessageEntries.bytes(String.valueOf(maxMessages)));
+        args.add(MessageEntries.bytes(String.valueOf(systemMessages)));
+        args.add(MessageEntries.bytes(conversationId));
+        long now = System.currentTimeMillis();
+        args.add(MessageEntries.bytes(String.valueOf(now)));
+        args.add(
+                MessageEntries.bytes(
+                        config.getNearCacheMaxEntries() > 0
+                                ? config.getInvalidationChannel()
+                                : ""));
+        args.addAll(MessageEntries.payloadArgs(payloads));
+        args.addAll(encoded);
+
+        redisTemplate.execute(
+                WINDOW_MESSAGES_SCRIPT,
+                RedisSerializer.byteArray(),
+                new GenericToStringSerializer<>(Long.class),
+                config.isCluster()
+                        ? List.of(
+                                config.getConversationKey(conversationId),
+                                config.getPayloadKey(conversationId))
+                        : List.of(
+                                config.getConversationKey(conversationId),
+                                config.getPayloadKey(conversationId),
+                                config.getIndexKey()),
+                args.toArray());
+        if (config.isCluster()) {
+            // The index lives in another slot than the conversation
+            byte[] indexKey = rawKey(config.getIndexKey());
+            redisTemplate.execute(
+                    (RedisCallback<Boolean>)
+                            connection ->
+                                    connection
+                                            .zSetCommands()
+                                            .zAdd(
+                                                    indexKey,
+                                                    now,
+                                                    MessageEntries.bytes(conversationId)));
+        }
+        if (slidingExpiration != null) {
+            slidingExpiration.refreshed(conversationId);
+        }
+        entries.refreshTexts(List.of(conversationId));
+    }
+
+    /** Returns the messages of the window, system messages included, in their order. */
+    @Override
+    public List<Message> get(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+
+        byte[] key = rawKey(config.getConversationKey(conversationId));
+        byte[] payloadKey = rawKey(config.getPayloadKey(conversationId));
+        boolean refresh = slidingExpiration != null && slidingExpiration.due(conversationId);
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    connection.listCommands().lRange(key, -maxMessages, -1);
+                                    connection.listCommands().lLen(key);
+                                    if (refresh) {
+                                        // Slide the expiry in the same round trip as the read
+                                        connection
+                                                .keyCommands()
+                                                .expire(key, config.getTimeToLive());
+                                        connection
+                                                .keyCommands()
+                                                .expire(payloadKey, config.getTimeToLive());
+                                        connection
+                                                .zSetCommands()
+                                                .zAdd(
+                                                        rawKey(config.getIndexKey()),
+                                                        System.currentTimeMillis(),
+                                                        MessageEntries.bytes(conversationId),
+                                                        ZAddArgs.ifExists());
+                                    }
+                                    return null;
+                                },
+                        RedisSerializer.byteArray());
+
+        @SuppressWarnings("unchecked")
+        List<byte[]> window = (List<byte[]>) results.get(0);
+        Long size = (Long) results.get(1);
+
+        if (refresh) {
+            entries.refreshTexts(List.of(conversationId));
+        }
+
+        if (size == null || size <= window.size()) {
+            return entries.decode(conversationId, window, null, false);
+        }
+        // Longer than the window if last saved by the repository, or holding more system messages
+        // than the window, which may lie ahead of the tail just read
+        List<byte[]> stored =
+                redisTemplate.execute(
+                        (RedisCallback<List<byte[]>>)
+                                connection -> connection.listCommands().lRange(key, 0, -1));
+        return window(
+                entries.decode(conversationId, stored != null ? stored : List.of(), null, false));
+    }
+
+    /**
+     * Evicts the oldest messages beyond the window but the system messages among them, as {@code
+     * window_messages.lua} does.
+     */
+    private List<Message> window(List<Message> messages) {
+        int excess = messages.size() - maxMessages;
+        List<Message> window = new ArrayList<>(Math.max(maxMessages, 0));
+        for (Message message : messages) {
+            if (excess > 0 && !(message instanceof SystemMessage)) {
+                excess--;
+            } else {
+                window.add(message);
+            }
+        }
+        return window;
+    }
+
+    @Override
+    public void clear(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        // Deleted right away, as the window is written right away in write-behind mode too
+        chatMemoryRepository.delete(List.of(conversationId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] rawKey(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** RedisWindowChatMemory Builder */
+    public static final class Builder {
+
+        private RedisChatMemoryRepository chatMemoryRepository;
+
+        private int maxMessages = DEFAULT_MAX_MESSAGES;
+
+        private Builder() {}
+
+        public Builder chatMemoryRepository(RedisChatMemoryRepository chatMemoryRepository) {
+            this.chatMemoryRepository = chatMemoryRepository;
+            return this;
+        }
+
+        public Builder maxMessages(int maxMessages) {
+            this.maxMessages = maxMessages;
+            return this;
+        }
+
+        public RedisWindowChatMemory build() {
+            return new RedisWindowChatMemory(this.chatMemoryRepository, this.maxMessages);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Instruments the operations of {@link RedisChatMemoryRepository}.
+ *
+ * <p>Every operation runs in an {@link Observation} named {@value #OBSERVATION_NAME}, which becomes
+ * a timer tagged with the operation and the error, if any, and a span that is a child of the
+ * observation current on the calling thread, such as the one of the chat memory advisor. With a
+ * {@link MeterRegistry}, counters of the messages and entry bytes read and written and a summary of
+ * conversation lengths are recorded as well.
+ */
+final class RepositoryMetrics {
+
+    static final String OBSERVATION_NAME = "spring.ai.chat.memory.redis";
+
+    static final String MESSAGES = OBSERVATION_NAME + ".messages";
+
+    static final String BYTES = OBSERVATION_NAME + ".bytes";
+
+    static final String CONVERSATION_LENGTH = OBSERVATION_NAME + ".conversation.length";
+
+    private final ObservationRegistry observationRegistry;
+
+    private final Counter messagesRead;
+
+    private final Counter messagesWritten;
+
+    private final Counter bytesRead;
+
+    private final Counter bytesWritten;
+
+    private final DistributionSummary lengthRead;
+
+    private final DistributionSummary lengthWritten;
+
+    RepositoryMetrics(ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+        this.observationRegistry =
+                observationRegistry != null ? observationRegistry : ObservationRegistry.NOOP;
+        if (meterRegistry != null) {
+            this.messagesRead = counter(meterRegistry, MESSAGES, "read", "messages");
+            this.messagesWritten = counter(meterRegistry, MESSAGES, "write", "messages");
+            this.bytesRead = counter(meterRegistry, BYTES, "read", "bytes");
+            this.bytesWritten = counter(meterRegistry, BYTES, "write", "bytes");
+            this.lengthRead = summary(meterRegistry, "read");
+            this.lengthWritten = summary(meterRegistry, "write");
+        } else {
+            this.messagesRead = null;
+            this.messagesWritten = null;
+            this.bytesRead = null;
+            this.bytesWritten = null;
+            this.lengthRead = null;
+            this.lengthWritten = null;
+        }
+    }
+
+    private static Counter counter(
+            MeterRegistry meterRegistry, String name, String direction, String unit) {
+        return Counter.builder(name)
+                .description("Chat memory " + unit + " transferred from or to Redis")
+                .baseUnit(unit)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static DistributionSummary summary(MeterRegistry meterRegistry, String direction) {
+        return DistributionSummary.builder(CONVERSATION_LENGTH)
+                .description("Number of messages of the conversations read or saved")
+                .baseUnit("messages")
+                .tag("direction", direction)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs an operation in an observation.
+     *
+     * @param conversationId the conversation operated on, {@code null} for operations on many
+     */
+    <T> T observe(String operation, String conversationId, Supplier<T> action) {
+        Observation observation =
+                Observation.createNotStarted(OBSERVATION_NAME, observationRegistry)
+                        .contextualName("chat_memory " + operation)
+                        .lowCardinalityKeyValue("spring.ai.kind", "chat_memory")
+                        .lowCardinalityKeyValue("db.system", "redis")
+                        .lowCardinalityKeyValue("db.operation.name", operation);
+        if (conversationId != null) {
+            observation.highCardinalityKeyValue("gen_ai.conversation.id", conversationId);
+        }
+        return observation.observe(action);
+    }
+
+    void observe(String operation, String conversationId, Runnable action) {
+        observe(
+                operation,
+                conversationId,
+                () -> {
+                    action.run();
+                    return null;
+                });
+    }
+
+    /** Records a conversation read from Redis. */
+    void read(List<byte[]> stored) {
+        if (messagesRead != null) {
+            messagesRead.increment(stored.size());
+            bytesRead.increment(size(stored));
+            lengthRead.record(stored.size());
+        }
+    }
+
+    /** Records a save script call, sending {@code encoded} entries of a conversation. */
+    void written(int length, List<byte[]> encoded) {
+        if (messagesWritten != null) {
+            messagesWritten.increment(encoded.size());
+            bytesWritten.increment(size(encoded));
+            lengthWritten.record(length);
+        }
+    }
+
+    static long size(List<byte[]> entries) {
+        long size = 0;
+        for (byte[] entry : entries) {
+            size += entry.length;
+        }
+        return size;
+    }
+}
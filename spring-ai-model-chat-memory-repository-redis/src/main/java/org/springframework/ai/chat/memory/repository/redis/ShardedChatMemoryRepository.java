@@ -0,0 +1,504 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A {@link ChatMemoryRepository} spreading conversations over several Redis instances, each served
+ * by its own {@link RedisChatMemoryRepository}, so that throughput and memory grow with the number
+ * of instances. Conversations are routed by a consistent-hash ring of the shard names, see {@link
+ * #shardOf(String)}: the names, not the order of the shards, decide where a conversation lives, and
+ * adding a shard only moves the conversations it takes over from the others.
+ *
+ * <p>Listings and batch operations run on the shards involved in parallel.
+ *
+ * <p>Shards are added online in two steps. All nodes are first configured with the new shards and
+ * with the names of the {@code previousShards}: a conversation missing from its shard is then read
+ * from the shard that held it before, and moved on the way, and saves and deletes clear the copy
+ * left there. {@link #rebalance()} then moves all the other conversations, after which {@code
+ * previousShards} can be dropped. A save racing with the move of the same conversation by another
+ * node may be overwritten by the moved copy.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class ShardedChatMemoryRepository implements ChatMemoryRepository, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedChatMemoryRepository.class);
+
+    /** Points of each shard on the consistent-hash ring. */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private final Map<String, RedisChatMemoryRepository> shards;
+
+    private final ConsistentHashRing ring;
+
+    /** Ring before the last shards were added, {@code null} unless rebalancing. */
+    private final ConsistentHashRing previousRing;
+
+    private final Duration rebalancePause;
+
+    private final ExecutorService executor;
+
+    private ShardedChatMemoryRepository(Builder builder) {
+        Assert.notEmpty(builder.shards, "shards cannot be empty");
+        builder.shards.forEach(
+                (name, shard) -> {
+                    Assert.hasText(name, "shard names cannot be null or empty");
+                    Assert.notNull(shard, "shard " + name + " cannot be null");
+                });
+        Assert.isTrue(builder.virtualNodes > 0, "virtualNodes must be positive");
+        Assert.notNull(builder.rebalancePause, "rebalancePause cannot be null");
+        Assert.isTrue(!builder.rebalancePause.isNegative(), "rebalancePause cannot be negative");
+        if (builder.previousShards != null) {
+            builder.previousShards.forEach(
+                    name ->
+                            Assert.isTrue(
+                                    builder.shards.containsKey(name),
+                                    "previous shard " + name + " is not a shard"));
+        }
+        this.shards = Map.copyOf(builder.shards);
+        this.ring = new ConsistentHashRing(this.shards.keySet(), builder.virtualNodes);
+        this.previousRing =
+                builder.previousShards != null && !builder.previousShards.isEmpty()
+                        ? new ConsistentHashRing(builder.previousShards, builder.virtualNodes)
+                        : null;
+        this.rebalancePause = builder.rebalancePause;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor =
+                Executors.newFixedThreadPool(
+                        this.shards.size(),
+                        runnable -> {
+                            Thread thread =
+                                    new Thread(
+                                            runnable,
+                                            "redis-chat-memory-shard-" + threads.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    /**
+     * The repository of the shard a conversation belongs to, also giving access to its other reads,
+     * such as {@link RedisChatMemoryRepository#findLastMessages(String, int)}.
+     */
+    public RedisChatMemoryRepository shardOf(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        return shards.get(ring.shardOf(conversationId));
+    }
+
+    /** The shard that held a conversation before the last shards were added, if it moved. */
+    private RedisChatMemoryRepository previousShardOf(String conversationId) {
+        if (previousRing == null) {
+            return null;
+        }
+        String previous = previousRing.shardOf(conversationId);
+        return previous.equals(ring.shardOf(conversationId)) ? null : shards.get(previous);
+    }
+
+    public Map<String, RedisChatMemoryRepository> getShards() {
+        return shards;
+    }
+
+    /**
+     * Lists the conversations of all shards, read in parallel, each shard listing its own most
+     * recently active first.
+     */
+    @Override
+    public List<String> findConversationIds() {
+        Set<String> conversationIds = new LinkedHashSet<>();
+        onShards(shards.keySet(), name -> shards.get(name).findConversationIds())
+                .values()
+                .forEach(conversationIds::addAll);
+        return List.copyOf(conversationIds);
+    }
+
+    /**
+     * Reads a conversation from its shard, or while rebalancing from the shard that held it before,
+     * in which case it is moved to its shard.
+     */
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        RedisChatMemoryRepository shard = shardOf(conversationId);
+        List<Message> messages = shard.findByConversationId(conversationId);
+        RedisChatMemoryRepository previous = previousShardOf(conversationId);
+        if (!messages.isEmpty() || previous == null) {
+            return messages;
+        }
+        messages = previous.findByConversationId(conversationId);
+        if (!messages.isEmpty()) {
+            shard.saveAll(conversationId, messages);
+            previous.deleteByConversationId(conversationId);
+        }
+        return messages;
+    }
+
+    /**
+     * Reads many conversations, from their shards in parallel, with the same semantics as {@link
+     * #findByConversationId(String)} for every id.
+     *
+     * @return the messages of every conversation found, in the order of the given ids
+     */
+    public Map<String, List<Message>> findByConversationIds(Collection<String> conversationIds) {
+        Assert.notNull(conversationIds, "conversationIds cannot be null");
+        Map<String, List<String>> byShard = byShard(conversationIds, ring::shardOf);
+        Map<String, List<Message>> found = new HashMap<>();
+        onShards(
+                        byShard.keySet(),
+                        name -> shards.get(name).findByConversationIds(byShard.get(name)))
+                .values()
+                .forEach(found::putAll);
+
+        if (previousRing != null) {
+            List<String> misses =
+                    conversationIds.stream()
+                            .filter(
+                                    conversationId ->
+                                            !found.containsKey(conversationId)
+                                                    && previousShardOf(conversationId) != null)
+                            .distinct()
+                            .toList();
+            found.putAll(moveFromPreviousShards(misses));
+        }
+
+        Map<String, List<Message>> ordered = new LinkedHashMap<>();
+        for (String conversationId : conversationIds) {
+            List<Message> messages = found.get(conversationId);
+            if (messages != null) {
+                ordered.put(conversationId, messages);
+            }
+        }
+        return ordered;
+    }
+
+    private Map<String, List<Message>> moveFromPreviousShards(List<String> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, List<String>> byPreviousShard = byShard(conversationIds, previousRing::shardOf);
+        Map<String, List<Message>> moved = new HashMap<>();
+        onShards(
+                        byPreviousShard.keySet(),
+                        name -> {
+                            RedisChatMemoryRepository previous = shards.get(name);
+                            Map<String, List<Message>> found =
+                                    previous.findByConversationIds(byPreviousShard.get(name));
+                            byShard(found.keySet(), ring::shardOf)
+                                    .forEach(
+                                            (shard, ids) -> {
+                                                Map<String, List<Message>> conversations =
+                                                        new LinkedHashMap<>();
+                                                ids.forEach(
+                                                        id -> conversations.put(id, found.get(id)));
+                                                shards.get(shard).saveAll(conversations);
+                                            });
+                            previous.deleteByConversationIds(found.keySet());
+                            return found;
+                        })
+                .values()
+                .forEach(moved::putAll);
+        return moved;
+    }
+
+    /**
+     * Saves a conversation to its shard, removing the copy left in the shard that held it before,
+     * if any.
+     */
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        shardOf(conversationId).saveAll(conversationId, messages);
+        RedisChatMemoryRepository previous = previousShardOf(conversationId);
+        if (previous != null) {
+            previous.deleteByConversationId(conversationId);
+        }
+    }
+
+    /**
+     * Saves many conversations, to their shards in parallel, with the same semantics as {@link
+     * #saveAll(String, List)} for every entry.
+     */
+    public void saveAll(Map<String, List<Message>> conversations) {
+        Assert.notNull(conversations, "conversations cannot be null");
+        Map<String, List<String>> byShard = byShard(conversations.keySet(), ring::shardOf);
+        onShards(
+                byShard.keySet(),
+                name -> {
+                    Map<String, List<Message>> batch = new LinkedHashMap<>();
+                    byShard.get(name).forEach(id -> batch.put(id, conversations.get(id)));
+                    shards.get(name).saveAll(batch);
+                    return null;
+                });
+        deleteFromPreviousShards(conversations.keySet());
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        shardOf(conversationId).deleteByConversationId(conversationId);
+        RedisChatMemoryRepository previous = previousShardOf(conversationId);
+        if (previous != null) {
+            previous.deleteByConversationId(conversationId);
+        }
+    }
+
+    /**
+     * Deletes many conversations, from their shards in parallel, with the same semantics as {@link
+     * #deleteByConversationId(String)} for every id.
+     */
+    public void deleteByConversationIds(Collection<String> conversationIds) {
+        Assert.notNull(conversationIds, "conversationIds cannot be null");
+        Map<String, List<String>> byShard = byShard(conversationIds, ring::shardOf);
+        onShards(
+                byShard.keySet(),
+                name -> {
+                    shards.get(name).deleteByConversationIds(byShard.get(name));
+                    return null;
+                });
+        deleteFromPreviousShards(conversationIds);
+    }
+
+    private void deleteFromPreviousShards(Collection<String> conversationIds) {
+        if (previousRing == null) {
+            return;
+        }
+        List<String> moved =
+                conversationIds.stream()
+                        .filter(conversationId -> previousShardOf(conversationId) != null)
+                        .toList();
+        Map<String, List<String>> byPreviousShard = byShard(moved, previousRing::shardOf);
+        onShards(
+                byPreviousShard.keySet(),
+                name -> {
+                    shards.get(name).deleteByConversationIds(byPreviousShard.get(name));
+                    return null;
+                });
+    }
+
+    /**
+     * Moves every conversation stored in a shard it no longer belongs to, such as after shards were
+     * added, to its shard. The shards are scanned in parallel through their conversation id index,
+     * see {@link RedisChatMemoryRepository#streamConversationIds()}, and their conversations moved
+     * in batches of their {@link RedisChatMemoryRepositoryConfig#getBatchSize()} separated by the
+     * {@code rebalancePause}, so that rebalancing does not compete with the traffic of the
+     * application. A conversation already saved to its shard is only deleted from the other one.
+     * Conversations missing from the index, such as those saved before it existed, are only found
+     * after {@link RedisChatMemoryRepository#reindexConversationIds()}.
+     *
+     * @return the number of conversations moved
+     */
+    public long rebalance() {
+        // Each scan blocks its thread for the whole rebalancing, away from the shared executor
+        ExecutorService scans = Executors.newFixedThreadPool(shards.size());
+        try {
+            List<CompletableFuture<Long>> rebalanced =
+                    shards.keySet().stream()
+                            .map(
+                                    name ->
+                                            CompletableFuture.supplyAsync(
+                                                    () -> rebalance(name), scans))
+                            .toList();
+            long moved = 0;
+            for (CompletableFuture<Long> shard : rebalanced) {
+                moved += shard.join();
+            }
+            return moved;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        } finally {
+            scans.shutdownNow();
+        }
+    }
+
+    private long rebalance(String name) {
+        RedisChatMemoryRepository source = shards.get(name);
+        int batchSize = source.getConfig().getBatchSize();
+        long moved = 0;
+        try (Stream<String> conversationIds = source.streamConversationIds()) {
+            Iterator<String> misplaced =
+                    conversationIds.filter(id -> !name.equals(ring.shardOf(id))).iterator();
+            List<String> batch = new ArrayList<>(batchSize);
+            while (misplaced.hasNext()) {
+                batch.add(misplaced.next());
+                if (batch.size() == batchSize || !misplaced.hasNext()) {
+                    moved += move(source, batch);
+                    batch.clear();
+                    if (misplaced.hasNext() && !pause()) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (moved > 0) {
+            logger.info("Moved " + moved + " conversations out of shard " + name);
+        }
+        return moved;
+    }
+
+    /** Moves a batch of conversations of a shard to the shards they belong to. */
+    private int move(RedisChatMemoryRepository source, List<String> conversationIds) {
+        Map<String, List<Message>> found = source.findByConversationIds(conversationIds);
+        byShard(found.keySet(), ring::shardOf)
+                .forEach(
+                        (name, ids) -> {
+                            RedisChatMemoryRepository shard = shards.get(name);
+                            Set<String> saved = shard.existingConversationIds(ids);
+                            Map<String, List<Message>> conversations = new LinkedHashMap<>();
+                            ids.stream()
+                                    .filter(id -> !saved.contains(id))
+                                    .forEach(id -> conversations.put(id, found.get(id)));
+                            shard.saveAll(conversations);
+                        });
+        source.deleteByConversationIds(conversationIds);
+        return found.size();
+    }
+
+    /**
+     * @return whether to go on, {@code false} if the thread was interrupted
+     */
+    private boolean pause() {
+        if (rebalancePause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(rebalancePause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Map<String, List<String>> byShard(
+            Collection<String> conversationIds, Function<String, String> shardOf) {
+        Map<String, List<String>> byShard = new LinkedHashMap<>();
+        for (String conversationId : conversationIds) {
+            Assert.hasText(conversationId, "conversationId cannot be null or empty");
+            byShard.computeIfAbsent(shardOf.apply(conversationId), name -> new ArrayList<>())
+                    .add(conversationId);
+        }
+        return byShard;
+    }
+
+    /**
+     * Runs an operation on each of the given shards, in parallel when there are several.
+     *
+     * @return the result of each shard, by name
+     */
+    private <T> Map<String, T> onShards(Collection<String> names, Function<String, T> operation) {
+        Map<String, T> results = new HashMap<>();
+        if (names.size() == 1) {
+            String name = names.iterator().next();
+            results.put(name, operation.apply(name));
+            return results;
+        }
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        names.forEach(
+                name ->
+                        futures.put(
+                                name,
+                                CompletableFuture.supplyAsync(
+                                        () -> operation.apply(name), executor)));
+        try {
+            futures.forEach((name, future) -> results.put(name, future.join()));
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return results;
+    }
+
+    /** Stops the threads of the parallel operations and closes the shards. */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for the shard operations to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        shards.values().forEach(RedisChatMemoryRepository::close);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** ShardedChatMemoryRepository Builder */
+    public static final class Builder {
+
+        private final Map<String, RedisChatMemoryRepository> shards = new LinkedHashMap<>();
+
+        private Collection<String> previousShards;
+
+        private int virtualNodes = DEFAULT_VIRTUAL_NODES;
+
+        private Duration rebalancePause =
+                Duration.ofMillis(RedisChatMemoryRepository.DEFAULT_PURGE_PAUSE_MILLIS);
+
+        private Builder() {}
+
+        /**
+         * Adds a shard. Its name places it on the ring and must stay the same across restarts and
+         * nodes.
+         */
+        public Builder shard(String name, RedisChatMemoryRepository repository) {
+            this.shards.put(name, repository);
+            return this;
+        }
+
+        public Builder shards(Map<String, RedisChatMemoryRepository> shards) {
+            this.shards.putAll(shards);
+            return this;
+        }
+
+        /**
+         * Names of the shards before the last ones were added, while rebalancing, none by default.
+         */
+        public Builder previousShards(Collection<String> previousShards) {
+            this.previousShards = previousShards;
+            return this;
+        }
+
+        /**
+         * Points of each shard on the ring, {@value
+         * ShardedChatMemoryRepository#DEFAULT_VIRTUAL_NODES} by default.
+         */
+        public Builder virtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+            return this;
+        }
+
+        /** Pause between two batches of {@link #rebalance()}. */
+        public Builder rebalancePause(Duration rebalancePause) {
+            this.rebalancePause = rebalancePause;
+            return this;
+        }
+
+        public ShardedChatMemoryRepository build() {
+            return new ShardedChatMemoryRepository(this);
+        }
+    }
+}
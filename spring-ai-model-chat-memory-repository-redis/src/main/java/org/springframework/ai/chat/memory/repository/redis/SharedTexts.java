@@ -0,0 +1,364 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Content-addressed store of the message texts deduplicated by {@link MessageEntries}: each text is
+ * stored once under {@link RedisChatMemoryRepositoryConfig#getSharedTextKeyPrefix()} followed by
+ * the SHA-256 of its bytes, shared by the messages holding it in any conversation. The hottest
+ * texts are kept in a local LRU cache, so that a system prompt repeated by every conversation is
+ * neither written nor read again on each save and read.
+ *
+ * <p>Texts are not reference counted, which is why deduplication requires a time to live: texts
+ * expire twice the time to live after this repository last wrote them or refreshed their expiry.
+ * Saves and reads write them again or refresh their expiry once that is longer than the time to
+ * live ago, and whenever the expiry of a conversation is set or refreshed, so are those of all the
+ * texts its entries refer to, including the entries a tail read leaves out, so that texts outlive
+ * the conversations referring to them. A text missing all the same, such as one deleted by hand, is
+ * read as {@value #MISSING_TEXT}.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+final class SharedTexts {
+
+    /** Text of the messages whose shared text is missing from Redis. */
+    static final String MISSING_TEXT = "";
+
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> SHARED_TEXTS_SCRIPT =
+            RedisScript.of(
+                    new ClassPathResource("shared_texts.lua", SharedTexts.class), List.class);
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedTexts.class);
+
+    private static final int SCAN_STEP = 1000;
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    private final RedisChatMemoryRepositoryConfig config;
+
+    private final String keyPrefix;
+
+    /** Expiry of the texts in seconds, {@code -1} to keep them. */
+    private final long timeToLive;
+
+    private final long refreshNanos;
+
+    private final MessageCompression compression;
+
+    private final int compressionThreshold;
+
+    private final int maxEntries;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Debouncer of the expiry refreshes of the texts of conversations, {@code null} without
+     * deduplication.
+     */
+    private final SlidingExpiration conversations;
+
+    SharedTexts(
+            RedisTemplate<String, String> redisTemplate, RedisChatMemoryRepositoryConfig config) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.keyPrefix = config.getSharedTextKeyPrefix();
+        this.timeToLive = config.getTimeToLive() > 0 ? config.getTimeToLive() * 2 : -1;
+        this.refreshNanos = config.getTimeToLive() * 1_000_000_000L;
+        this.compression = config.getCompression();
+        this.compressionThreshold = config.getCompressionThreshold();
+        this.maxEntries = config.getDedupeCacheMaxEntries();
+        this.conversations =
+                config.isDedupe() && config.getTimeToLive() > 0
+                        ? new SlidingExpiration(config.getTimeToLive() * 1000)
+                        : null;
+    }
+
+    /** SHA-256 of a text, in hex, naming its key. */
+    static String hash(String text) {
+        return HexFormat.of().formatHex(sha256(MessageEntries.bytes(text)));
+    }
+
+    static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the texts that this repository has not written or refreshed recently, in one pipelined
+     * round trip, ahead of the entries referring to them.
+     *
+     * @param texts texts by {@link #hash(String)}
+     */
+    void store(Map<String, String> texts) {
+        Map<String, String> due = new LinkedHashMap<>();
+        texts.forEach(
+                (hash, text) -> {
+                    if (!fresh(hash)) {
+                        due.put(hash, text);
+                    }
+                });
+        if (due.isEmpty()) {
+            return;
+        }
+        Expiration expiration =
+                timeToLive > 0 ? Expiration.seconds(timeToLive) : Expiration.persistent();
+        redisTemplate.executePipelined(
+                (RedisCallback<Object>)
+                        connection -> {
+                            due.forEach(
+                                    (hash, text) ->
+                                            connection
+                                                    .stringCommands()
+                                                    .set(
+                                                            rawKey(hash),
+                                                            encode(text),
+                                                            expiration,
+                                                            SetOption.upsert()));
+                            return null;
+                        },
+                RedisSerializer.byteArray());
+        long now = System.nanoTime();
+        due.forEach((hash, text) -> cache(hash, new Entry(text, true, now)));
+    }
+
+    /**
+     * Reads texts from the local cache, or with one {@code MGET} for those missing from it,
+     * refreshing the expiry of those this repository has not refreshed recently in the same
+     * pipeline.
+     *
+     * @param hashes {@link #hash(String) hashes} of the texts
+     * @return the texts by hash, {@value #MISSING_TEXT} for those missing from Redis
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, String> resolve(Collection<String> hashes) {
+        Map<String, String> texts = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        List<String> stale = new ArrayList<>();
+        for (String hash : hashes) {
+            Entry entry = cached(hash);
+            if (entry == null) {
+                missing.add(hash);
+                continue;
+            }
+            texts.put(hash, entry.text());
+            if (!fresh(entry)) {
+                stale.add(hash);
+            }
+        }
+        if (missing.isEmpty() && stale.isEmpty()) {
+            return texts;
+        }
+
+        List<String> refreshes = new ArrayList<>();
+        if (timeToLive > 0) {
+            refreshes.addAll(missing);
+            refreshes.addAll(stale);
+        }
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    if (!missing.isEmpty()) {
+                                        connection
+                                                .stringCommands()
+                                                .mGet(
+                                                        missing.stream()
+                                                                .map(this::rawKey)
+                                                                .toArray(byte[][]::new));
+                                    }
+                                    refreshes.forEach(
+                                            hash ->
+                                                    connection
+                                                            .keyCommands()
+                                                            .expire(rawKey(hash), timeToLive));
+                                    return null;
+                                },
+                        RedisSerializer.byteArray());
+
+        long now = System.nanoTime();
+        if (!missing.isEmpty()) {
+            List<byte[]> values = (List<byte[]>) results.get(0);
+            for (int i = 0; i < missing.size(); i++) {
+                byte[] value = values.get(i);
+                if (value == null) {
+                    logger.warn("Shared text " + missing.get(i) + " is missing");
+                    texts.put(missing.get(i), MISSING_TEXT);
+                    continue;
+                }
+                String text = decode(value);
+                texts.put(missing.get(i), text);
+                cache(missing.get(i), new Entry(text, timeToLive > 0, now));
+            }
+        }
+        // Texts that expired meanwhile are written again for the other readers
+        Map<String, String> expired = new LinkedHashMap<>();
+        for (int i = 0; i < stale.size(); i++) {
+            String hash = stale.get(i);
+            Object refreshed = results.get((missing.isEmpty() ? 0 : 1) + missing.size() + i);
+            if (Boolean.TRUE.equals(refreshed)) {
+                cache(hash, new Entry(texts.get(hash), true, now));
+            } else {
+                cache(hash, new Entry(texts.get(hash), false, now));
+                expired.put(hash, texts.get(hash));
+            }
+        }
+        if (!expired.isEmpty()) {
+            store(expired);
+        }
+        return texts;
+    }
+
+    /**
+     * Refreshes the expiry of the texts of conversations whose expiry was just set or refreshed, so
+     * that the texts of the entries left out by tail reads outlive their conversations too. As
+     * texts live twice the time to live, this is done at most once per time to live and
+     * conversation, in two round trips: {@code shared_texts.lua} listing the texts of the
+     * conversations, then the refreshes of those this repository has not refreshed recently.
+     */
+    @SuppressWarnings("unchecked")
+    void refresh(Collection<String> conversationIds) {
+        if (conversations == null) {
+            return;
+        }
+        List<String> due = conversationIds.stream().filter(conversations::due).toList();
+        if (due.isEmpty()) {
+            return;
+        }
+        byte[] step = MessageEntries.bytes(String.valueOf(SCAN_STEP));
+        List<Object> results =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    // EVALSHA cannot fall back to EVAL within a pipeline
+                                    connection
+                                            .scriptingCommands()
+                                            .scriptLoad(
+                                                    SHARED_TEXTS_SCRIPT
+                                                            .getScriptAsString()
+                                                            .getBytes(StandardCharsets.UTF_8));
+                                    for (String conversationId : due) {
+                                        connection
+                                                .scriptingCommands()
+                                                .evalSha(
+                                                        SHARED_TEXTS_SCRIPT.getSha1(),
+                                                        ReturnType.MULTI,
+                                                        1,
+                                                        serialize(
+                                                                config.getConversationKey(
+                                                                        conversationId)),
+                                                        step);
+                                    }
+                                    return null;
+                                },
+                        RedisSerializer.byteArray());
+
+        Set<String> hashes = new LinkedHashSet<>();
+        for (Object result : results.subList(1, results.size())) {
+            for (Object hash : (List<Object>) result) {
+                hashes.add(HexFormat.of().formatHex((byte[]) hash));
+            }
+        }
+        List<String> stale = hashes.stream().filter(hash -> !fresh(hash)).toList();
+        if (stale.isEmpty()) {
+            return;
+        }
+        List<Object> refreshed =
+                redisTemplate.executePipelined(
+                        (RedisCallback<Object>)
+                                connection -> {
+                                    stale.forEach(
+                                            hash ->
+                                                    connection
+                                                            .keyCommands()
+                                                            .expire(rawKey(hash), timeToLive));
+                                    return null;
+                                },
+                        RedisSerializer.byteArray());
+        long now = System.nanoTime();
+        for (int i = 0; i < stale.size(); i++) {
+            Entry entry = cached(stale.get(i));
+            if (entry != null && Boolean.TRUE.equals(refreshed.get(i))) {
+                cache(stale.get(i), new Entry(entry.text(), true, now));
+            }
+        }
+    }
+
+    /** Whether this repository wrote or refreshed a text recently enough to skip it. */
+    private boolean fresh(String hash) {
+        Entry entry = cached(hash);
+        return entry != null && fresh(entry);
+    }
+
+    private boolean fresh(Entry entry) {
+        return timeToLive <= 0
+                || (entry.refreshed() && System.nanoTime() - entry.refreshedAt() < refreshNanos);
+    }
+
+    private synchronized Entry cached(String hash) {
+        return entries.get(hash);
+    }
+
+    private synchronized void cache(String hash, Entry entry) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(hash, entry);
+        var eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /** Encodes a text as UTF-8, see {@link MessageEntries#encodeBlob}. */
+    private byte[] encode(String text) {
+        return MessageEntries.encodeBlob(
+                MessageEntries.bytes(text), compression, compressionThreshold);
+    }
+
+    private static String decode(byte[] value) {
+        return new String(MessageEntries.decodeBlob(value), StandardCharsets.UTF_8);
+    }
+
+    private byte[] rawKey(String hash) {
+        return serialize(keyPrefix + hash);
+    }
+
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(String key) {
+        return ((RedisSerializer<String>) redisTemplate.getKeySerializer()).serialize(key);
+    }
+
+    /**
+     * @param refreshed whether this repository wrote the text or refreshed its expiry, at {@code
+     *     refreshedAt}
+     */
+    private record Entry(String text, boolean refreshed, long refreshedAt) {}
+}
@@ -0,0 +1,56 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Debounces the expiry refreshes of sliding expiration: a conversation read many times within the
+ * refresh interval has its expiry refreshed by the first of these reads only, so that reads cost
+ * close to no extra commands. Saves set the expiry themselves and count as refreshes.
+ *
+ * <p>Refresh times are kept in an LRU map bounded to {@value #MAX_TRACKED} conversations; a
+ * conversation evicted from it is refreshed again on its next read.
+ */
+final class SlidingExpiration {
+
+    static final int MAX_TRACKED = 10_000;
+
+    private final long intervalNanos;
+
+    private final LinkedHashMap<String, Long> refreshedAt = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param intervalMillis shortest time between two refreshes of a conversation
+     */
+    SlidingExpiration(long intervalMillis) {
+        this.intervalNanos = intervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Returns whether the expiry of a conversation is due for a refresh, recording it as refreshed
+     * if so.
+     */
+    synchronized boolean due(String conversationId) {
+        long now = System.nanoTime();
+        Long last = refreshedAt.get(conversationId);
+        if (last != null && now - last < intervalNanos) {
+            return false;
+        }
+        record(conversationId, now);
+        return true;
+    }
+
+    /** Records an expiry set by a save. */
+    synchronized void refreshed(String conversationId) {
+        record(conversationId, System.nanoTime());
+    }
+
+    private void record(String conversationId, long now) {
+        refreshedAt.put(conversationId, now);
+        if (refreshedAt.size() > MAX_TRACKED) {
+            Iterator<String> eldest = refreshedAt.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Stores messages in the binary Smile format, recognized by the {@code :)\n} header Smile writes in
+ * front of every entry. Requires {@code jackson-dataformat-smile}.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class SmileMessageCodec extends JacksonMessageCodec {
+
+    public SmileMessageCodec() {
+        super(
+                new ObjectMapper(
+                        SmileFactory.builder()
+                                .enable(SmileGenerator.Feature.WRITE_HEADER)
+                                .build()));
+    }
+
+    @Override
+    public boolean canDecode(byte[] entry) {
+        return startsWith(entry, (byte) ':', (byte) ')', (byte) '\n');
+    }
+}
@@ -0,0 +1,335 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ChatMemoryRepository} keeping recent and active conversations in Redis and idle ones in
+ * a cheaper cold repository, such as the JDBC repository or a {@link FileChatMemoryRepository}.
+ *
+ * <p>Conversations are saved to Redis. {@link #migrateIdleConversations()} moves the conversations
+ * idle for longer than {@code maxIdle} to the cold repository in batches, see {@link
+ * RedisChatMemoryRepository#purgeIdleConversations(Duration, Duration,
+ * java.util.function.Consumer)}, either on demand or every {@code migrationInterval}. Reading a
+ * conversation found in the cold repository only moves it back to Redis, so that it is served from
+ * Redis again while active.
+ *
+ * <p>The hot repository must keep conversations for longer than {@code maxIdle} plus {@code
+ * migrationInterval}, or without expiry, so that they do not expire from Redis before being moved
+ * to the cold repository.
+ *
+ * <p>With a {@link MeterRegistry}, reads are counted by the tier that served them, and the
+ * conversations and messages moved by direction, along with the duration of each migration.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class TieredChatMemoryRepository implements ChatMemoryRepository, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredChatMemoryRepository.class);
+
+    static final String TIER_READS = RepositoryMetrics.OBSERVATION_NAME + ".tier.reads";
+
+    static final String TIER_CONVERSATIONS =
+            RepositoryMetrics.OBSERVATION_NAME + ".tier.conversations";
+
+    static final String TIER_MESSAGES = RepositoryMetrics.OBSERVATION_NAME + ".tier.messages";
+
+    static final String TIER_MIGRATION = RepositoryMetrics.OBSERVATION_NAME + ".tier.migration";
+
+    private final RedisChatMemoryRepository hot;
+
+    private final ChatMemoryRepository cold;
+
+    private final Duration maxIdle;
+
+    private final Duration migrationPause;
+
+    private final ScheduledExecutorService executor;
+
+    private final Counter hotReads;
+
+    private final Counter coldReads;
+
+    private final Counter missedReads;
+
+    private final Counter conversationsArchived;
+
+    private final Counter conversationsRehydrated;
+
+    private final Counter messagesArchived;
+
+    private final Counter messagesRehydrated;
+
+    private final Timer migrations;
+
+    private TieredChatMemoryRepository(Builder builder) {
+        Assert.notNull(builder.hot, "hot repository cannot be null");
+        Assert.notNull(builder.cold, "cold repository cannot be null");
+        Assert.notNull(builder.maxIdle, "maxIdle cannot be null");
+        Assert.isTrue(!builder.maxIdle.isNegative(), "maxIdle cannot be negative");
+        Assert.notNull(builder.migrationPause, "migrationPause cannot be null");
+        Assert.isTrue(!builder.migrationPause.isNegative(), "migrationPause cannot be negative");
+        Assert.isTrue(
+                builder.migrationInterval == null
+                        || (!builder.migrationInterval.isNegative()
+                                && !builder.migrationInterval.isZero()),
+                "migrationInterval must be positive");
+        // Conversations expiring from Redis before a migration picks them up would be lost
+        long timeToLive = builder.hot.getConfig().getTimeToLive();
+        Duration migrationInterval =
+                builder.migrationInterval != null ? builder.migrationInterval : Duration.ZERO;
+        Assert.isTrue(
+                timeToLive <= 0
+                        || Duration.ofSeconds(timeToLive)
+                                        .compareTo(builder.maxIdle.plus(migrationInterval))
+                                > 0,
+                "the timeToLive of the hot repository must exceed maxIdle plus migrationInterval");
+        this.hot = builder.hot;
+        this.cold = builder.cold;
+        this.maxIdle = builder.maxIdle;
+        this.migrationPause = builder.migrationPause;
+
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        if (meterRegistry != null) {
+            this.hotReads = reads(meterRegistry, "hot");
+            this.coldReads = reads(meterRegistry, "cold");
+            this.missedReads = reads(meterRegistry, "none");
+            this.conversationsArchived =
+                    moved(meterRegistry, TIER_CONVERSATIONS, "archive", "conversations");
+            this.conversationsRehydrated =
+                    moved(meterRegistry, TIER_CONVERSATIONS, "rehydrate", "conversations");
+            this.messagesArchived = moved(meterRegistry, TIER_MESSAGES, "archive", "messages");
+            this.messagesRehydrated = moved(meterRegistry, TIER_MESSAGES, "rehydrate", "messages");
+            this.migrations =
+                    Timer.builder(TIER_MIGRATION)
+                            .description("Duration of the migrations of idle conversations")
+                            .register(meterRegistry);
+        } else {
+            this.hotReads = null;
+            this.coldReads = null;
+            this.missedReads = null;
+            this.conversationsArchived = null;
+            this.conversationsRehydrated = null;
+            this.messagesArchived = null;
+            this.messagesRehydrated = null;
+            this.migrations = null;
+        }
+
+        if (builder.migrationInterval != null) {
+            this.executor =
+                    Executors.newSingleThreadScheduledExecutor(
+                            runnable -> {
+                                Thread thread =
+                                        new Thread(runnable, "redis-chat-memory-tier-migration");
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+            long interval = builder.migrationInterval.toMillis();
+            this.executor.scheduleWithFixedDelay(
+                    this::migrateQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    private static Counter reads(MeterRegistry meterRegistry, String tier) {
+        return Counter.builder(TIER_READS)
+                .description("Conversation reads by the tier serving them")
+                .baseUnit("reads")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static Counter moved(
+            MeterRegistry meterRegistry, String name, String direction, String unit) {
+        return Counter.builder(name)
+                .description("Chat memory " + unit + " moved between Redis and the cold tier")
+                .baseUnit(unit)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        Set<String> conversationIds = new LinkedHashSet<>(hot.findConversationIds());
+        conversationIds.addAll(cold.findConversationIds());
+        return List.copyOf(conversationIds);
+    }
+
+    /**
+     * Reads a conversation from Redis, or from the cold repository, in which case it is moved back
+     * to Redis.
+     */
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        List<Message> messages = hot.findByConversationId(conversationId);
+        if (!messages.isEmpty()) {
+            increment(hotReads, 1);
+            return messages;
+        }
+        messages = cold.findByConversationId(conversationId);
+        if (messages.isEmpty()) {
+            increment(missedReads, 1);
+            return messages;
+        }
+        increment(coldReads, 1);
+        hot.saveAll(conversationId, messages);
+        cold.deleteByConversationId(conversationId);
+        increment(conversationsRehydrated, 1);
+        increment(messagesRehydrated, messages.size());
+        return messages;
+    }
+
+    /**
+     * Saves a conversation to Redis. A copy left in the cold repository is shadowed by it, and
+     * replaced when the conversation is migrated again.
+     */
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        hot.saveAll(conversationId, messages);
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        hot.deleteByConversationId(conversationId);
+        cold.deleteByConversationId(conversationId);
+    }
+
+    /**
+     * Moves the conversations idle for longer than {@code maxIdle} from Redis to the cold
+     * repository, one batch at a time.
+     *
+     * @return the number of conversations moved
+     */
+    public long migrateIdleConversations() {
+        long start = System.nanoTime();
+        try {
+            return hot.purgeIdleConversations(maxIdle, migrationPause, this::archive);
+        } finally {
+            if (migrations != null) {
+                migrations.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void archive(Map<String, List<Message>> conversations) {
+        conversations.forEach(
+                (conversationId, messages) -> {
+                    cold.saveAll(conversationId, messages);
+                    increment(conversationsArchived, 1);
+                    increment(messagesArchived, messages.size());
+                });
+    }
+
+    private void migrateQuietly() {
+        try {
+            long migrated = migrateIdleConversations();
+            if (migrated > 0) {
+                logger.debug("Moved " + migrated + " idle conversations to the cold repository");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Error moving idle conversations to the cold repository", e);
+        }
+    }
+
+    private static void increment(Counter counter, double amount) {
+        if (counter != null) {
+            counter.increment(amount);
+        }
+    }
+
+    /** Stops the scheduled migrations, leaving both repositories open. */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Timed out waiting for the tier migration to finish");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** TieredChatMemoryRepository Builder */
+    public static final class Builder {
+
+        private RedisChatMemoryRepository hot;
+
+        private ChatMemoryRepository cold;
+
+        private Duration maxIdle;
+
+        private Duration migrationInterval;
+
+        private Duration migrationPause =
+                Duration.ofMillis(RedisChatMemoryRepository.DEFAULT_PURGE_PAUSE_MILLIS);
+
+        private MeterRegistry meterRegistry;
+
+        private Builder() {}
+
+        /** Repository of the recent and active conversations. */
+        public Builder hot(RedisChatMemoryRepository hot) {
+            this.hot = hot;
+            return this;
+        }
+
+        /** Repository the idle conversations are moved to. */
+        public Builder cold(ChatMemoryRepository cold) {
+            this.cold = cold;
+            return this;
+        }
+
+        /** Time since their last activity after which conversations are moved to the cold tier. */
+        public Builder maxIdle(Duration maxIdle) {
+            this.maxIdle = maxIdle;
+            return this;
+        }
+
+        /** Time between two scheduled migrations, none by default. */
+        public Builder migrationInterval(Duration migrationInterval) {
+            this.migrationInterval = migrationInterval;
+            return this;
+        }
+
+        /** Pause between two batches of a migration. */
+        public Builder migrationPause(Duration migrationPause) {
+            this.migrationPause = migrationPause;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public TieredChatMemoryRepository build() {
+            return new TieredChatMemoryRepository(this);
+        }
+    }
+}
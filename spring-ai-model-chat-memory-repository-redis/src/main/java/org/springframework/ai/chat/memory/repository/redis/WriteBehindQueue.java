@@ -0,0 +1,195 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Holds the saves pending in write-behind mode, keyed by conversation so a later save of a
+ * conversation replaces the one still pending: a conversation saved on every turn costs one write
+ * per flush. Pending conversations are flushed together every max delay, as soon as a batch is
+ * full, or by the saving caller itself when the queue is full. A save finding the queue full and
+ * failing to flush it is rejected rather than queued, so that the queue stays bounded while Redis
+ * cannot be written. An empty message list stands for a delete. Once closed, the queue rejects
+ * further saves.
+ */
+final class WriteBehindQueue implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+
+    private final Consumer<Map<String, List<Message>>> writer;
+
+    private final long maxDelay;
+
+    private final int maxPending;
+
+    private final int batchSize;
+
+    private final Object lock = new Object();
+
+    private final Map<String, List<Message>> pending = new LinkedHashMap<>();
+
+    /** Conversations taken by the running flush, still visible to readers until written. */
+    private final Map<String, List<Message>> inFlight = new HashMap<>();
+
+    /** Guarded by {@code lock}, so that no save is queued after the last flush of close. */
+    private boolean closed;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ScheduledExecutorService executor;
+
+    WriteBehindQueue(
+            Consumer<Map<String, List<Message>>> writer,
+            long maxDelay,
+            int maxPending,
+            int batchSize) {
+        this.writer = writer;
+        this.maxDelay = maxDelay;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.executor =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "redis-chat-memory-write-behind");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        this.executor.scheduleWithFixedDelay(
+                this::flushQuietly, maxDelay, maxDelay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the messages of a conversation in place of any save of it still pending.
+     *
+     * @throws IllegalStateException if the queue is closed
+     * @throws RuntimeException thrown by the writer if the queue is full and cannot be flushed, in
+     *     which case the save is not queued
+     */
+    void enqueue(String conversationId, List<Message> messages) {
+        List<Message> copy = messages.stream().map(MessageEntries::copy).toList();
+        boolean full;
+        synchronized (lock) {
+            Assert.state(!closed, "Cannot save conversations behind once the repository is closed");
+            full = pending.size() >= maxPending && !pending.containsKey(conversationId);
+        }
+        if (full) {
+            // Still full after a failed flush: reject the save before queuing it
+            flush();
+        }
+        int size;
+        synchronized (lock) {
+            Assert.state(!closed, "Cannot save conversations behind once the repository is closed");
+            pending.remove(conversationId);
+            pending.put(conversationId, copy);
+            size = pending.size();
+        }
+        if (size >= maxPending) {
+            // Backpressure: the caller pays for the flush rather than the queue growing unbounded.
+            // The save is queued, so a failure is retried, and rejects the next saves meanwhile
+            flushQuietly();
+        } else if (size == batchSize) {
+            try {
+                executor.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Closing meanwhile, its last flush writes the conversation
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the messages pending for a conversation, empty if it is pending deletion,
+     * or {@code null} if nothing is pending.
+     */
+    List<Message> get(String conversationId) {
+        List<Message> messages;
+        synchronized (lock) {
+            messages = pending.get(conversationId);
+            if (messages == null) {
+                messages = inFlight.get(conversationId);
+            }
+        }
+        if (messages == null) {
+            return null;
+        }
+        List<Message> copy = new ArrayList<>(messages.size());
+        messages.forEach(message -> copy.add(MessageEntries.copy(message)));
+        return copy;
+    }
+
+    /** Writes every pending conversation, waiting for a flush already running. */
+    void flush() {
+        flushLock.lock();
+        try {
+            Map<String, List<Message>> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                inFlight.putAll(pending);
+                pending.clear();
+            }
+
+            Map<String, List<Message>> writes = new LinkedHashMap<>();
+            batch.forEach(
+                    (conversationId, messages) ->
+                            writes.put(
+                                    conversationId,
+                                    messages.stream().map(MessageEntries::copy).toList()));
+            try {
+                writer.accept(writes);
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    // Retry on the next flush, unless saved again in the meantime
+                    batch.forEach(pending::putIfAbsent);
+                }
+                throw e;
+            } finally {
+                synchronized (lock) {
+                    inFlight.clear();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Error writing pending conversations, retrying in " + maxDelay + "ms", e);
+        }
+    }
+
+    /** Stops the scheduled flushes and writes what is still pending. */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Timed out waiting for the write-behind flush to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,20 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+/**
+ * When the writes of a {@link WriteThroughChatMemoryRepository} reach its delegate.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public enum WriteDurability {
+
+    /** Writes return once stored by the delegate, then by Redis. */
+    SYNC,
+
+    /**
+     * Writes return once stored by Redis; the delegate is written in the background like the saves
+     * of write-behind mode, so writes acknowledged but not yet written are lost if the process
+     * dies.
+     */
+    ASYNC
+}
@@ -0,0 +1,208 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.memory.ChatMemoryRepository;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link ChatMemoryRepository} using Redis as a cache in front of a delegate repository that
+ * stays the system of record, such as the JDBC repository.
+ *
+ * <p>Reads are served from Redis. On a miss the conversation is read from the delegate and stored
+ * in Redis for the next reads. Writes go through to both repositories, the delegate first with
+ * {@link WriteDurability#SYNC}, or the delegate in the background with {@link
+ * WriteDurability#ASYNC}, queued and coalesced per conversation like write-behind saves with the
+ * write-behind delay, pending limit and batch size of the Redis repository's configuration.
+ * Conversation ids are listed by the delegate, which only lists conversations once written.
+ *
+ * <p>The Redis repository should have a time to live, which bounds how long a conversation filled
+ * by a read racing with a write of the same conversation may be stale.
+ *
+ * @author Cyanty
+ * @since 1.0.0
+ */
+public final class WriteThroughChatMemoryRepository implements ChatMemoryRepository, AutoCloseable {
+
+    private static final Logger logger =
+            LoggerFactory.getLogger(WriteThroughChatMemoryRepository.class);
+
+    private final RedisChatMemoryRepository cache;
+
+    private final ChatMemoryRepository delegate;
+
+    private final WriteDurability durability;
+
+    /** Writes pending for the delegate with {@link WriteDurability#ASYNC}. */
+    private final WriteBehindQueue pending;
+
+    private WriteThroughChatMemoryRepository(
+            RedisChatMemoryRepository cache,
+            ChatMemoryRepository delegate,
+            WriteDurability durability) {
+        Assert.notNull(cache, "cache cannot be null");
+        Assert.notNull(delegate, "delegate cannot be null");
+        Assert.isTrue(cache != delegate, "delegate cannot be the cache");
+        Assert.notNull(durability, "durability cannot be null");
+        this.cache = cache;
+        this.delegate = delegate;
+        this.durability = durability;
+        RedisChatMemoryRepositoryConfig config = cache.getConfig();
+        this.pending =
+                durability == WriteDurability.ASYNC
+                        ? new WriteBehindQueue(
+                                this::writeDelegate,
+                                config.getWriteBehindMaxDelay(),
+                                config.getWriteBehindMaxPending(),
+                                config.getBatchSize())
+                        : null;
+    }
+
+    private void writeDelegate(Map<String, List<Message>> conversations) {
+        conversations.forEach(
+                (conversationId, messages) -> {
+                    if (messages.isEmpty()) {
+                        delegate.deleteByConversationId(conversationId);
+                    } else {
+                        delegate.saveAll(conversationId, messages);
+                    }
+                });
+    }
+
+    @Override
+    public List<String> findConversationIds() {
+        return delegate.findConversationIds();
+    }
+
+    /**
+     * Reads a conversation from Redis, or from the delegate on a miss, in which case it is stored
+     * in Redis as well.
+     */
+    @Override
+    public List<Message> findByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        if (pending != null) {
+            List<Message> messages = pending.get(conversationId);
+            if (messages != null) {
+                return messages;
+            }
+        }
+        List<Message> messages = cache.findByConversationId(conversationId);
+        if (!messages.isEmpty()) {
+            return messages;
+        }
+        messages = delegate.findByConversationId(conversationId);
+        if (!messages.isEmpty()) {
+            try {
+                cache.saveAll(conversationId, messages);
+            } catch (RuntimeException e) {
+                logger.warn("Error caching conversation " + conversationId, e);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public void saveAll(String conversationId, List<Message> messages) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        Assert.notNull(messages, "messages cannot be null");
+        Assert.noNullElements(messages, "messages cannot contain null elements");
+        if (pending != null) {
+            pending.enqueue(conversationId, messages);
+            cache.saveAll(conversationId, messages);
+            return;
+        }
+        delegate.saveAll(conversationId, messages);
+        try {
+            cache.saveAll(conversationId, messages);
+        } catch (RuntimeException e) {
+            logger.warn("Error caching conversation " + conversationId + ", evicting it", e);
+            evict(conversationId);
+        }
+    }
+
+    @Override
+    public void deleteByConversationId(String conversationId) {
+        Assert.hasText(conversationId, "conversationId cannot be null or empty");
+        if (pending != null) {
+            pending.enqueue(conversationId, List.of());
+            cache.deleteByConversationId(conversationId);
+            return;
+        }
+        delegate.deleteByConversationId(conversationId);
+        evict(conversationId);
+    }
+
+    /** Removes a conversation from Redis, leaving it to expire should that fail too. */
+    private void evict(String conversationId) {
+        try {
+            cache.deleteByConversationId(conversationId);
+        } catch (RuntimeException e) {
+            logger.warn("Error evicting conversation " + conversationId, e);
+        }
+    }
+
+    public WriteDurability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Writes the conversations pending for the delegate with {@link WriteDurability#ASYNC} right
+     * away, returning once they are written.
+     */
+    public void flush() {
+        if (pending != null) {
+            pending.flush();
+        }
+    }
+
+    /** Writes what is still pending for the delegate, leaving both repositories open. */
+    @Override
+    public void close() {
+        if (pending != null) {
+            pending.close();
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /** WriteThroughChatMemoryRepository Builder */
+    public static final class Builder {
+
+        private RedisChatMemoryRepository cache;
+
+        private ChatMemoryRepository delegate;
+
+        private WriteDurability durability = WriteDurability.SYNC;
+
+        private Builder() {}
+
+        /** Redis repository serving the reads. */
+        public Builder cache(RedisChatMemoryRepository cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /** Repository of record, read on a cache miss. */
+        public Builder delegate(ChatMemoryRepository delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /** When writes reach the delegate, {@link WriteDurability#SYNC} by default. */
+        public Builder durability(WriteDurability durability) {
+            this.durability = durability;
+            return this;
+        }
+
+        public WriteThroughChatMemoryRepository build() {
+            return new WriteThroughChatMemoryRepository(this.cache, this.delegate, this.durability);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+-- Reads the entries of a conversation numbered after a given sequence, walking the list or
+-- stream from its tail and stopping at the first older entry, so that only new entries leave
+-- Redis.
+--
+-- KEYS[1]   conversation list or stream
+-- ARGV[1]   'stream' for a conversation stream, anything else for a list
+-- ARGV[2]   sequence of the last message already read
+-- ARGV[3]   number of entries read per step
+--
+-- Entries of earlier versions, without a sequence header, count as older than any sequence.
+-- Returns the newer entries oldest first, as pairs of stream entry id, empty for lists, and
+-- entry.
+local key = KEYS[1]
+local stream = ARGV[1] == 'stream'
+local since = tonumber(ARGV[2])
+local step = tonumber(ARGV[3])
+
+local function sequence(entry)
+    if #entry >= 10 and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        local value = 0
+        for i = 3, 10 do
+            value = value * 256 + string.byte(entry, i)
+        end
+        return value
+    end
+    return 0
+end
+
+local function field(fields)
+    for i = 1, #fields, 2 do
+        if fields[i] == 'm' then
+            return fields[i + 1]
+        end
+    end
+    return ''
+end
+
+-- Newest first
+local ids = {}
+local entries = {}
+local done = false
+
+if stream then
+    local last = '+'
+    while not done do
+        local batch = redis.call('XREVRANGE', key, last, '-', 'COUNT', step + 1)
+        local read = 0
+        for _, item in ipairs(batch) do
+            -- The range is inclusive, skip the entry ending the previous step
+            if item[1] ~= last then
+                local entry = field(item[2])
+                if sequence(entry) <= since then
+                    done = true
+                    break
+                end
+                ids[#ids + 1] = item[1]
+                entries[#entries + 1] = entry
+                last = item[1]
+                read = read + 1
+            end
+        end
+        if read == 0 then
+            break
+        end
+    end
+else
+    local stop = -1
+    while not done do
+        local batch = redis.call('LRANGE', key, stop - step + 1, stop)
+        if #batch == 0 then
+            break
+        end
+        for i = #batch, 1, -1 do
+            if sequence(batch[i]) <= since then
+                done = true
+                break
+            end
+            ids[#ids + 1] = ''
+            entries[#entries + 1] = batch[i]
+        end
+        if #batch < step then
+            break
+        end
+        stop = stop - step
+    end
+end
+
+local result = {}
+for i = #entries, 1, -1 do
+    result[#result + 1] = ids[i]
+    result[#result + 1] = entries[i]
+end
+return result
@@ -0,0 +1,147 @@
+-- Replaces or incrementally updates a conversation list in a single atomic call.
+--
+-- KEYS[1]   conversation list
+-- KEYS[2]   payloads of the conversation stored out of line, a hash keyed by their SHA-256
+-- KEYS[3]   conversation id index, a sorted set scored by last activity, omitted in cluster mode
+--           where it lives in another slot and is updated by the caller
+-- ARGV[1]   time to live in seconds, <= 0 leaves the expiry untouched
+-- ARGV[2]   number of stored entries kept at the tail of the list, 0 rewrites the whole list
+-- ARGV[3]   SHA-1 of the first kept entry
+-- ARGV[4]   SHA-1 of the last kept entry
+-- ARGV[5]   conversation id
+-- ARGV[6]   last activity in epoch milliseconds
+-- ARGV[7]   channel announcing the change to near caches, empty to skip
+-- ARGV[8]   number n of payload arguments
+-- ARGV[9..8+n]
+--           field and value of each payload of the appended entries stored out of line
+-- ARGV[9+n..]
+--           entries to append, new messages numbered here
+--
+-- Returns the new list length, or -1 without writing anything when the kept entries no longer
+-- match the stored list.
+local key = KEYS[1]
+local payloadKey = KEYS[2]
+local keep = tonumber(ARGV[2])
+local first = 9 + tonumber(ARGV[8])
+
+-- Entries start with a 10 byte header holding the sequence number of their message, see
+-- MessageEntries; new messages carry 0 and get the next sequence of the conversation here.
+local function sequence(entry)
+    if type(entry) == 'string' and #entry >= 10
+            and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        local value = 0
+        for i = 3, 10 do
+            value = value * 256 + string.byte(entry, i)
+        end
+        return value
+    end
+    return 0
+end
+
+local function assignSequences(first, last)
+    for i = first, #ARGV do
+        local value = sequence(ARGV[i])
+        if value > last then
+            last = value
+        elseif value == 0 and #ARGV[i] >= 10 and string.byte(ARGV[i], 2) == 3 then
+            last = last + 1
+            local bytes = {}
+            local rest = last
+            for j = 8, 1, -1 do
+                bytes[j] = rest % 256
+                rest = math.floor(rest / 256)
+            end
+            ARGV[i] = string.char(0, 3, unpack(bytes)) .. string.sub(ARGV[i], 11)
+        end
+    end
+end
+
+-- Entries storing payloads out of line list them in a header following their sequence and token
+-- headers, see MessageEntries: a 2 byte count, then a 2 byte index and the 32 byte SHA-256 naming
+-- the field of each payload.
+local function referencedPayloads(entry, referenced)
+    if type(entry) ~= 'string' then
+        return
+    end
+    local offset = 1
+    if #entry >= 10 and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        offset = 11
+    end
+    if #entry >= offset + 5 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 2 then
+        offset = offset + 6
+    end
+    if #entry >= offset + 3 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 5 then
+        local count = string.byte(entry, offset + 2) * 256 + string.byte(entry, offset + 3)
+        for i = 0, count - 1 do
+            local start = offset + 6 + i * 34
+            referenced[string.sub(entry, start, start + 31)] = true
+        end
+    end
+end
+
+-- Deletes the payloads no longer referred to by the given entries, those left in the conversation
+local function clearPayloads(payloadKey, entries)
+    local referenced = {}
+    for _, entry in ipairs(entries) do
+        referencedPayloads(entry, referenced)
+    end
+    local unreferenced = {}
+    for _, field in ipairs(redis.call('HKEYS', payloadKey)) do
+        if not referenced[field] then
+            table.insert(unreferenced, field)
+        end
+    end
+    for i = 1, #unreferenced, 1000 do
+        redis.call('HDEL', payloadKey, unpack(unreferenced, i, math.min(i + 999, #unreferenced)))
+    end
+end
+
+local last = sequence(redis.call('LINDEX', key, -1))
+local trimmed = keep == 0
+
+if keep > 0 then
+    local size = redis.call('LLEN', key)
+    if size < keep
+            or redis.sha1hex(redis.call('LINDEX', key, -keep)) ~= ARGV[3]
+            or redis.sha1hex(redis.call('LINDEX', key, -1)) ~= ARGV[4] then
+        return -1
+    end
+    if size > keep then
+        redis.call('LTRIM', key, size - keep, -1)
+        trimmed = true
+    end
+else
+    redis.call('DEL', key)
+end
+
+assignSequences(first, last)
+
+-- unpack is bounded by the Lua stack, push in chunks
+for i = first, #ARGV, 1000 do
+    redis.call('RPUSH', key, unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+for i = 9, first - 1, 1000 do
+    redis.call('HSET', payloadKey, unpack(ARGV, i, math.min(i + 999, first - 1)))
+end
+
+if trimmed and redis.call('EXISTS', payloadKey) == 1 then
+    clearPayloads(payloadKey, redis.call('LRANGE', key, 0, -1))
+end
+
+if KEYS[3] then
+    redis.call('ZADD', KEYS[3], ARGV[6], ARGV[5])
+end
+
+local ttl = tonumber(ARGV[1])
+if ttl > 0 then
+    redis.call('EXPIRE', key, ttl)
+    redis.call('EXPIRE', payloadKey, ttl)
+end
+
+if ARGV[7] ~= '' then
+    redis.call('PUBLISH', ARGV[7], ARGV[5])
+end
+
+return redis.call('LLEN', key)
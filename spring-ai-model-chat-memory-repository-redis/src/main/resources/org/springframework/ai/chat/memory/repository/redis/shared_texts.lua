@@ -0,0 +1,87 @@
+-- Lists the texts shared by the entries of a conversation, so that their expiry is refreshed
+-- along with the conversation, see SharedTexts.
+--
+-- KEYS[1]   conversation list or stream
+-- ARGV[1]   number of entries read per step
+--
+-- Returns the distinct 32 byte SHA-256 naming each shared text.
+local step = tonumber(ARGV[1])
+
+local hashes = {}
+local seen = {}
+
+-- Entries sharing their text carry its SHA-256 in a header following their sequence, token and
+-- payloads headers, see MessageEntries.
+local function collect(entry)
+    if type(entry) ~= 'string' then
+        return
+    end
+    local offset = 1
+    if #entry >= 10 and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        offset = 11
+    end
+    if #entry >= offset + 5 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 2 then
+        offset = offset + 6
+    end
+    if #entry >= offset + 3 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 5 then
+        local count = string.byte(entry, offset + 2) * 256 + string.byte(entry, offset + 3)
+        offset = offset + 4 + count * 34
+    end
+    if #entry >= offset + 33 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 4 then
+        local hash = string.sub(entry, offset + 2, offset + 33)
+        if not seen[hash] then
+            seen[hash] = true
+            hashes[#hashes + 1] = hash
+        end
+    end
+end
+
+local function collectList(key)
+    local start = 0
+    while true do
+        local batch = redis.call('LRANGE', key, start, start + step - 1)
+        for _, entry in ipairs(batch) do
+            collect(entry)
+        end
+        if #batch < step then
+            return
+        end
+        start = start + step
+    end
+end
+
+local function collectStream(key)
+    local last = '-'
+    while true do
+        local batch = redis.call('XRANGE', key, last, '+', 'COUNT', step + 1)
+        local read = 0
+        for _, item in ipairs(batch) do
+            -- The range is inclusive, skip the entry ending the previous step
+            if item[1] ~= last then
+                local fields = item[2]
+                for i = 1, #fields, 2 do
+                    if fields[i] == 'm' then
+                        collect(fields[i + 1])
+                    end
+                end
+                last = item[1]
+                read = read + 1
+            end
+        end
+        if read == 0 then
+            return
+        end
+    end
+end
+
+local kind = redis.call('TYPE', KEYS[1])['ok']
+if kind == 'list' then
+    collectList(KEYS[1])
+elseif kind == 'stream' then
+    collectStream(KEYS[1])
+end
+
+return hashes
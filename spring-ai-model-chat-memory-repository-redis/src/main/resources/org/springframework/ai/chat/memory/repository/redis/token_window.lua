@@ -0,0 +1,101 @@
+-- Reads the newest entries of a conversation whose token estimates fit a budget, walking the
+-- list or stream from its tail and reading the estimates from the entry headers so that only
+-- the returned entries leave Redis.
+--
+-- KEYS[1]   conversation list or stream
+-- ARGV[1]   'stream' for a conversation stream, anything else for a list
+-- ARGV[2]   token budget
+-- ARGV[3]   number of entries read per step
+--
+-- Entries without a token header, written uncompressed without an estimator, count a token per
+-- four bytes. Compressed entries always carry one, counting their size before compression.
+-- Returns the fitting entries oldest first, as pairs of stream entry id, empty for lists, and
+-- entry.
+local key = KEYS[1]
+local stream = ARGV[1] == 'stream'
+local budget = tonumber(ARGV[2])
+local step = tonumber(ARGV[3])
+
+local function tokens(entry)
+    -- Past the sequence header, see MessageEntries
+    local at = 1
+    if #entry >= 10 and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        at = 11
+    end
+    if #entry >= at + 5 and string.byte(entry, at) == 0 and string.byte(entry, at + 1) == 2 then
+        local b1, b2, b3, b4 = string.byte(entry, at + 2, at + 5)
+        return ((b1 * 256 + b2) * 256 + b3) * 256 + b4
+    end
+    return math.ceil((#entry - at + 1) / 4)
+end
+
+local function field(fields)
+    for i = 1, #fields, 2 do
+        if fields[i] == 'm' then
+            return fields[i + 1]
+        end
+    end
+    return ''
+end
+
+-- Newest first
+local ids = {}
+local entries = {}
+local used = 0
+local full = false
+
+if stream then
+    local last = '+'
+    while not full do
+        local batch = redis.call('XREVRANGE', key, last, '-', 'COUNT', step + 1)
+        local read = 0
+        for _, item in ipairs(batch) do
+            -- The range is inclusive, skip the entry ending the previous step
+            if item[1] ~= last then
+                local entry = field(item[2])
+                local cost = tokens(entry)
+                if used + cost > budget then
+                    full = true
+                    break
+                end
+                used = used + cost
+                ids[#ids + 1] = item[1]
+                entries[#entries + 1] = entry
+                last = item[1]
+                read = read + 1
+            end
+        end
+        if read == 0 then
+            break
+        end
+    end
+else
+    local stop = -1
+    while not full do
+        local batch = redis.call('LRANGE', key, stop - step + 1, stop)
+        if #batch == 0 then
+            break
+        end
+        for i = #batch, 1, -1 do
+            local cost = tokens(batch[i])
+            if used + cost > budget then
+                full = true
+                break
+            end
+            used = used + cost
+            ids[#ids + 1] = ''
+            entries[#entries + 1] = batch[i]
+        end
+        if #batch < step then
+            break
+        end
+        stop = stop - step
+    end
+end
+
+local result = {}
+for i = #entries, 1, -1 do
+    result[#result + 1] = ids[i]
+    result[#result + 1] = entries[i]
+end
+return result
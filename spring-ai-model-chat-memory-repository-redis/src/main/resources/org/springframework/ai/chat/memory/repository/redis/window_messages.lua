@@ -0,0 +1,210 @@
+-- Appends messages to a conversation and trims it to a message window in a single atomic call.
+-- System messages stay in the conversation list, in their place, and are never evicted: trimming
+-- evicts the oldest other messages, as MessageWindowChatMemory does.
+--
+-- KEYS[1]   conversation list
+-- KEYS[2]   payloads of the conversation stored out of line, a hash keyed by their SHA-256
+-- KEYS[3]   conversation id index, a sorted set scored by last activity, omitted in cluster mode
+--           where it lives in another slot and is updated by the caller
+-- ARGV[1]   time to live in seconds, <= 0 leaves the expiry untouched
+-- ARGV[2]   maximum number of messages in the window, system messages included
+-- ARGV[3]   number of system messages among the appended ones, which replace the stored ones
+--           if > 0
+-- ARGV[4]   conversation id
+-- ARGV[5]   last activity in epoch milliseconds
+-- ARGV[6]   channel announcing the change to near caches, empty to skip
+-- ARGV[7]   number n of payload arguments
+-- ARGV[8..7+n]
+--           field and value of each payload of the appended entries stored out of line
+-- ARGV[8+n..]
+--           entries to append, new messages numbered here
+--
+-- Returns the number of messages in the window.
+local key = KEYS[1]
+local payloadKey = KEYS[2]
+local maxMessages = tonumber(ARGV[2])
+local systemCount = tonumber(ARGV[3])
+local first = 8 + tonumber(ARGV[7])
+local step = 100
+
+-- Entries start with a 10 byte header holding the sequence number of their message, see
+-- MessageEntries; new messages carry 0 and get the next sequence of the conversation here.
+local function sequence(entry)
+    if type(entry) == 'string' and #entry >= 10
+            and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        local value = 0
+        for i = 3, 10 do
+            value = value * 256 + string.byte(entry, i)
+        end
+        return value
+    end
+    return 0
+end
+
+local function assignSequences(first, last)
+    for i = first, #ARGV do
+        local value = sequence(ARGV[i])
+        if value > last then
+            last = value
+        elseif value == 0 and #ARGV[i] >= 10 and string.byte(ARGV[i], 2) == 3 then
+            last = last + 1
+            local bytes = {}
+            local rest = last
+            for j = 8, 1, -1 do
+                bytes[j] = rest % 256
+                rest = math.floor(rest / 256)
+            end
+            ARGV[i] = string.char(0, 3, unpack(bytes)) .. string.sub(ARGV[i], 11)
+        end
+    end
+end
+
+-- Offset of the payloads header of an entry, past its sequence and token headers
+local function payloadsOffset(entry)
+    local offset = 1
+    if #entry >= 10 and string.byte(entry, 1) == 0 and string.byte(entry, 2) == 3 then
+        offset = 11
+    end
+    if #entry >= offset + 5 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 2 then
+        offset = offset + 6
+    end
+    return offset
+end
+
+-- Entries storing payloads out of line list them in a header following their sequence and token
+-- headers, see MessageEntries: a 2 byte count, then a 2 byte index and the 32 byte SHA-256 naming
+-- the field of each payload.
+local function referencedPayloads(entry, referenced)
+    if type(entry) ~= 'string' then
+        return
+    end
+    local offset = payloadsOffset(entry)
+    if #entry >= offset + 3 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 5 then
+        local count = string.byte(entry, offset + 2) * 256 + string.byte(entry, offset + 3)
+        for i = 0, count - 1 do
+            local start = offset + 6 + i * 34
+            referenced[string.sub(entry, start, start + 31)] = true
+        end
+    end
+end
+
+-- Entries of system messages carry a marker past their payloads and shared text headers
+local function isSystem(entry)
+    local offset = payloadsOffset(entry)
+    if #entry >= offset + 3 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 5 then
+        offset = offset + 4 + (string.byte(entry, offset + 2) * 256
+                + string.byte(entry, offset + 3)) * 34
+    end
+    if #entry >= offset + 33 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 4 then
+        offset = offset + 34
+    end
+    return #entry >= offset + 1 and string.byte(entry, offset) == 0
+            and string.byte(entry, offset + 1) == 6
+end
+
+-- Deletes the payloads no longer referred to by the given entries, those left in the conversation
+local function clearPayloads(payloadKey, entries)
+    local referenced = {}
+    for _, entry in ipairs(entries) do
+        referencedPayloads(entry, referenced)
+    end
+    local unreferenced = {}
+    for _, field in ipairs(redis.call('HKEYS', payloadKey)) do
+        if not referenced[field] then
+            table.insert(unreferenced, field)
+        end
+    end
+    for i = 1, #unreferenced, 1000 do
+        redis.call('HDEL', payloadKey, unpack(unreferenced, i, math.min(i + 999, #unreferenced)))
+    end
+end
+
+-- Numbered after the newest message, before the stored system messages are replaced
+assignSequences(first, sequence(redis.call('LINDEX', key, -1)))
+
+local trimmed = false
+
+-- New system messages replace the stored ones, wherever they are
+if systemCount > 0 then
+    local stored = {}
+    local start = 0
+    while true do
+        local batch = redis.call('LRANGE', key, start, start + step - 1)
+        for _, entry in ipairs(batch) do
+            if isSystem(entry) then
+                table.insert(stored, entry)
+            end
+        end
+        if #batch < step then
+            break
+        end
+        start = start + step
+    end
+    for _, entry in ipairs(stored) do
+        redis.call('LREM', key, 0, entry)
+        trimmed = true
+    end
+end
+
+-- unpack is bounded by the Lua stack, push in chunks
+for i = first, #ARGV, 1000 do
+    redis.call('RPUSH', key, unpack(ARGV, i, math.min(i + 999, #ARGV)))
+end
+for i = 8, first - 1, 1000 do
+    redis.call('HSET', payloadKey, unpack(ARGV, i, math.min(i + 999, first - 1)))
+end
+
+-- Evicts the oldest messages beyond the window, walking past the system messages among them,
+-- which are pushed back ahead of the rest
+local excess = redis.call('LLEN', key) - maxMessages
+if excess > 0 then
+    local kept = {}
+    local removed = 0
+    local position = 0
+    while removed < excess do
+        local batch = redis.call('LRANGE', key, position, position + step - 1)
+        for _, entry in ipairs(batch) do
+            if removed == excess then
+                break
+            end
+            position = position + 1
+            if isSystem(entry) then
+                table.insert(kept, entry)
+            else
+                removed = removed + 1
+            end
+        end
+        if #batch < step then
+            break
+        end
+    end
+    redis.call('LTRIM', key, position, -1)
+    for i = #kept, 1, -1 do
+        redis.call('LPUSH', key, kept[i])
+    end
+    trimmed = trimmed or removed > 0
+end
+
+if trimmed and redis.call('EXISTS', payloadKey) == 1 then
+    clearPayloads(payloadKey, redis.call('LRANGE', key, 0, -1))
+end
+
+if KEYS[3] then
+    redis.call('ZADD', KEYS[3], ARGV[5], ARGV[4])
+end
+
+local ttl = tonumber(ARGV[1])
+if ttl > 0 then
+    redis.call('EXPIRE', key, ttl)
+    redis.call('EXPIRE', payloadKey, ttl)
+end
+
+if ARGV[6] ~= '' then
+    redis.call('PUBLISH', ARGV[6], ARGV[4])
+end
+
+return redis.call('LLEN', key)
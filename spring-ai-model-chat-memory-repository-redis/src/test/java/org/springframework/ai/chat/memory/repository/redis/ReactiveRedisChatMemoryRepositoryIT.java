@@ -0,0 +1,171 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@Testcontainers
+public class ReactiveRedisChatMemoryRepositoryIT {
+
+    private static final String TEST_CHAT_MEMORY_KEY_PREFIX = "test_reactive_chat_memory:";
+
+    @Container
+    private static final GenericContainer<?> redisContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    private final ApplicationContextRunner contextRunner =
+            new ApplicationContextRunner()
+                    .withConfiguration(
+                            AutoConfigurations.of(
+                                    RedisAutoConfiguration.class,
+                                    RedisReactiveAutoConfiguration.class))
+                    .withPropertyValues(
+                            String.format("spring.data.redis.host=%s", redisContainer.getHost()),
+                            String.format(
+                                    "spring.data.redis.port=%s",
+                                    redisContainer.getFirstMappedPort()));
+
+    @Test
+    void saveFindAndDeleteMessages() {
+        this.contextRunner.run(
+                context -> {
+                    var chatMemoryRepository =
+                            getReactiveRedisChatMemoryRepository(
+                                    context.getBean(ReactiveStringRedisTemplate.class));
+                    var conversationId = UUID.randomUUID().toString();
+                    assertThat(
+                                    chatMemoryRepository
+                                            .findByConversationId(conversationId)
+                                            .collectList()
+                                            .block())
+                            .isEmpty();
+
+                    chatMemoryRepository
+                            .saveAll(
+                                    conversationId,
+                                    List.of(
+                                            new SystemMessage("System message"),
+                                            new UserMessage("User message"),
+                                            new AssistantMessage("Assistant message")))
+                            .block();
+
+                    assertThat(
+                                    chatMemoryRepository
+                                            .findByConversationId(conversationId)
+                                            .collectList()
+                                            .block())
+                            .extracting(Message::getText, Message::getMessageType)
+                            .containsExactly(
+                                    tuple("System message", MessageType.SYSTEM),
+                                    tuple("User message", MessageType.USER),
+                                    tuple("Assistant message", MessageType.ASSISTANT));
+                    assertThat(
+                                    chatMemoryRepository
+                                            .findConversationIds(0, 1, Sort.Direction.DESC)
+                                            .collectList()
+                                            .block())
+                            .containsExactly(conversationId);
+
+                    chatMemoryRepository.deleteByConversationId(conversationId).block();
+
+                    assertThat(
+                                    chatMemoryRepository
+                                            .findByConversationId(conversationId)
+                                            .collectList()
+                                            .block())
+                            .isEmpty();
+                    assertThat(chatMemoryRepository.findConversationIds().collectList().block())
+                            .doesNotContain(conversationId);
+                });
+    }
+
+    @Test
+    void shareConversationsWithBlockingRepository() {
+        this.contextRunner.run(
+                context -> {
+                    var reactiveRepository =
+                            getReactiveRedisChatMemoryRepository(
+                                    context.getBean(ReactiveStringRedisTemplate.class));
+                    var blockingRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .incrementalSave(true)
+                                    .redisTemplate(context.getBean(StringRedisTemplate.class))
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    blockingRepository.saveAll(
+                            conversationId,
+                            List.of(new UserMessage("Message 1"), new UserMessage("Message 2")));
+
+                    // Incremental save drops the evicted first message and appends the new one
+                    var messages =
+                            new ArrayList<>(
+                                    reactiveRepository
+                                            .findByConversationId(conversationId)
+                                            .collectList()
+                                            .block());
+                    messages.remove(0);
+                    messages.add(new AssistantMessage("Message 3"));
+                    reactiveRepository.saveAll(conversationId, messages).block();
+
+                    assertThat(blockingRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Message 2", "Message 3");
+                    assertThat(blockingRepository.findConversationIds()).contains(conversationId);
+
+                    // System messages added by the window memory are read and deleted too
+                    RedisWindowChatMemory.builder()
+                            .chatMemoryRepository(blockingRepository)
+                            .build()
+                            .add(conversationId, new SystemMessage("System"));
+                    assertThat(
+                                    reactiveRepository
+                                            .findByConversationId(conversationId)
+                                            .collectList()
+                                            .block())
+                            .extracting(Message::getText)
+                            .containsExactly("Message 2", "Message 3", "System");
+                    reactiveRepository.deleteByConversationId(conversationId).block();
+                    assertThat(
+                                    context.getBean(StringRedisTemplate.class)
+                                            .hasKey(
+                                                    blockingRepository
+                                                            .getConfig()
+                                                            .getConversationKey(conversationId)))
+                            .isFalse();
+                });
+    }
+
+    private ReactiveRedisChatMemoryRepository getReactiveRedisChatMemoryRepository(
+            ReactiveStringRedisTemplate redisTemplate) {
+        return ReactiveRedisChatMemoryRepository.builder()
+                .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                .timeToLive("30m")
+                .incrementalSave(true)
+                .redisTemplate(redisTemplate)
+                .build();
+    }
+}
@@ -0,0 +1,297 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Runs the repository against a three master Redis Cluster. */
+@Testcontainers
+@SuppressWarnings("unchecked")
+public class RedisChatMemoryRepositoryClusterIT {
+
+    private static final String TEST_REDIS_TEMPLATE = "redisTemplate";
+
+    private static final String TEST_STRING_REDIS_TEMPLATE = "stringRedisTemplate";
+
+    private static final String TEST_CHAT_MEMORY_KEY_PREFIX = "test_cluster_chat_memory:";
+
+    private static final List<Integer> PORTS = List.of(7000, 7001, 7002);
+
+    // Nodes announce 127.0.0.1 and their own port, so host and container ports must match
+    @Container
+    private static final GenericContainer<?> redisCluster =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withCommand(
+                            "sh",
+                            "-c",
+                            "for port in 7000 7001 7002; do redis-server --port $port"
+                                    + " --cluster-enabled yes --cluster-config-file nodes-$port.conf"
+                                    + " --cluster-announce-ip 127.0.0.1 --daemonize yes; done;"
+                                    + " sleep 1; redis-cli --cluster create 127.0.0.1:7000"
+                                    + " 127.0.0.1:7001 127.0.0.1:7002 --cluster-yes;"
+                                    + " tail -f /dev/null")
+                    .waitingFor(Wait.forLogMessage(".*All 16384 slots covered.*", 1));
+
+    static {
+        redisCluster.setPortBindings(PORTS.stream().map(port -> port + ":" + port).toList());
+    }
+
+    private final ApplicationContextRunner contextRunner =
+            new ApplicationContextRunner()
+                    .withConfiguration(AutoConfigurations.of(RedisAutoConfiguration.class))
+                    .withPropertyValues(
+                            "spring.data.redis.cluster.nodes="
+                                    + String.join(
+                                            ",",
+                                            PORTS.stream()
+                                                    .map(
+                                                            port ->
+                                                                    redisCluster.getHost()
+                                                                            + ":"
+                                                                            + port)
+                                                    .toList()));
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void saveAndFindConversationsAcrossSlots(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+
+                    Map<String, List<Message>> conversations = new LinkedHashMap<>();
+                    IntStream.range(0, 20)
+                            .forEach(
+                                    i ->
+                                            conversations.put(
+                                                    UUID.randomUUID().toString(),
+                                                    List.of(
+                                                            new UserMessage("Question " + i),
+                                                            new AssistantMessage("Answer " + i))));
+                    chatMemoryRepository.saveAll(conversations);
+
+                    String conversationId = conversations.keySet().iterator().next();
+                    assertThat(
+                                    redisTemplate.hasKey(
+                                            TEST_CHAT_MEMORY_KEY_PREFIX
+                                                    + "{"
+                                                    + conversationId
+                                                    + "}"))
+                            .isTrue();
+                    assertThat(chatMemoryRepository.findByConversationIds(conversations.keySet()))
+                            .containsOnlyKeys(conversations.keySet());
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .containsAll(conversations.keySet());
+
+                    // Incremental save of one conversation
+                    var messages =
+                            new ArrayList<>(
+                                    chatMemoryRepository.findByConversationId(conversationId));
+                    messages.add(new UserMessage("Question 1"));
+                    chatMemoryRepository.saveAll(conversationId, messages);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 0", "Answer 0", "Question 1");
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId)).isEmpty();
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContain(conversationId);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void reindexConversationsOfAllMasters(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+                    List<String> conversationIds =
+                            IntStream.range(0, 30)
+                                    .mapToObj(i -> UUID.randomUUID().toString())
+                                    .toList();
+                    conversationIds.forEach(
+                            conversationId ->
+                                    chatMemoryRepository.saveAll(
+                                            conversationId, List.of(new UserMessage("Hello"))));
+
+                    // The conversations are spread over every master
+                    RedisClusterConnection connection =
+                            redisTemplate.getRequiredConnectionFactory().getClusterConnection();
+                    try {
+                        for (RedisClusterNode node : connection.clusterGetNodes()) {
+                            if (node.isMaster()) {
+                                assertThat(
+                                                connection.keys(
+                                                        node,
+                                                        (TEST_CHAT_MEMORY_KEY_PREFIX + "*")
+                                                                .getBytes()))
+                                        .isNotEmpty();
+                            }
+                        }
+                    } finally {
+                        connection.close();
+                    }
+
+                    redisTemplate.delete(chatMemoryRepository.getConfig().getIndexKey());
+                    assertThat(chatMemoryRepository.findConversationIds()).isEmpty();
+
+                    assertThat(chatMemoryRepository.reindexConversationIds())
+                            .isGreaterThanOrEqualTo(conversationIds.size());
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .containsAll(conversationIds);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void keepWindowInOneSlot(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+                    var chatMemory =
+                            RedisWindowChatMemory.builder()
+                                    .chatMemoryRepository(chatMemoryRepository)
+                                    .maxMessages(3)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    chatMemory.add(
+                            conversationId,
+                            List.of(
+                                    new SystemMessage("System"),
+                                    new UserMessage("Question 1"),
+                                    new AssistantMessage("Answer 1"),
+                                    new UserMessage("Question 2")));
+
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Answer 1", "Question 2");
+                    assertThat(chatMemoryRepository.findConversationIds()).contains(conversationId);
+
+                    chatMemory.clear(conversationId);
+                    assertThat(chatMemory.get(conversationId)).isEmpty();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void shareTextsAcrossSlots(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .cluster(true)
+                                    .dedupe(true)
+                                    .dedupeMessageTypes(Set.of(MessageType.SYSTEM))
+                                    .dedupeCacheMaxEntries(0)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    List<Message> messages =
+                            IntStream.range(0, 10)
+                                    .<Message>mapToObj(i -> new SystemMessage("System " + i))
+                                    .toList();
+
+                    chatMemoryRepository.saveAll(conversationId, messages);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactlyElementsOf(
+                                    messages.stream().map(Message::getText).toList());
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                });
+    }
+
+    private RedisChatMemoryRepository getRedisChatMemoryRepository(
+            RedisTemplate<String, String> redisTemplate) {
+        return RedisChatMemoryRepository.builder()
+                .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                .timeToLive("30m")
+                .incrementalSave(true)
+                .cluster(true)
+                .redisTemplate(redisTemplate)
+                .build();
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void offloadPayloadsInTheSlotOfTheirConversation(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .cluster(true)
+                                    .offloadPayloads(true)
+                                    .offloadThreshold(16)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    var toolResponseMessage =
+                            new ToolResponseMessage(
+                                    List.of(
+                                            new ToolResponseMessage.ToolResponse(
+                                                    "call", "weather", "Sunny in Paris all week")));
+
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(new UserMessage("Weather?"), toolResponseMessage));
+                    assertThat(
+                                    redisTemplate
+                                            .opsForHash()
+                                            .size(
+                                                    chatMemoryRepository
+                                                            .getConfig()
+                                                            .getPayloadKey(conversationId)))
+                            .isEqualTo(1);
+                    assertThat(
+                                    ((ToolResponseMessage)
+                                                    chatMemoryRepository
+                                                            .findByConversationId(conversationId)
+                                                            .get(1))
+                                            .getResponses())
+                            .containsExactlyElementsOf(toolResponseMessage.getResponses());
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                });
+    }
+}
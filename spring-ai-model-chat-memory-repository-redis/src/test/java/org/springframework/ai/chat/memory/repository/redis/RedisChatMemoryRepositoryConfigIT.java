@@ -6,6 +6,7 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.springframework.data.redis.core.RedisTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
 @SuppressWarnings("unchecked")
@@ -22,6 +23,8 @@ public class RedisChatMemoryRepositoryConfigIT {
         assertThat(repository.getKeyPrefix())
                 .isEqualTo(RedisChatMemoryRepositoryConfig.DEFAULT_KEY_PREFIX);
         assertThat(repository.getTimeToLive()).isEqualTo(-1L);
+        assertThat(repository.getIndexKey()).isEqualTo("spring_ai_chat_memory_index");
+        assertThat(repository.isIncrementalSave()).isFalse();
     }
 
     @ParameterizedTest
@@ -38,5 +41,74 @@ public class RedisChatMemoryRepositoryConfigIT {
         assertThat(repository).isNotNull();
         assertThat(repository.getKeyPrefix()).isEqualTo("test_chat_memory:");
         assertThat(repository.getTimeToLive()).isEqualTo(expectedTimeToLiveMillis);
+        assertThat(repository.getIndexKey()).isEqualTo("test_chat_memory_index");
+    }
+
+    @Test
+    public void testBuilderWithExplicitIndexKey() {
+        var repository =
+                RedisChatMemoryRepositoryConfig.builder()
+                        .withIndexKey("test_chat_memory_conversations")
+                        .withRedisTemplate(mock(RedisTemplate.class))
+                        .build();
+
+        assertThat(repository.getIndexKey()).isEqualTo("test_chat_memory_conversations");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"500ms,500", "60s,60000", "5m,300000", "-1,-1"})
+    public void testBuilderWithNearCacheTimeToLive(
+            String nearCacheTimeToLive, long expectedTimeToLiveMillis) {
+        var config =
+                RedisChatMemoryRepositoryConfig.builder()
+                        .withNearCacheTimeToLive(nearCacheTimeToLive)
+                        .withRedisTemplate(mock(RedisTemplate.class))
+                        .build();
+
+        assertThat(config.getNearCacheTimeToLive()).isEqualTo(expectedTimeToLiveMillis);
+    }
+
+    @Test
+    public void testBuilderRejectsUnparseableNearCacheTimeToLive() {
+        assertThatThrownBy(
+                        () ->
+                                RedisChatMemoryRepositoryConfig.builder()
+                                        .withNearCacheTimeToLive("1xx")
+                                        .withRedisTemplate(mock(RedisTemplate.class))
+                                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("nearCacheTimeToLive");
+    }
+
+    @Test
+    public void testBuilderWithSlidingExpiration() {
+        var config =
+                RedisChatMemoryRepositoryConfig.builder()
+                        .withTimeToLive("10m")
+                        .withSlidingExpiration(true)
+                        .withRedisTemplate(mock(RedisTemplate.class))
+                        .build();
+
+        assertThat(config.isSlidingExpiration()).isTrue();
+        assertThat(config.getSlidingExpirationInterval()).isEqualTo(60_000L);
+
+        config =
+                RedisChatMemoryRepositoryConfig.builder()
+                        .withTimeToLive("10m")
+                        .withSlidingExpiration(true)
+                        .withSlidingExpirationInterval("500ms")
+                        .withRedisTemplate(mock(RedisTemplate.class))
+                        .build();
+
+        assertThat(config.getSlidingExpirationInterval()).isEqualTo(500L);
+
+        assertThatThrownBy(
+                        () ->
+                                RedisChatMemoryRepositoryConfig.builder()
+                                        .withSlidingExpiration(true)
+                                        .withRedisTemplate(mock(RedisTemplate.class))
+                                        .build())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("timeToLive");
     }
 }
@@ -1,5 +1,6 @@
 package org.springframework.ai.chat.memory.repository.redis;
 
+import org.awaitility.Awaitility;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
@@ -9,19 +10,44 @@ import org.springframework.ai.chat.messages.MessageType;
 import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.ToolResponseMessage;
 import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.ai.content.Media;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.MimeTypeUtils;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 /*
 @TestPropertySource(properties = { "spring.data.redis.host=localhost" })
@@ -229,11 +255,1379 @@ public class RedisChatMemoryRepositoryIT {
                 });
     }
 
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void saveMessagesIncrementally(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .incrementalSave(true)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+
+                    var conversationId = UUID.randomUUID().toString();
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(
+                                    new UserMessage("Message from user 1"),
+                                    new AssistantMessage("Message from assistant 1"),
+                                    new UserMessage("Message from user 2")));
+
+                    // Evict the oldest message and append a new one, as a message window does
+                    var window =
+                            new ArrayList<>(
+                                    chatMemoryRepository.findByConversationId(conversationId));
+                    assertThat(window)
+                            .allSatisfy(
+                                    message ->
+                                            assertThat(message.getMetadata())
+                                                    .containsKey(
+                                                            RedisChatMemoryRepository
+                                                                    .ENTRY_DIGEST));
+                    window.remove(0);
+                    window.add(new AssistantMessage("Message from assistant 2"));
+                    chatMemoryRepository.saveAll(conversationId, window);
+
+                    var results = chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(results)
+                            .extracting(Message::getText)
+                            .containsExactly(
+                                    "Message from assistant 1",
+                                    "Message from user 2",
+                                    "Message from assistant 2");
+
+                    // Messages that no longer line up with the stored list force a rewrite
+                    var reordered = new ArrayList<>(results);
+                    reordered.remove(1);
+                    chatMemoryRepository.saveAll(conversationId, reordered);
+
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly(
+                                    "Message from assistant 1", "Message from assistant 2");
+                    assertThat(
+                                    redisTemplate.getExpire(
+                                            TEST_CHAT_MEMORY_KEY_PREFIX + conversationId))
+                            .isPositive();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void saveLargeConversationReplacesPreviousMessages(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+
+                    var conversationId = UUID.randomUUID().toString();
+                    chatMemoryRepository.saveAll(
+                            conversationId, List.of(new UserMessage("Message to be replaced")));
+
+                    // More entries than a single RPUSH chunk of the save script
+                    var messages =
+                            IntStream.range(0, 2500)
+                                    .<Message>mapToObj(i -> new UserMessage("Message " + i))
+                                    .toList();
+                    chatMemoryRepository.saveAll(conversationId, messages);
+
+                    var results = chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(results).hasSize(messages.size());
+                    assertThat(results.get(0).getText()).isEqualTo("Message 0");
+                    assertThat(results.get(2499).getText()).isEqualTo("Message 2499");
+                    assertThat(
+                                    redisTemplate.getExpire(
+                                            TEST_CHAT_MEMORY_KEY_PREFIX + conversationId))
+                            .isPositive();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void findConversationIdsFromIndex(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+
+                    // Ids may contain the key separator
+                    var conversationId = "tenant:42:" + UUID.randomUUID();
+                    chatMemoryRepository.saveAll(
+                            conversationId, List.of(new UserMessage("Message from user")));
+
+                    assertThat(chatMemoryRepository.findConversationIds()).contains(conversationId);
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContain(conversationId);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void reindexConversationIds(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+
+                    // A conversation written before the index existed
+                    var conversationId = UUID.randomUUID().toString();
+                    redisTemplate
+                            .opsForList()
+                            .rightPush(
+                                    TEST_CHAT_MEMORY_KEY_PREFIX + conversationId,
+                                    "{\"messageType\":\"USER\",\"text\":\"Legacy message\"}");
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContain(conversationId);
+
+                    assertThat(chatMemoryRepository.reindexConversationIds()).isPositive();
+
+                    assertThat(chatMemoryRepository.findConversationIds()).contains(conversationId);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Legacy message");
+
+                    // Key prefixes are matched literally, glob characters included
+                    String globPrefix = "test_chat_memory[glob]:";
+                    var globRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(globPrefix)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    redisTemplate
+                            .opsForList()
+                            .rightPush(
+                                    globPrefix + conversationId,
+                                    "{\"messageType\":\"USER\",\"text\":\"Legacy message\"}");
+                    assertThat(globRepository.reindexConversationIds()).isOne();
+                    globRepository.deleteByConversationId(conversationId);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void findConversationIdsByPageAndStream(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    // A key prefix of its own keeps the index free of other tests' conversations
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(
+                                            TEST_CHAT_MEMORY_KEY_PREFIX + UUID.randomUUID() + ":")
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+
+                    var conversationIds = List.of("first", "second", "third");
+                    for (var conversationId : conversationIds) {
+                        chatMemoryRepository.saveAll(
+                                conversationId, List.of(new UserMessage("Message from user")));
+                        Thread.sleep(5);
+                    }
+
+                    assertThat(chatMemoryRepository.findConversationIds(0, 2))
+                            .containsExactly("third", "second");
+                    assertThat(chatMemoryRepository.findConversationIds(2, 2))
+                            .containsExactly("first");
+                    assertThat(chatMemoryRepository.findConversationIds(0, 2, Sort.Direction.ASC))
+                            .containsExactly("first", "second");
+
+                    try (var stream = chatMemoryRepository.streamConversationIds()) {
+                        assertThat(stream).containsExactlyInAnyOrderElementsOf(conversationIds);
+                    }
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void nearCacheIsInvalidatedAcrossNodes(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    try (var node1 = getNearCachedRedisChatMemoryRepository(redisTemplate);
+                            var node2 = getNearCachedRedisChatMemoryRepository(redisTemplate)) {
+                        var conversationId = UUID.randomUUID().toString();
+                        node1.saveAll(conversationId, List.of(new UserMessage("Message 1")));
+
+                        var cached = node2.findByConversationId(conversationId);
+                        assertThat(cached)
+                                .extracting(Message::getText)
+                                .containsExactly("Message 1");
+
+                        // Cached conversations are handed out as copies
+                        cached.get(0).getMetadata().put("mutated", true);
+                        assertThat(node2.findByConversationId(conversationId).get(0).getMetadata())
+                                .doesNotContainKey("mutated");
+
+                        node1.saveAll(
+                                conversationId,
+                                List.of(
+                                        new UserMessage("Message 1"),
+                                        new UserMessage("Message 2")));
+
+                        Awaitility.await()
+                                .atMost(Duration.ofSeconds(5))
+                                .untilAsserted(
+                                        () ->
+                                                assertThat(
+                                                                node2.findByConversationId(
+                                                                        conversationId))
+                                                        .hasSize(2));
+
+                        node1.deleteByConversationId(conversationId);
+
+                        Awaitility.await()
+                                .atMost(Duration.ofSeconds(5))
+                                .untilAsserted(
+                                        () ->
+                                                assertThat(
+                                                                node2.findByConversationId(
+                                                                        conversationId))
+                                                        .isEmpty());
+                    }
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({"json", "smile", "cbor"})
+    void readMessageMetadataAsStored(String codec) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(TEST_STRING_REDIS_TEMPLATE, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            getRedisChatMemoryRepository(
+                                    redisTemplate,
+                                    switch (codec) {
+                                        case "smile" -> new SmileMessageCodec();
+                                        case "cbor" -> new CborMessageCodec();
+                                        default -> new JsonMessageCodec();
+                                    });
+                    var conversationId = UUID.randomUUID().toString();
+                    var metadata =
+                            Map.<String, Object>of(
+                                    "model",
+                                    "gpt-4o",
+                                    "tokens",
+                                    42,
+                                    "score",
+                                    0.5,
+                                    "finished",
+                                    true,
+                                    "tags",
+                                    List.of("a", "b"),
+                                    "usage",
+                                    Map.of("prompt", 10, "completion", 32));
+                    chatMemoryRepository.saveAll(
+                            conversationId, List.of(new AssistantMessage("Answer", metadata)));
+
+                    var first = chatMemoryRepository.findByConversationId(conversationId).get(0);
+                    assertThat(first.getText()).isEqualTo("Answer");
+                    assertThat(first.getMetadata())
+                            .containsAllEntriesOf(metadata)
+                            .containsEntry("messageType", MessageType.ASSISTANT)
+                            .containsKey("timestamp");
+
+                    // The timestamp is the one the message was stored with
+                    var second = chatMemoryRepository.findByConversationId(conversationId).get(0);
+                    assertThat(second.getMetadata().get("timestamp"))
+                            .isEqualTo(first.getMetadata().get("timestamp"));
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void readMessagesWrittenByOtherCodecs(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var jsonRepository = getRedisChatMemoryRepository(redisTemplate);
+                    var smileRepository =
+                            getRedisChatMemoryRepository(redisTemplate, new SmileMessageCodec());
+                    var cborRepository =
+                            getRedisChatMemoryRepository(redisTemplate, new CborMessageCodec());
+                    var conversationId = UUID.randomUUID().toString();
+
+                    jsonRepository.saveAll(conversationId, List.of(new UserMessage("Message 1")));
+                    var messages =
+                            new ArrayList<>(smileRepository.findByConversationId(conversationId));
+                    messages.add(new AssistantMessage("Message 2"));
+                    smileRepository.saveAll(conversationId, messages);
+                    messages = new ArrayList<>(cborRepository.findByConversationId(conversationId));
+                    messages.add(new UserMessage("Message 3"));
+                    cborRepository.saveAll(conversationId, messages);
+
+                    for (var repository :
+                            List.of(jsonRepository, smileRepository, cborRepository)) {
+                        assertThat(repository.findByConversationId(conversationId))
+                                .extracting(Message::getText, Message::getMessageType)
+                                .containsExactly(
+                                        tuple("Message 1", MessageType.USER),
+                                        tuple("Message 2", MessageType.ASSISTANT),
+                                        tuple("Message 3", MessageType.USER));
+                    }
+
+                    // Every save rewrites the conversation with the saving repository's codec
+                    byte[] key =
+                            ((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                                    .serialize(TEST_CHAT_MEMORY_KEY_PREFIX + conversationId);
+                    List<byte[]> entries =
+                            redisTemplate.execute(
+                                    (RedisCallback<List<byte[]>>)
+                                            connection ->
+                                                    connection.listCommands().lRange(key, 0, -1));
+                    // Past the sequence header
+                    assertThat(entries)
+                            .hasSize(3)
+                            .allMatch(
+                                    entry ->
+                                            new CborMessageCodec()
+                                                    .canDecode(
+                                                            Arrays.copyOfRange(
+                                                                    entry, 10, entry.length)));
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void findAndSaveConversationsInBatches(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .incrementalSave(true)
+                                    .batchSize(7)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+
+                    var conversations = new LinkedHashMap<String, List<Message>>();
+                    for (int i = 0; i < 25; i++) {
+                        conversations.put(
+                                UUID.randomUUID().toString(),
+                                List.of(
+                                        new UserMessage("Question " + i),
+                                        new AssistantMessage("Answer " + i)));
+                    }
+                    chatMemoryRepository.saveAll(conversations);
+
+                    var missingId = UUID.randomUUID().toString();
+                    var ids = new ArrayList<>(conversations.keySet());
+                    ids.add(5, missingId);
+                    var found = chatMemoryRepository.findByConversationIds(ids);
+                    assertThat(found.keySet()).containsExactlyElementsOf(conversations.keySet());
+                    assertThat(found.get(ids.get(3)))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 3", "Answer 3");
+
+                    // Append to every conversation and empty the first one
+                    var updates = new LinkedHashMap<String, List<Message>>();
+                    found.forEach(
+                            (conversationId, messages) -> {
+                                var updated = new ArrayList<>(messages);
+                                updated.add(new UserMessage("Follow-up"));
+                                updates.put(conversationId, updated);
+                            });
+                    updates.put(ids.get(0), List.of());
+                    chatMemoryRepository.saveAll(updates);
+
+                    found = chatMemoryRepository.findByConversationIds(ids);
+                    assertThat(found).hasSize(24).doesNotContainKey(ids.get(0));
+                    assertThat(found.get(ids.get(3)))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 3", "Answer 3", "Follow-up");
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContain(ids.get(0))
+                            .contains(ids.get(3));
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void saveConversationsBehind(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .writeBehind(true)
+                                    .writeBehindMaxDelay("1h")
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    var deletedId = UUID.randomUUID().toString();
+                    String key = TEST_CHAT_MEMORY_KEY_PREFIX + conversationId;
+
+                    chatMemoryRepository.saveAll(deletedId, List.of(new UserMessage("Gone")));
+                    chatMemoryRepository.flush();
+                    assertThat(redisTemplate.hasKey(TEST_CHAT_MEMORY_KEY_PREFIX + deletedId))
+                            .isTrue();
+
+                    // Pending saves are coalesced and read back before they are written
+                    chatMemoryRepository.saveAll(
+                            conversationId, List.of(new UserMessage("Question 1")));
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(
+                                    new UserMessage("Question 1"),
+                                    new AssistantMessage("Answer 1")));
+                    chatMemoryRepository.deleteByConversationId(deletedId);
+                    assertThat(redisTemplate.hasKey(key)).isFalse();
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 1", "Answer 1");
+                    assertThat(chatMemoryRepository.findByConversationId(deletedId)).isEmpty();
+                    assertThat(
+                                    chatMemoryRepository.findByConversationIds(
+                                            List.of(deletedId, conversationId)))
+                            .containsOnlyKeys(conversationId);
+
+                    // Pending saves are written on close
+                    chatMemoryRepository.close();
+                    assertThat(redisTemplate.opsForList().size(key)).isEqualTo(2);
+                    assertThat(redisTemplate.hasKey(TEST_CHAT_MEMORY_KEY_PREFIX + deletedId))
+                            .isFalse();
+                    assertThat(
+                                    getRedisChatMemoryRepository(redisTemplate)
+                                            .findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 1", "Answer 1");
+
+                    // Saves after close are rejected rather than lost
+                    assertThatIllegalStateException()
+                            .isThrownBy(
+                                    () ->
+                                            chatMemoryRepository.saveAll(
+                                                    conversationId,
+                                                    List.of(new UserMessage("Question 2"))))
+                            .withMessageContaining("closed");
+                    assertThatIllegalStateException()
+                            .isThrownBy(
+                                    () ->
+                                            chatMemoryRepository.saveAll(
+                                                    Map.of(
+                                                            deletedId,
+                                                            List.of(new UserMessage("Again")))));
+                    assertThatIllegalStateException()
+                            .isThrownBy(
+                                    () -> chatMemoryRepository.deleteByConversationId(deletedId));
+                    assertThat(redisTemplate.opsForList().size(key)).isEqualTo(2);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void flushPendingConversationsWhenQueueIsFull(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .writeBehind(true)
+                                    .writeBehindMaxDelay("1h")
+                                    .writeBehindMaxPending(3)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+
+                    var ids = new ArrayList<String>();
+                    for (int i = 0; i < 3; i++) {
+                        ids.add(UUID.randomUUID().toString());
+                        chatMemoryRepository.saveAll(
+                                ids.get(i), List.of(new UserMessage("Question " + i)));
+                    }
+
+                    // The third save filled the queue and was flushed by the caller
+                    assertThat(chatMemoryRepository.findConversationIds()).containsAll(ids);
+                    ids.forEach(
+                            conversationId ->
+                                    assertThat(
+                                                    redisTemplate.hasKey(
+                                                            TEST_CHAT_MEMORY_KEY_PREFIX
+                                                                    + conversationId))
+                                            .isTrue());
+                    chatMemoryRepository.close();
+                });
+    }
+
+    @Test
+    void rejectSavesWhenQueueIsFullAndCannotBeFlushed() {
+        var failing = new AtomicBoolean(true);
+        Map<String, List<Message>> written = new LinkedHashMap<>();
+        var queue =
+                new WriteBehindQueue(
+                        conversations -> {
+                            if (failing.get()) {
+                                throw new IllegalStateException("Redis is down");
+                            }
+                            written.putAll(conversations);
+                        },
+                        Duration.ofHours(1).toMillis(),
+                        2,
+                        100);
+
+        // Filling the queue attempts a flush, whose failure leaves the saves queued
+        queue.enqueue("first", List.of(new UserMessage("First")));
+        queue.enqueue("second", List.of(new UserMessage("Second")));
+        assertThat(queue.get("first")).isNotNull();
+        assertThat(queue.get("second")).isNotNull();
+
+        // Saves of other conversations are rejected rather than queued while flushes fail
+        assertThatThrownBy(() -> queue.enqueue("third", List.of(new UserMessage("Third"))))
+                .hasMessage("Redis is down");
+        assertThat(queue.get("third")).isNull();
+        // Saves replacing pending ones keep the queue size
+        queue.enqueue("first", List.of(new UserMessage("First again")));
+        assertThat(queue.get("first")).extracting(Message::getText).containsExactly("First again");
+
+        failing.set(false);
+        queue.enqueue("third", List.of(new UserMessage("Third")));
+        assertThat(written).containsOnlyKeys("first", "second");
+        assertThat(queue.get("third")).isNotNull();
+        queue.close();
+        assertThat(written).containsOnlyKeys("first", "second", "third");
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void recordMetricsAndObservations(String template) {
+        this.contextRunner.run(
+                context -> {
+                    var redisTemplate = context.getBean(template, RedisTemplate.class);
+                    var meterRegistry = new SimpleMeterRegistry();
+                    var observationRegistry = TestObservationRegistry.create();
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .meterRegistry(meterRegistry)
+                                    .observationRegistry(observationRegistry)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(
+                                    new UserMessage("Question"),
+                                    new AssistantMessage("Answer"),
+                                    new UserMessage("Follow-up")));
+                    chatMemoryRepository.findByConversationId(conversationId);
+
+                    assertThat(
+                                    meterRegistry
+                                            .get("spring.ai.chat.memory.redis.messages")
+                                            .tag("direction", "write")
+                                            .counter()
+                                            .count())
+                            .isEqualTo(3);
+                    assertThat(
+                                    meterRegistry
+                                            .get("spring.ai.chat.memory.redis.messages")
+                                            .tag("direction", "read")
+                                            .counter()
+                                            .count())
+                            .isEqualTo(3);
+                    assertThat(
+                                    meterRegistry
+                                            .get("spring.ai.chat.memory.redis.bytes")
+                                            .tag("direction", "read")
+                                            .counter()
+                                            .count())
+                            .isPositive();
+                    assertThat(
+                                    meterRegistry
+                                            .get("spring.ai.chat.memory.redis.conversation.length")
+                                            .tag("direction", "read")
+                                            .summary()
+                                            .max())
+                            .isEqualTo(3);
+
+                    TestObservationRegistryAssert.assertThat(observationRegistry)
+                            .hasNumberOfObservationsWithNameEqualTo(
+                                    "spring.ai.chat.memory.redis", 2)
+                            .hasAnObservation(
+                                    observation ->
+                                            observation
+                                                    .hasContextualNameEqualTo("chat_memory find")
+                                                    .hasLowCardinalityKeyValue(
+                                                            "db.operation.name", "find")
+                                                    .hasHighCardinalityKeyValue(
+                                                            "gen_ai.conversation.id",
+                                                            conversationId));
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void compressEntriesAboveThreshold(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .compression(MessageCompression.DEFLATE)
+                                    .compressionThreshold(512)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    String answer = "A long answer about Redis lists. ".repeat(100);
+
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(new UserMessage("Question"), new AssistantMessage(answer)));
+
+                    byte[] key =
+                            ((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                                    .serialize(TEST_CHAT_MEMORY_KEY_PREFIX + conversationId);
+                    List<byte[]> stored =
+                            redisTemplate.execute(
+                                    (RedisCallback<List<byte[]>>)
+                                            connection ->
+                                                    connection.listCommands().lRange(key, 0, -1));
+                    // Only the entry above the threshold is compressed, past the sequence header
+                    assertThat(stored.get(0)[10]).isEqualTo((byte) '{');
+                    assertThat(stored.get(1)[10]).isZero();
+                    assertThat(stored.get(1).length).isLessThan(answer.length() / 4);
+
+                    // Token budgets count compressed entries by their size before compression
+                    assertThat(stored.get(1)[11]).isEqualTo((byte) 2);
+                    assertThat(
+                                    chatMemoryRepository.findLastMessagesWithinTokens(
+                                            conversationId, stored.get(1).length))
+                            .isEmpty();
+                    assertThat(
+                                    chatMemoryRepository.findLastMessagesWithinTokens(
+                                            conversationId, answer.length()))
+                            .extracting(Message::getText)
+                            .containsExactly("Question", answer);
+
+                    // Mixed lists are read whatever the configured compression
+                    assertThat(
+                                    getRedisChatMemoryRepository(redisTemplate)
+                                            .findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question", answer);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void shareRepeatedTextsAcrossConversations(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .compression(MessageCompression.DEFLATE)
+                                    .dedupe(true)
+                                    .dedupeThreshold(1024)
+                                    .dedupeMessageTypes(Set.of(MessageType.SYSTEM))
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    String prompt = "You are a helpful assistant " + UUID.randomUUID();
+                    String answer = "A long answer about Redis lists. ".repeat(100);
+                    var conversationIds = List.of(UUID.randomUUID().toString(), "other");
+                    chatMemoryRepository.saveAll(
+                            Map.of(
+                                    conversationIds.get(0),
+                                    List.of(
+                                            new SystemMessage(prompt),
+                                            new UserMessage("Question"),
+                                            new AssistantMessage(answer)),
+                                    conversationIds.get(1),
+                                    List.of(new SystemMessage(prompt), new UserMessage("Other"))));
+
+                    // Entries only refer to the texts, stored once with twice the time to live
+                    var keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+                    byte[] key =
+                            keySerializer.serialize(
+                                    TEST_CHAT_MEMORY_KEY_PREFIX + conversationIds.get(0));
+                    List<byte[]> stored =
+                            redisTemplate.execute(
+                                    (RedisCallback<List<byte[]>>)
+                                            connection ->
+                                                    connection.listCommands().lRange(key, 0, -1));
+                    assertThat(stored.get(2).length).isLessThan(answer.length() / 4);
+                    byte[] promptKey =
+                            keySerializer.serialize(
+                                    chatMemoryRepository.getConfig().getSharedTextKeyPrefix()
+                                            + SharedTexts.hash(prompt));
+                    assertThat(
+                                    redisTemplate.execute(
+                                            (RedisCallback<Long>)
+                                                    connection ->
+                                                            connection
+                                                                    .keyCommands()
+                                                                    .ttl(promptKey)))
+                            .isGreaterThan(Duration.ofMinutes(30).toSeconds());
+
+                    // Another node resolves the texts, whatever its configuration
+                    var otherRepository = getRedisChatMemoryRepository(redisTemplate);
+                    var found = otherRepository.findByConversationIds(conversationIds);
+                    assertThat(found.get(conversationIds.get(0)))
+                            .extracting(Message::getText)
+                            .containsExactly(prompt, "Question", answer);
+                    assertThat(found.get(conversationIds.get(1)))
+                            .extracting(Message::getText)
+                            .containsExactly(prompt, "Other");
+                    // Entries sharing their text carry its token estimate, 825 for the answer
+                    assertThat(
+                                    chatMemoryRepository.findLastMessagesWithinTokens(
+                                            conversationIds.get(0), 825))
+                            .extracting(Message::getText)
+                            .containsExactly(answer);
+
+                    // Tail reads refreshing a conversation refresh the texts of the entries they
+                    // leave out as well
+                    redisTemplate.execute(
+                            (RedisCallback<Boolean>)
+                                    connection -> connection.keyCommands().expire(promptKey, 60));
+                    var slidingRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .slidingExpiration(true)
+                                    .dedupe(true)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    assertThat(slidingRepository.findLastMessages(conversationIds.get(0), 1))
+                            .extracting(Message::getText)
+                            .containsExactly(answer);
+                    assertThat(
+                                    redisTemplate.execute(
+                                            (RedisCallback<Long>)
+                                                    connection ->
+                                                            connection
+                                                                    .keyCommands()
+                                                                    .ttl(promptKey)))
+                            .isGreaterThan(Duration.ofMinutes(30).toSeconds());
+
+                    // Texts missing from Redis all the same are read as empty
+                    redisTemplate.execute(
+                            (RedisCallback<Long>)
+                                    connection -> connection.keyCommands().del(promptKey));
+                    assertThat(
+                                    getRedisChatMemoryRepository(redisTemplate)
+                                            .findByConversationId(conversationIds.get(1)))
+                            .extracting(Message::getText)
+                            .containsExactly(SharedTexts.MISSING_TEXT, "Other");
+                    chatMemoryRepository.deleteByConversationIds(conversationIds);
+
+                    // Shared texts expire after their conversations, which need a time to live
+                    assertThatIllegalArgumentException()
+                            .isThrownBy(
+                                    () ->
+                                            RedisChatMemoryRepository.builder()
+                                                    .dedupe(true)
+                                                    .redisTemplate(redisTemplate)
+                                                    .build());
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        TEST_REDIS_TEMPLATE + ",LIST",
+        TEST_STRING_REDIS_TEMPLATE + ",LIST",
+        TEST_REDIS_TEMPLATE + ",STREAM",
+        TEST_STRING_REDIS_TEMPLATE + ",STREAM"
+    })
+    void storeToolCallsResponsesAndMedia(String template, MessageStorage storage) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .storage(storage)
+                                    .incrementalSave(true)
+                                    .offloadPayloads(true)
+                                    .offloadThreshold(1024)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    String arguments = "{\"city\":\"Paris\",\"days\":[" + "1,".repeat(1000) + "2]}";
+                    String forecast = "Sunny in Paris. ".repeat(200);
+                    byte[] image = new byte[4096];
+                    new Random(42).nextBytes(image);
+                    var assistantMessage =
+                            new AssistantMessage(
+                                    "Checking the weather",
+                                    Map.of(),
+                                    List.of(
+                                            new AssistantMessage.ToolCall(
+                                                    "call", "function", "weather", arguments),
+                                            new AssistantMessage.ToolCall(
+                                                    "other", "function", "time", "{}")),
+                                    List.of(
+                                            Media.builder()
+                                                    .mimeType(MimeTypeUtils.IMAGE_PNG)
+                                                    .data(image)
+                                                    .name("chart")
+                                                    .build(),
+                                            Media.builder()
+                                                    .mimeType(MimeTypeUtils.IMAGE_JPEG)
+                                                    .data(URI.create("https://example.com/a.jpg"))
+                                                    .build()));
+                    var toolResponseMessage =
+                            new ToolResponseMessage(
+                                    List.of(
+                                            new ToolResponseMessage.ToolResponse(
+                                                    "call", "weather", forecast),
+                                            new ToolResponseMessage.ToolResponse(
+                                                    "other", "time", "noon")));
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(
+                                    new UserMessage("Weather?"),
+                                    assistantMessage,
+                                    toolResponseMessage));
+
+                    // Entries only refer to the large payloads, kept in a hash of the
+                    // conversation
+                    var keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+                    byte[] payloadKey =
+                            keySerializer.serialize(
+                                    chatMemoryRepository.getConfig().getPayloadKey(conversationId));
+                    assertThat(
+                                    redisTemplate.execute(
+                                            (RedisCallback<Long>)
+                                                    connection ->
+                                                            connection
+                                                                    .hashCommands()
+                                                                    .hLen(payloadKey)))
+                            .isEqualTo(3);
+                    assertThat(
+                                    redisTemplate.execute(
+                                            (RedisCallback<Long>)
+                                                    connection ->
+                                                            connection
+                                                                    .keyCommands()
+                                                                    .ttl(payloadKey)))
+                            .isPositive();
+
+                    // Reads restore them, fetching only those of the messages returned
+                    var found = chatMemoryRepository.findLastMessages(conversationId, 2);
+                    var foundAssistant = (AssistantMessage) found.get(0);
+                    assertThat(foundAssistant.getText()).isEqualTo("Checking the weather");
+                    assertThat(foundAssistant.getToolCalls())
+                            .containsExactlyElementsOf(assistantMessage.getToolCalls());
+                    assertThat(foundAssistant.getMedia())
+                            .extracting(Media::getName, Media::getMimeType)
+                            .containsExactly(
+                                    tuple("chart", MimeTypeUtils.IMAGE_PNG),
+                                    tuple(
+                                            assistantMessage.getMedia().get(1).getName(),
+                                            MimeTypeUtils.IMAGE_JPEG));
+                    assertThat(foundAssistant.getMedia().get(0).getDataAsByteArray())
+                            .isEqualTo(image);
+                    assertThat(foundAssistant.getMedia().get(1).getData())
+                            .isEqualTo("https://example.com/a.jpg");
+                    assertThat(((ToolResponseMessage) found.get(1)).getResponses())
+                            .containsExactlyElementsOf(toolResponseMessage.getResponses());
+
+                    // Payloads no longer referred to are removed with their entries
+                    chatMemoryRepository.saveAll(
+                            conversationId, List.of(new UserMessage("Weather?"), assistantMessage));
+                    assertThat(
+                                    redisTemplate.execute(
+                                            (RedisCallback<Long>)
+                                                    connection ->
+                                                            connection
+                                                                    .hashCommands()
+                                                                    .hLen(payloadKey)))
+                            .isEqualTo(2);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .hasSize(2)
+                            .last()
+                            .extracting(message -> ((AssistantMessage) message).getToolCalls())
+                            .isEqualTo(assistantMessage.getToolCalls());
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                    assertThat(
+                                    redisTemplate.hasKey(
+                                            chatMemoryRepository
+                                                    .getConfig()
+                                                    .getPayloadKey(conversationId)))
+                            .isFalse();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        TEST_REDIS_TEMPLATE + ",LIST",
+        TEST_STRING_REDIS_TEMPLATE + ",LIST",
+        TEST_REDIS_TEMPLATE + ",STREAM",
+        TEST_STRING_REDIS_TEMPLATE + ",STREAM"
+    })
+    void findMessagesSinceSequence(String template, MessageStorage storage) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .storage(storage)
+                                    .batchSize(2)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(
+                                    new UserMessage("Question 1"),
+                                    new AssistantMessage("Answer 1"),
+                                    new UserMessage("Question 2")));
+                    var messages = chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(messages)
+                            .extracting(
+                                    message ->
+                                            message.getMetadata()
+                                                    .get(RedisChatMemoryRepository.SEQUENCE))
+                            .containsExactly(1L, 2L, 3L);
+                    var messageIds =
+                            messages.stream()
+                                    .map(
+                                            message ->
+                                                    message.getMetadata()
+                                                            .get(
+                                                                    RedisChatMemoryRepository
+                                                                            .MESSAGE_ID))
+                                    .toList();
+                    var timestamps =
+                            messages.stream()
+                                    .map(message -> message.getMetadata().get("timestamp"))
+                                    .toList();
+                    assertThat(messageIds).doesNotContainNull().doesNotHaveDuplicates();
+
+                    // A full rewrite evicting the first message keeps ids, sequences and
+                    // timestamps, and numbers the new messages after the last one
+                    var updated = new ArrayList<>(messages.subList(1, 3));
+                    updated.add(new AssistantMessage("Answer 2"));
+                    updated.add(new UserMessage("Question 3"));
+                    chatMemoryRepository.saveAll(conversationId, updated);
+
+                    messages = chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(messages)
+                            .extracting(
+                                    message ->
+                                            message.getMetadata()
+                                                    .get(RedisChatMemoryRepository.SEQUENCE))
+                            .containsExactly(2L, 3L, 4L, 5L);
+                    assertThat(
+                                    messages.subList(0, 2).stream()
+                                            .map(
+                                                    message ->
+                                                            message.getMetadata()
+                                                                    .get(
+                                                                            RedisChatMemoryRepository
+                                                                                    .MESSAGE_ID))
+                                            .toList())
+                            .isEqualTo(messageIds.subList(1, 3));
+                    assertThat(
+                                    messages.subList(0, 2).stream()
+                                            .map(message -> message.getMetadata().get("timestamp"))
+                                            .toList())
+                            .isEqualTo(timestamps.subList(1, 3));
+
+                    // Delta reads, spanning several steps of the script
+                    assertThat(chatMemoryRepository.findSince(conversationId, 3))
+                            .extracting(Message::getText)
+                            .containsExactly("Answer 2", "Question 3");
+                    assertThat(chatMemoryRepository.findSince(conversationId, 0))
+                            .extracting(Message::getText)
+                            .containsExactly("Answer 1", "Question 2", "Answer 2", "Question 3");
+                    assertThat(chatMemoryRepository.findSince(conversationId, 5)).isEmpty();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+        TEST_REDIS_TEMPLATE + ",LIST",
+        TEST_STRING_REDIS_TEMPLATE + ",LIST",
+        TEST_REDIS_TEMPLATE + ",STREAM",
+        TEST_STRING_REDIS_TEMPLATE + ",STREAM"
+    })
+    void findLastMessagesWithinTokens(String template, MessageStorage storage) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var estimator = new JTokkitTokenCountEstimator();
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .storage(storage)
+                                    .batchSize(4)
+                                    .compression(MessageCompression.DEFLATE)
+                                    .compressionThreshold(256)
+                                    .tokenCountEstimator(estimator)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    List<Message> messages =
+                            IntStream.range(0, 30)
+                                    .mapToObj(
+                                            i ->
+                                                    (Message)
+                                                            (i % 2 == 0
+                                                                    ? new UserMessage(
+                                                                            "Question " + i)
+                                                                    : new AssistantMessage(
+                                                                            ("Answer " + i + " ")
+                                                                                    .repeat(i))))
+                                    .toList();
+                    chatMemoryRepository.saveAll(conversationId, messages);
+
+                    // The budget of the last 7 messages, spanning several steps of the script
+                    int budget =
+                            messages.subList(23, 30).stream()
+                                    .mapToInt(
+                                            message ->
+                                                    message instanceof UserMessage userMessage
+                                                            ? estimator.estimate(userMessage)
+                                                            : estimator.estimate(message.getText()))
+                                    .sum();
+                    assertThat(
+                                    chatMemoryRepository.findLastMessagesWithinTokens(
+                                            conversationId, budget + 1))
+                            .extracting(Message::getText)
+                            .containsExactlyElementsOf(
+                                    messages.subList(23, 30).stream()
+                                            .map(Message::getText)
+                                            .toList());
+                    assertThat(chatMemoryRepository.findLastMessagesWithinTokens(conversationId, 1))
+                            .isEmpty();
+                    assertThat(
+                                    chatMemoryRepository.findLastMessagesWithinTokens(
+                                            conversationId, Integer.MAX_VALUE))
+                            .hasSize(30);
+
+                    // Entries with a token header are read by repositories without an estimator
+                    var plainRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .storage(storage)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    assertThat(plainRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactlyElementsOf(
+                                    messages.stream().map(Message::getText).toList());
+
+                    // Entries without a token header count a token per four bytes
+                    plainRepository.saveAll(conversationId, messages);
+                    List<Message> window =
+                            plainRepository.findLastMessagesWithinTokens(conversationId, budget);
+                    assertThat(window).isNotEmpty().hasSizeLessThan(30);
+                    assertThat(window)
+                            .extracting(Message::getText)
+                            .containsExactlyElementsOf(
+                                    messages.subList(30 - window.size(), 30).stream()
+                                            .map(Message::getText)
+                                            .toList());
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void storeConversationsAsStreams(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .storage(MessageStorage.STREAM)
+                                    .incrementalSave(true)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    String key = TEST_CHAT_MEMORY_KEY_PREFIX + conversationId;
+
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(
+                                    new UserMessage("Question 1"),
+                                    new AssistantMessage("Answer 1"),
+                                    new UserMessage("Question 2")));
+                    assertThat(redisTemplate.type(key)).isEqualTo(DataType.STREAM);
+
+                    var messages = chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(messages)
+                            .extracting(Message::getText)
+                            .containsExactly("Question 1", "Answer 1", "Question 2");
+                    var ids =
+                            messages.stream()
+                                    .map(
+                                            message ->
+                                                    message.getMetadata()
+                                                            .get(
+                                                                    RedisChatMemoryRepository
+                                                                            .ENTRY_ID))
+                                    .toList();
+                    assertThat(ids).doesNotContainNull().doesNotHaveDuplicates();
+
+                    // Evict the first message and append one, keeping the ids of the others
+                    var updated = new ArrayList<>(messages.subList(1, 3));
+                    updated.add(new AssistantMessage("Answer 2"));
+                    chatMemoryRepository.saveAll(conversationId, updated);
+
+                    assertThat(redisTemplate.opsForStream().size(key)).isEqualTo(3);
+                    messages = chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(messages)
+                            .extracting(Message::getText)
+                            .containsExactly("Answer 1", "Question 2", "Answer 2");
+                    assertThat(messages.get(0).getMetadata())
+                            .containsEntry(RedisChatMemoryRepository.ENTRY_ID, ids.get(1));
+
+                    // Range and delta reads
+                    assertThat(chatMemoryRepository.findLastMessages(conversationId, 2))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 2", "Answer 2");
+                    assertThat(
+                                    chatMemoryRepository.findMessagesAfter(
+                                            conversationId, (String) ids.get(2), 10))
+                            .extracting(Message::getText)
+                            .containsExactly("Answer 2");
+                    assertThat(chatMemoryRepository.findMessagesAfter(conversationId, null, 1))
+                            .extracting(Message::getText)
+                            .containsExactly("Answer 1");
+                    assertThat(chatMemoryRepository.findByConversationIds(List.of(conversationId)))
+                            .containsOnlyKeys(conversationId);
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                    assertThat(redisTemplate.hasKey(key)).isFalse();
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId)).isEmpty();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void slideExpiryOnReads(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("60s")
+                                    .slidingExpiration(true)
+                                    .slidingExpirationInterval("500ms")
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    String key = TEST_CHAT_MEMORY_KEY_PREFIX + conversationId;
+                    chatMemoryRepository.saveAll(conversationId, List.of(new UserMessage("Hi")));
+
+                    // Reads right after the save leave the expiry alone
+                    redisTemplate.expire(key, Duration.ofSeconds(30));
+                    chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(redisTemplate.getExpire(key)).isLessThanOrEqualTo(30);
+
+                    // Once the interval has passed, the next read slides the expiry, only once
+                    Awaitility.await()
+                            .pollDelay(Duration.ofMillis(600))
+                            .atMost(Duration.ofSeconds(5))
+                            .untilAsserted(
+                                    () -> {
+                                        chatMemoryRepository.findByConversationId(conversationId);
+                                        assertThat(redisTemplate.getExpire(key)).isGreaterThan(30);
+                                    });
+                    redisTemplate.expire(key, Duration.ofSeconds(30));
+                    assertThat(chatMemoryRepository.findByConversationIds(List.of(conversationId)))
+                            .containsOnlyKeys(conversationId);
+                    assertThat(redisTemplate.getExpire(key)).isLessThanOrEqualTo(30);
+
+                    Awaitility.await()
+                            .pollDelay(Duration.ofMillis(600))
+                            .atMost(Duration.ofSeconds(5))
+                            .untilAsserted(
+                                    () -> {
+                                        chatMemoryRepository.findByConversationIds(
+                                                List.of(conversationId));
+                                        assertThat(redisTemplate.getExpire(key)).isGreaterThan(30);
+                                    });
+                    assertThat(chatMemoryRepository.findConversationIds()).contains(conversationId);
+
+                    // Token budget and delta reads slide it along with their script
+                    redisTemplate.expire(key, Duration.ofSeconds(30));
+                    Awaitility.await()
+                            .pollDelay(Duration.ofMillis(600))
+                            .atMost(Duration.ofSeconds(5))
+                            .untilAsserted(
+                                    () -> {
+                                        assertThat(
+                                                        chatMemoryRepository
+                                                                .findLastMessagesWithinTokens(
+                                                                        conversationId, 100))
+                                                .extracting(Message::getText)
+                                                .containsExactly("Hi");
+                                        assertThat(redisTemplate.getExpire(key)).isGreaterThan(30);
+                                    });
+                    redisTemplate.expire(key, Duration.ofSeconds(30));
+                    Awaitility.await()
+                            .pollDelay(Duration.ofMillis(600))
+                            .atMost(Duration.ofSeconds(5))
+                            .untilAsserted(
+                                    () -> {
+                                        assertThat(
+                                                        chatMemoryRepository.findSince(
+                                                                conversationId, 0))
+                                                .extracting(Message::getText)
+                                                .containsExactly("Hi");
+                                        assertThat(redisTemplate.getExpire(key)).isGreaterThan(30);
+                                    });
+
+                    // Refreshes do not resurrect deleted conversations
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                    Thread.sleep(600);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId)).isEmpty();
+                    assertThat(redisTemplate.hasKey(key)).isFalse();
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContain(conversationId);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void deleteConversationsInBulk(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .batchSize(2)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    List<String> conversationIds =
+                            IntStream.range(0, 5)
+                                    .mapToObj(i -> UUID.randomUUID().toString())
+                                    .toList();
+                    conversationIds.forEach(
+                            conversationId ->
+                                    chatMemoryRepository.saveAll(
+                                            conversationId, List.of(new UserMessage("Hello"))));
+
+                    chatMemoryRepository.deleteByConversationIds(conversationIds.subList(0, 4));
+
+                    assertThat(chatMemoryRepository.findByConversationIds(conversationIds))
+                            .containsOnlyKeys(conversationIds.get(4));
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContainAnyElementsOf(conversationIds.subList(0, 4))
+                            .contains(conversationIds.get(4));
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void purgeIdleConversations(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var keyPrefix = TEST_CHAT_MEMORY_KEY_PREFIX + UUID.randomUUID() + ":";
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(keyPrefix)
+                                    .batchSize(2)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    List<String> conversationIds =
+                            IntStream.range(0, 6)
+                                    .mapToObj(i -> UUID.randomUUID().toString())
+                                    .toList();
+                    conversationIds.forEach(
+                            conversationId ->
+                                    chatMemoryRepository.saveAll(
+                                            conversationId, List.of(new UserMessage("Hello"))));
+
+                    // The first five conversations were last active two hours ago
+                    byte[] indexKey =
+                            ((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                                    .serialize(chatMemoryRepository.getConfig().getIndexKey());
+                    double idleSince = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+                    redisTemplate.execute(
+                            (RedisCallback<Object>)
+                                    connection -> {
+                                        conversationIds
+                                                .subList(0, 5)
+                                                .forEach(
+                                                        conversationId ->
+                                                                connection
+                                                                        .zSetCommands()
+                                                                        .zAdd(
+                                                                                indexKey,
+                                                                                idleSince,
+                                                                                conversationId
+                                                                                        .getBytes()));
+                                        return null;
+                                    });
+
+                    assertThat(chatMemoryRepository.purgeIdleConversations(Duration.ofHours(1)))
+                            .isEqualTo(5);
+
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .containsExactly(conversationIds.get(5));
+                    assertThat(chatMemoryRepository.findByConversationIds(conversationIds))
+                            .containsOnlyKeys(conversationIds.get(5));
+                    assertThat(
+                                    chatMemoryRepository.purgeIdleConversations(
+                                            Duration.ofHours(1), Duration.ZERO))
+                            .isZero();
+                });
+    }
+
+    private RedisChatMemoryRepository getNearCachedRedisChatMemoryRepository(
+            RedisTemplate<String, String> redisTemplate) {
+        return RedisChatMemoryRepository.builder()
+                .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                .timeToLive("30m")
+                .nearCacheMaxEntries(100)
+                .redisTemplate(redisTemplate)
+                .build();
+    }
+
     private RedisChatMemoryRepository getRedisChatMemoryRepository(
             RedisTemplate<String, String> redisTemplate) {
+        return getRedisChatMemoryRepository(redisTemplate, new JsonMessageCodec());
+    }
+
+    private RedisChatMemoryRepository getRedisChatMemoryRepository(
+            RedisTemplate<String, String> redisTemplate, MessageCodec codec) {
         return RedisChatMemoryRepository.builder()
                 .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
                 .timeToLive("30m")
+                .codec(codec)
                 .redisTemplate(redisTemplate)
                 .build();
     }
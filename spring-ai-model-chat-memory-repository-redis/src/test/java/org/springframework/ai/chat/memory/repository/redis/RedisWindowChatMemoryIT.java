@@ -0,0 +1,272 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SuppressWarnings("unchecked")
+public class RedisWindowChatMemoryIT {
+
+    private static final String TEST_REDIS_TEMPLATE = "redisTemplate";
+
+    private static final String TEST_STRING_REDIS_TEMPLATE = "stringRedisTemplate";
+
+    private static final String TEST_CHAT_MEMORY_KEY_PREFIX = "test_window_chat_memory:";
+
+    @Container
+    private static final GenericContainer<?> redisContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    private final ApplicationContextRunner contextRunner =
+            new ApplicationContextRunner()
+                    .withConfiguration(AutoConfigurations.of(RedisAutoConfiguration.class))
+                    .withPropertyValues(
+                            String.format("spring.data.redis.host=%s", redisContainer.getHost()),
+                            String.format(
+                                    "spring.data.redis.port=%s",
+                                    redisContainer.getFirstMappedPort()));
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void keepMostRecentMessagesInWindow(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+                    var chatMemory =
+                            RedisWindowChatMemory.builder()
+                                    .chatMemoryRepository(chatMemoryRepository)
+                                    .maxMessages(5)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    chatMemory.add(conversationId, new SystemMessage("System"));
+                    IntStream.range(0, 10)
+                            .forEach(
+                                    i ->
+                                            chatMemory.add(
+                                                    conversationId,
+                                                    List.of(
+                                                            new UserMessage("Question " + i),
+                                                            new AssistantMessage("Answer " + i))));
+
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly(
+                                    "System", "Question 8", "Answer 8", "Question 9", "Answer 9");
+                    // Messages are numbered as they are appended, system messages included
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(
+                                    message ->
+                                            message.getMetadata()
+                                                    .get(RedisChatMemoryRepository.SEQUENCE))
+                            .containsExactly(1L, 18L, 19L, 20L, 21L);
+                    // Only the window is stored
+                    assertThat(
+                                    redisTemplate
+                                            .opsForList()
+                                            .size(TEST_CHAT_MEMORY_KEY_PREFIX + conversationId))
+                            .isEqualTo(5);
+                    assertThat(chatMemoryRepository.findConversationIds()).contains(conversationId);
+
+                    chatMemory.clear(conversationId);
+
+                    assertThat(chatMemory.get(conversationId)).isEmpty();
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .doesNotContain(conversationId);
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void replaceSystemMessages(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemory =
+                            RedisWindowChatMemory.builder()
+                                    .chatMemoryRepository(
+                                            getRedisChatMemoryRepository(redisTemplate))
+                                    .maxMessages(3)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    chatMemory.add(
+                            conversationId,
+                            List.of(new SystemMessage("System 1"), new UserMessage("Question 1")));
+                    chatMemory.add(
+                            conversationId,
+                            List.of(new UserMessage("Question 2"), new SystemMessage("System 2")));
+
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question 1", "Question 2", "System 2");
+
+                    // System messages are never evicted, even when they fill the window
+                    chatMemory.add(
+                            conversationId,
+                            List.of(
+                                    new SystemMessage("System 3"),
+                                    new SystemMessage("System 4"),
+                                    new SystemMessage("System 5"),
+                                    new UserMessage("Question 3")));
+
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("System 3", "System 4", "System 5");
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void readSystemMessagesThroughTheRepository(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository = getRedisChatMemoryRepository(redisTemplate);
+                    var chatMemory =
+                            RedisWindowChatMemory.builder()
+                                    .chatMemoryRepository(chatMemoryRepository)
+                                    .maxMessages(3)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    String key = TEST_CHAT_MEMORY_KEY_PREFIX + conversationId;
+
+                    chatMemory.add(
+                            conversationId,
+                            List.of(
+                                    new SystemMessage("System"),
+                                    new UserMessage("Question 1"),
+                                    new AssistantMessage("Answer 1")));
+
+                    // Every read of the repository holds the system messages
+                    List<Message> messages =
+                            chatMemoryRepository.findByConversationId(conversationId);
+                    assertThat(messages)
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Question 1", "Answer 1");
+                    assertThat(
+                                    chatMemoryRepository
+                                            .findByConversationIds(List.of(conversationId))
+                                            .get(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Question 1", "Answer 1");
+                    assertThat(chatMemoryRepository.findLastMessages(conversationId, 3))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Question 1", "Answer 1");
+                    assertThat(
+                                    chatMemoryRepository.findLastMessagesWithinTokens(
+                                            conversationId, 1000))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Question 1", "Answer 1");
+                    assertThat(chatMemoryRepository.findSince(conversationId, 0))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Question 1", "Answer 1");
+
+                    // A conversation saved through the repository beyond the window is windowed
+                    // on reads, and trimmed around its system messages by the next add
+                    List<Message> saved = new ArrayList<>(messages);
+                    saved.add(new UserMessage("Question 2"));
+                    chatMemoryRepository.saveAll(conversationId, saved);
+                    assertThat(redisTemplate.opsForList().size(key)).isEqualTo(4);
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Answer 1", "Question 2");
+                    chatMemory.add(conversationId, new UserMessage("Question 3"));
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("System", "Question 2", "Question 3");
+
+                    // Deletes remove them along with the others
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                    assertThat(redisTemplate.hasKey(key)).isFalse();
+                });
+    }
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void evictOffloadedPayloadsWithTheirMessages(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var chatMemoryRepository =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .offloadPayloads(true)
+                                    .offloadThreshold(16)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var chatMemory =
+                            RedisWindowChatMemory.builder()
+                                    .chatMemoryRepository(chatMemoryRepository)
+                                    .maxMessages(2)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+                    String payloadKey =
+                            chatMemoryRepository.getConfig().getPayloadKey(conversationId);
+
+                    IntStream.rangeClosed(1, 3)
+                            .forEach(
+                                    i ->
+                                            chatMemory.add(
+                                                    conversationId,
+                                                    new ToolResponseMessage(
+                                                            List.of(
+                                                                    new ToolResponseMessage
+                                                                            .ToolResponse(
+                                                                            "call" + i,
+                                                                            "weather",
+                                                                            "Forecast number "
+                                                                                    + i)))));
+
+                    assertThat(chatMemory.get(conversationId))
+                            .extracting(
+                                    message ->
+                                            ((ToolResponseMessage) message)
+                                                    .getResponses()
+                                                    .get(0)
+                                                    .responseData())
+                            .containsExactly("Forecast number 2", "Forecast number 3");
+                    // The payload of the evicted message is removed with it
+                    assertThat(redisTemplate.opsForHash().size(payloadKey)).isEqualTo(2);
+
+                    chatMemory.clear(conversationId);
+                    assertThat(redisTemplate.hasKey(payloadKey)).isFalse();
+                });
+    }
+
+    private RedisChatMemoryRepository getRedisChatMemoryRepository(
+            RedisTemplate<String, String> redisTemplate) {
+        return RedisChatMemoryRepository.builder()
+                .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                .timeToLive("30m")
+                .redisTemplate(redisTemplate)
+                .build();
+    }
+}
@@ -0,0 +1,210 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Spreads conversations over three Redis instances. */
+@Testcontainers
+public class ShardedChatMemoryRepositoryIT {
+
+    private static final String TEST_CHAT_MEMORY_KEY_PREFIX = "test_sharded_chat_memory:";
+
+    @Container
+    private static final GenericContainer<?> firstContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    @Container
+    private static final GenericContainer<?> secondContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    @Container
+    private static final GenericContainer<?> thirdContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    private final List<LettuceConnectionFactory> connectionFactories = new ArrayList<>();
+
+    private final Map<String, StringRedisTemplate> templates = new LinkedHashMap<>();
+
+    @BeforeEach
+    void connect() {
+        connect("first", firstContainer.getHost(), firstContainer.getFirstMappedPort());
+        connect("second", secondContainer.getHost(), secondContainer.getFirstMappedPort());
+        connect("third", thirdContainer.getHost(), thirdContainer.getFirstMappedPort());
+    }
+
+    private void connect(String name, String host, int port) {
+        var connectionFactory = new LettuceConnectionFactory(host, port);
+        connectionFactory.afterPropertiesSet();
+        connectionFactories.add(connectionFactory);
+        var template = new StringRedisTemplate(connectionFactory);
+        template.execute(
+                connection -> {
+                    connection.serverCommands().flushDb();
+                    return null;
+                },
+                true);
+        templates.put(name, template);
+    }
+
+    @AfterEach
+    void disconnect() {
+        connectionFactories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    @Test
+    void routeConversationsAndListThemAcrossShards() {
+        var chatMemoryRepository = sharded(List.of("first", "second", "third"), null);
+        Map<String, List<Message>> conversations = conversations(60);
+
+        chatMemoryRepository.saveAll(conversations);
+        chatMemoryRepository.saveAll("single", List.of(new UserMessage("Single")));
+
+        // Each conversation is stored in its shard only, and every shard holds some
+        for (String id : conversations.keySet()) {
+            var shard = chatMemoryRepository.shardOf(id);
+            chatMemoryRepository
+                    .getShards()
+                    .values()
+                    .forEach(
+                            other ->
+                                    assertThat(other.findByConversationId(id))
+                                            .hasSize(other == shard ? 1 : 0));
+        }
+        chatMemoryRepository
+                .getShards()
+                .values()
+                .forEach(shard -> assertThat(shard.findConversationIds()).isNotEmpty());
+
+        assertThat(chatMemoryRepository.findConversationIds())
+                .hasSize(61)
+                .containsAll(conversations.keySet());
+        assertThat(texts(chatMemoryRepository.findByConversationIds(conversations.keySet())))
+                .containsExactlyEntriesOf(texts(conversations));
+        assertThat(chatMemoryRepository.findByConversationId("single"))
+                .extracting(Message::getText)
+                .containsExactly("Single");
+
+        chatMemoryRepository.deleteByConversationIds(conversations.keySet());
+        chatMemoryRepository.deleteByConversationId("single");
+        assertThat(chatMemoryRepository.findConversationIds()).isEmpty();
+        chatMemoryRepository.close();
+    }
+
+    @Test
+    void rebalanceConversationsAfterAddingShard() {
+        var before = sharded(List.of("first", "second"), null);
+        Map<String, List<Message>> conversations = conversations(100);
+        before.saveAll(conversations);
+
+        var after = sharded(List.of("first", "second", "third"), List.of("first", "second"));
+        var third = after.getShards().get("third");
+        List<String> moved =
+                conversations.keySet().stream()
+                        .filter(id -> !shardName(after, id).equals(shardName(before, id)))
+                        .toList();
+        // Only the conversations taken over by the new shard move
+        assertThat(moved).isNotEmpty().allMatch(id -> after.shardOf(id) == third);
+        assertThat(moved.size()).isLessThan(conversations.size() / 2);
+
+        // Until rebalanced, moved conversations are read from their previous shard and moved,
+        // and saves remove the copy left there
+        String read = moved.get(0);
+        assertThat(after.findByConversationId(read))
+                .extracting(Message::getText)
+                .containsExactly(read);
+        assertThat(third.findByConversationId(read)).hasSize(1);
+        assertThat(before.shardOf(read).findByConversationId(read)).isEmpty();
+        String saved = moved.get(1);
+        after.saveAll(saved, List.of(new UserMessage("Saved")));
+        assertThat(before.shardOf(saved).findByConversationId(saved)).isEmpty();
+        assertThat(third.existingConversationIds(List.of(read, "missing", saved)))
+                .containsExactly(read, saved);
+        Map<String, List<String>> expected = texts(conversations);
+        expected.put(saved, List.of("Saved"));
+        assertThat(texts(after.findByConversationIds(conversations.keySet())))
+                .containsExactlyEntriesOf(expected);
+
+        // Rebalancing moves the others
+        after.deleteByConversationIds(conversations.keySet());
+        before.saveAll(conversations);
+        assertThat(after.rebalance()).isEqualTo(moved.size());
+        after.getShards()
+                .values()
+                .forEach(
+                        shard ->
+                                assertThat(shard.findConversationIds())
+                                        .allMatch(id -> after.shardOf(id) == shard));
+        var rebalanced = sharded(List.of("first", "second", "third"), null);
+        assertThat(texts(rebalanced.findByConversationIds(conversations.keySet())))
+                .containsExactlyEntriesOf(texts(conversations));
+        assertThat(rebalanced.rebalance()).isZero();
+        before.close();
+        after.close();
+        rebalanced.close();
+    }
+
+    private ShardedChatMemoryRepository sharded(List<String> names, List<String> previousShards) {
+        var builder =
+                ShardedChatMemoryRepository.builder()
+                        .previousShards(previousShards)
+                        .rebalancePause(Duration.ZERO);
+        names.forEach(
+                name ->
+                        builder.shard(
+                                name,
+                                RedisChatMemoryRepository.builder()
+                                        .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                        .timeToLive("30m")
+                                        .batchSize(16)
+                                        .redisTemplate(templates.get(name))
+                                        .build()));
+        return builder.build();
+    }
+
+    private static String shardName(ShardedChatMemoryRepository chatMemoryRepository, String id) {
+        RedisChatMemoryRepository shard = chatMemoryRepository.shardOf(id);
+        return chatMemoryRepository.getShards().entrySet().stream()
+                .filter(entry -> entry.getValue() == shard)
+                .findFirst()
+                .orElseThrow()
+                .getKey();
+    }
+
+    /** Conversations holding one message, their id. */
+    private static Map<String, List<Message>> conversations(int count) {
+        Map<String, List<Message>> conversations = new LinkedHashMap<>();
+        IntStream.range(0, count)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .forEach(id -> conversations.put(id, List.of(new UserMessage(id))));
+        return conversations;
+    }
+
+    private static Map<String, List<String>> texts(Map<String, List<Message>> conversations) {
+        Map<String, List<String>> texts = new LinkedHashMap<>();
+        conversations.forEach(
+                (id, messages) -> texts.put(id, messages.stream().map(Message::getText).toList()));
+        return texts;
+    }
+}
@@ -0,0 +1,265 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.ToolResponseMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/** Runs the tiered repository with Redis as the hot tier and files as the cold tier. */
+@Testcontainers
+@SuppressWarnings("unchecked")
+public class TieredChatMemoryRepositoryIT {
+
+    private static final String TEST_REDIS_TEMPLATE = "redisTemplate";
+
+    private static final String TEST_STRING_REDIS_TEMPLATE = "stringRedisTemplate";
+
+    private static final String TEST_CHAT_MEMORY_KEY_PREFIX = "test_tiered_chat_memory:";
+
+    @Container
+    private static final GenericContainer<?> redisContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    private final ApplicationContextRunner contextRunner =
+            new ApplicationContextRunner()
+                    .withConfiguration(AutoConfigurations.of(RedisAutoConfiguration.class))
+                    .withPropertyValues(
+                            String.format("spring.data.redis.host=%s", redisContainer.getHost()),
+                            String.format(
+                                    "spring.data.redis.port=%s",
+                                    redisContainer.getFirstMappedPort()));
+
+    @TempDir Path directory;
+
+    @ParameterizedTest
+    @CsvSource({TEST_REDIS_TEMPLATE, TEST_STRING_REDIS_TEMPLATE})
+    void migrateIdleConversationsAndRehydrateOnRead(String template) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(template, RedisTemplate.class);
+                    var hot =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(
+                                            TEST_CHAT_MEMORY_KEY_PREFIX + UUID.randomUUID() + ":")
+                                    .batchSize(2)
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var cold =
+                            FileChatMemoryRepository.builder()
+                                    .directory(directory.resolve(template))
+                                    .build();
+                    var meterRegistry = new SimpleMeterRegistry();
+                    var chatMemoryRepository =
+                            TieredChatMemoryRepository.builder()
+                                    .hot(hot)
+                                    .cold(cold)
+                                    .maxIdle(Duration.ofHours(1))
+                                    .migrationPause(Duration.ZERO)
+                                    .meterRegistry(meterRegistry)
+                                    .build();
+                    List<String> conversationIds =
+                            IntStream.range(0, 4)
+                                    .mapToObj(i -> UUID.randomUUID().toString())
+                                    .toList();
+                    conversationIds.forEach(
+                            conversationId ->
+                                    chatMemoryRepository.saveAll(
+                                            conversationId,
+                                            List.of(
+                                                    new UserMessage("Question"),
+                                                    new AssistantMessage("Answer"))));
+
+                    // The first three conversations were last active two hours ago
+                    byte[] indexKey =
+                            ((RedisSerializer<String>) redisTemplate.getKeySerializer())
+                                    .serialize(hot.getConfig().getIndexKey());
+                    double idleSince = System.currentTimeMillis() - Duration.ofHours(2).toMillis();
+                    redisTemplate.execute(
+                            (RedisCallback<Object>)
+                                    connection -> {
+                                        conversationIds
+                                                .subList(0, 3)
+                                                .forEach(
+                                                        conversationId ->
+                                                                connection
+                                                                        .zSetCommands()
+                                                                        .zAdd(
+                                                                                indexKey,
+                                                                                idleSince,
+                                                                                conversationId
+                                                                                        .getBytes()));
+                                        return null;
+                                    });
+
+                    assertThat(chatMemoryRepository.migrateIdleConversations()).isEqualTo(3);
+                    assertThat(hot.findConversationIds()).containsExactly(conversationIds.get(3));
+                    assertThat(cold.findConversationIds())
+                            .containsExactlyInAnyOrderElementsOf(conversationIds.subList(0, 3));
+                    assertThat(chatMemoryRepository.findConversationIds())
+                            .containsExactlyInAnyOrderElementsOf(conversationIds);
+                    assertThat(
+                                    meterRegistry
+                                            .get(TieredChatMemoryRepository.TIER_MESSAGES)
+                                            .tag("direction", "archive")
+                                            .counter()
+                                            .count())
+                            .isEqualTo(6);
+                    assertThat(
+                                    meterRegistry
+                                            .get(TieredChatMemoryRepository.TIER_MIGRATION)
+                                            .timer()
+                                            .count())
+                            .isEqualTo(1);
+
+                    // Reading a cold conversation moves it back to Redis, keeping its sequences
+                    String conversationId = conversationIds.get(0);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question", "Answer");
+                    assertThat(hot.findByConversationId(conversationId))
+                            .extracting(
+                                    message ->
+                                            message.getMetadata()
+                                                    .get(RedisChatMemoryRepository.SEQUENCE))
+                            .containsExactly(1L, 2L);
+                    assertThat(cold.findConversationIds()).doesNotContain(conversationId);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .hasSize(2);
+                    assertThat(chatMemoryRepository.findByConversationId("missing")).isEmpty();
+
+                    assertThat(
+                                    meterRegistry
+                                            .get(TieredChatMemoryRepository.TIER_READS)
+                                            .tag("tier", "cold")
+                                            .counter()
+                                            .count())
+                            .isEqualTo(1);
+                    assertThat(
+                                    meterRegistry
+                                            .get(TieredChatMemoryRepository.TIER_READS)
+                                            .tag("tier", "hot")
+                                            .counter()
+                                            .count())
+                            .isEqualTo(1);
+                    assertThat(
+                                    meterRegistry
+                                            .get(TieredChatMemoryRepository.TIER_CONVERSATIONS)
+                                            .tag("direction", "rehydrate")
+                                            .counter()
+                                            .count())
+                            .isEqualTo(1);
+
+                    // Deletes reach both tiers
+                    conversationIds.forEach(chatMemoryRepository::deleteByConversationId);
+                    assertThat(chatMemoryRepository.findConversationIds()).isEmpty();
+                    chatMemoryRepository.close();
+                });
+    }
+
+    @Test
+    void rejectHotTimeToLiveShorterThanMigrations() {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean(TEST_STRING_REDIS_TEMPLATE, RedisTemplate.class);
+                    var cold =
+                            FileChatMemoryRepository.builder()
+                                    .directory(directory.resolve("ttl"))
+                                    .build();
+                    var hot =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("2h")
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+
+                    // Conversations would expire before the migration after they turn idle
+                    assertThatThrownBy(
+                                    () ->
+                                            TieredChatMemoryRepository.builder()
+                                                    .hot(hot)
+                                                    .cold(cold)
+                                                    .maxIdle(Duration.ofHours(1))
+                                                    .migrationInterval(Duration.ofHours(1))
+                                                    .build())
+                            .isInstanceOf(IllegalArgumentException.class)
+                            .hasMessageContaining("timeToLive");
+
+                    var chatMemoryRepository =
+                            TieredChatMemoryRepository.builder()
+                                    .hot(hot)
+                                    .cold(cold)
+                                    .maxIdle(Duration.ofHours(1))
+                                    .migrationInterval(Duration.ofMinutes(30))
+                                    .build();
+                    chatMemoryRepository.close();
+                });
+    }
+
+    @Test
+    void storeConversationsInCompressedFiles() {
+        var chatMemoryRepository =
+                FileChatMemoryRepository.builder()
+                        .directory(directory.resolve("files"))
+                        .codec(new CborMessageCodec())
+                        .build();
+        var conversationId = "user/42:conversation ü";
+        List<Message> messages =
+                List.of(
+                        new UserMessage("Question"),
+                        new AssistantMessage("Answer"),
+                        new ToolResponseMessage(
+                                List.of(
+                                        new ToolResponseMessage.ToolResponse(
+                                                "call", "weather", "Sunny"))));
+
+        assertThat(chatMemoryRepository.findByConversationId(conversationId)).isEmpty();
+        chatMemoryRepository.saveAll(conversationId, messages);
+        assertThat(chatMemoryRepository.findConversationIds()).containsExactly(conversationId);
+        var found = chatMemoryRepository.findByConversationId(conversationId);
+        assertThat(found)
+                .extracting(Message::getMessageType)
+                .containsExactlyElementsOf(messages.stream().map(Message::getMessageType).toList());
+        assertThat(found.subList(0, 2))
+                .extracting(Message::getText)
+                .containsExactly("Question", "Answer");
+        assertThat(((ToolResponseMessage) found.get(2)).getResponses())
+                .containsExactlyElementsOf(((ToolResponseMessage) messages.get(2)).getResponses());
+
+        chatMemoryRepository.saveAll(conversationId, List.of(new UserMessage("Replaced")));
+        assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                .extracting(Message::getText)
+                .containsExactly("Replaced");
+
+        chatMemoryRepository.deleteByConversationId(conversationId);
+        assertThat(chatMemoryRepository.findConversationIds()).isEmpty();
+        assertThat(chatMemoryRepository.findByConversationId(conversationId)).isEmpty();
+    }
+}
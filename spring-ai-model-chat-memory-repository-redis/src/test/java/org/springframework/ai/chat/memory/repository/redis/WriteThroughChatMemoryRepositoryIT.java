@@ -0,0 +1,97 @@
+package org.springframework.ai.chat.memory.repository.redis;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.ai.chat.memory.InMemoryChatMemoryRepository;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Runs the write-through cache in front of an in-memory repository of record. */
+@Testcontainers
+@SuppressWarnings("unchecked")
+public class WriteThroughChatMemoryRepositoryIT {
+
+    private static final String TEST_CHAT_MEMORY_KEY_PREFIX = "test_write_through_chat_memory:";
+
+    @Container
+    private static final GenericContainer<?> redisContainer =
+            new GenericContainer<>(DockerImageName.parse("redis:7.0-alpine"))
+                    .withExposedPorts(6379);
+
+    private final ApplicationContextRunner contextRunner =
+            new ApplicationContextRunner()
+                    .withConfiguration(AutoConfigurations.of(RedisAutoConfiguration.class))
+                    .withPropertyValues(
+                            String.format("spring.data.redis.host=%s", redisContainer.getHost()),
+                            String.format(
+                                    "spring.data.redis.port=%s",
+                                    redisContainer.getFirstMappedPort()));
+
+    @ParameterizedTest
+    @EnumSource(WriteDurability.class)
+    void writeThroughAndFillOnMiss(WriteDurability durability) {
+        this.contextRunner.run(
+                context -> {
+                    RedisTemplate<String, String> redisTemplate =
+                            context.getBean("stringRedisTemplate", RedisTemplate.class);
+                    var cache =
+                            RedisChatMemoryRepository.builder()
+                                    .keyPrefix(TEST_CHAT_MEMORY_KEY_PREFIX)
+                                    .timeToLive("30m")
+                                    .redisTemplate(redisTemplate)
+                                    .build();
+                    var delegate = new InMemoryChatMemoryRepository();
+                    var chatMemoryRepository =
+                            WriteThroughChatMemoryRepository.builder()
+                                    .cache(cache)
+                                    .delegate(delegate)
+                                    .durability(durability)
+                                    .build();
+                    var conversationId = UUID.randomUUID().toString();
+
+                    chatMemoryRepository.saveAll(
+                            conversationId,
+                            List.of(new UserMessage("Question"), new AssistantMessage("Answer")));
+                    assertThat(cache.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question", "Answer");
+                    if (durability == WriteDurability.SYNC) {
+                        assertThat(delegate.findByConversationId(conversationId)).hasSize(2);
+                    } else {
+                        // Pending writes are read back before they reach the delegate
+                        assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                                .hasSize(2);
+                        chatMemoryRepository.flush();
+                        assertThat(delegate.findByConversationId(conversationId)).hasSize(2);
+                    }
+                    assertThat(chatMemoryRepository.findConversationIds()).contains(conversationId);
+
+                    // A miss is filled from the delegate
+                    cache.deleteByConversationId(conversationId);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId))
+                            .extracting(Message::getText)
+                            .containsExactly("Question", "Answer");
+                    assertThat(cache.findByConversationId(conversationId)).hasSize(2);
+
+                    chatMemoryRepository.deleteByConversationId(conversationId);
+                    assertThat(chatMemoryRepository.findByConversationId(conversationId)).isEmpty();
+                    chatMemoryRepository.close();
+                    assertThat(cache.findByConversationId(conversationId)).isEmpty();
+                    assertThat(delegate.findByConversationId(conversationId)).isEmpty();
+                });
+    }
+}